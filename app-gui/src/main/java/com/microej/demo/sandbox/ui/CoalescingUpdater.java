@@ -0,0 +1,107 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui;
+
+import ej.microui.MicroUI;
+
+/**
+ * Forwards values posted from any thread to the MicroUI thread.
+ * <p>
+ * Only the latest value is kept: the values posted before the MicroUI thread handles the pending update are merged
+ * into it. A single task is queued at a time, so the MicroUI event queue stays bounded and posting a value never
+ * allocates memory, whatever the posting rate is.
+ */
+public abstract class CoalescingUpdater {
+
+	private final Runnable task = new Runnable() {
+		@Override
+		public void run() {
+			applyLatest();
+		}
+	};
+
+	private int latestValue;
+	private boolean pending;
+
+	private int postedCount;
+	private int mergedCount;
+	private int droppedCount;
+
+	/**
+	 * Posts a new value.
+	 * <p>
+	 * If an update is already pending, the given value replaces the one it carries.
+	 *
+	 * @param value
+	 *            the value to apply in the MicroUI thread.
+	 */
+	public void post(int value) {
+		synchronized (this) {
+			this.latestValue = value;
+			this.postedCount++;
+			if (this.pending) {
+				this.mergedCount++;
+				return;
+			}
+			this.pending = true;
+		}
+
+		try {
+			MicroUI.callSerially(this.task);
+		} catch (RuntimeException e) {
+			// The MicroUI event queue is full or MicroUI is stopped.
+			synchronized (this) {
+				this.pending = false;
+				this.droppedCount++;
+			}
+		}
+	}
+
+	private void applyLatest() {
+		int value;
+		synchronized (this) {
+			value = this.latestValue;
+			this.pending = false;
+		}
+		apply(value);
+	}
+
+	/**
+	 * Applies a value. This method is called in the MicroUI thread.
+	 *
+	 * @param value
+	 *            the latest posted value.
+	 */
+	protected abstract void apply(int value);
+
+	/**
+	 * Gets the number of posted values.
+	 *
+	 * @return the number of posted values.
+	 */
+	public synchronized int getPostedCount() {
+		return this.postedCount;
+	}
+
+	/**
+	 * Gets the number of values that have been replaced by a more recent one before being applied.
+	 *
+	 * @return the number of merged values.
+	 */
+	public synchronized int getMergedCount() {
+		return this.mergedCount;
+	}
+
+	/**
+	 * Gets the number of values that could not be queued in the MicroUI event queue.
+	 *
+	 * @return the number of dropped values.
+	 */
+	public synchronized int getDroppedCount() {
+		return this.droppedCount;
+	}
+}
@@ -8,43 +8,56 @@ package com.microej.demo.sandbox.ui;
 
 import java.util.logging.Logger;
 
+import com.microej.demo.sandbox.sharedinterface.CallMetricsPublisher;
 import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.ServiceTracker;
 
 import ej.kf.FeatureEntryPoint;
-import ej.service.ServiceFactory;
 
 /**
  * EntryPoint for the UI feature application.
+ * <p>
+ * The UI observes the power service as soon as it is registered, whether the power provider is started before or after
+ * this application.
  */
-public class GuiEntryPoint implements FeatureEntryPoint {
+public class GuiEntryPoint implements FeatureEntryPoint, ServiceTracker.Listener<PowerService> {
 
 	private static final Logger LOGGER = Logger.getLogger("GuiEntryPoint"); //$NON-NLS-1$
-	private final UI ui = new UI();
+	private static final String NAME = "GUI"; //$NON-NLS-1$
+	private final ServiceTracker<PowerService> powerServiceTracker = new ServiceTracker<>(PowerService.class, this);
+	private final UI ui = new UI(this.powerServiceTracker);
+	private final CallMetricsPublisher callMetricsPublisher = new CallMetricsPublisher(NAME);
 
 	@Override
 	public void start() {
 		this.ui.show();
 
-		PowerService powerService = ServiceFactory.getService(PowerService.class);
-		if (powerService == null) {
-			LOGGER.severe("Power service not found."); //$NON-NLS-1$
-			return;
-		}
+		this.callMetricsPublisher.open();
 
-		powerService.addObserver(this.ui);
+		this.powerServiceTracker.open();
 		LOGGER.info("started"); //$NON-NLS-1$
 	}
 
 	@Override
 	public void stop() {
-		PowerService powerService = ServiceFactory.getService(PowerService.class);
-		if (powerService == null) {
-			LOGGER.severe("Power service not found."); //$NON-NLS-1$
-			return;
-		}
-		powerService.removeObserver(this.ui);
+		this.callMetricsPublisher.close();
+
+		this.powerServiceTracker.close();
+		this.ui.hide();
 
 		LOGGER.info("stopped"); //$NON-NLS-1$
 	}
 
+	@Override
+	public void serviceAdded(PowerService service) {
+		service.addObserver(this.ui);
+		LOGGER.info("Power service bound"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void serviceRemoved(PowerService service) {
+		service.removeObserver(this.ui);
+		LOGGER.info("Power service unbound"); //$NON-NLS-1$
+	}
+
 }
@@ -10,20 +10,37 @@ import java.util.logging.Logger;
 
 import com.microej.demo.sandbox.sharedinterface.Observer;
 import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.ServiceTracker;
+import com.microej.demo.sandbox.ui.perf.PerformanceOverlay;
+import com.microej.demo.sandbox.ui.perf.RenderMetrics;
+import com.microej.demo.sandbox.ui.perf.StartupMetrics;
 import com.microej.demo.sandbox.ui.style.AppColors;
 import com.microej.demo.sandbox.ui.style.Fonts;
+import com.microej.demo.sandbox.ui.widget.AutoRange;
+import com.microej.demo.sandbox.ui.widget.GaugeDashboard;
 import com.microej.demo.sandbox.ui.widget.GaugeWidget;
+import com.microej.demo.sandbox.ui.widget.TrendWidget;
 
+import ej.annotation.Nullable;
+import ej.bon.Constants;
+import ej.bon.Timer;
 import ej.microui.MicroUI;
 import ej.microui.display.Colors;
+import ej.microui.display.GraphicsContext;
 import ej.mwt.Desktop;
+import ej.mwt.render.OverlapRenderPolicy;
+import ej.mwt.render.RenderPolicy;
 import ej.mwt.style.EditableStyle;
+import ej.mwt.style.background.NoBackground;
 import ej.mwt.style.background.RectangularBackground;
 import ej.mwt.style.outline.UniformOutline;
 import ej.mwt.stylesheet.cascading.CascadingStylesheet;
+import ej.mwt.stylesheet.selector.ClassSelector;
 import ej.mwt.stylesheet.selector.TypeSelector;
 import ej.mwt.util.Alignment;
-import ej.service.ServiceFactory;
+import ej.widget.container.LayoutOrientation;
+import ej.widget.container.OverlapContainer;
+import ej.widget.container.SimpleDock;
 
 /**
  * The PowerProvider class is responsible for displaying a user interface for the power readings.
@@ -32,51 +49,321 @@ public class UI implements Observer {
 
 	private static final Logger LOGGER = Logger.getLogger("UI"); //$NON-NLS-1$
 
+	/** BON constant enabling the performance overlay at startup. */
+	private static final String PERFORMANCE_OVERLAY_CONSTANT = "com.microej.demo.sandbox.ui.performance.overlay"; //$NON-NLS-1$
+	/** BON constant defining the time to first frame budget, in milliseconds. */
+	private static final String STARTUP_BUDGET_CONSTANT = "com.microej.demo.sandbox.ui.startup.budget"; //$NON-NLS-1$
+	/** BON constant enabling the automatic scale of the gauge. */
+	private static final String GAUGE_AUTO_RANGE_CONSTANT = "com.microej.demo.sandbox.ui.gauge.autorange"; //$NON-NLS-1$
+	/** BON constant defining the setpoint of the gauge. */
+	private static final String GAUGE_SETPOINT_CONSTANT = "com.microej.demo.sandbox.ui.gauge.setpoint"; //$NON-NLS-1$
+	/** BON constant enabling the sprite rendering of the gauge arc. */
+	private static final String GAUGE_SPRITE_CONSTANT = "com.microej.demo.sandbox.ui.gauge.sprite"; //$NON-NLS-1$
+	/** BON constant defining the number of gauges of the rendering demo dashboard, 0 to display a single gauge. */
+	private static final String DASHBOARD_CHANNELS_CONSTANT = "com.microej.demo.sandbox.ui.dashboard.channels"; //$NON-NLS-1$
+
 	private static final String UNIT_NAME = "Watt"; //$NON-NLS-1$
 	private static final String UNIT_ICON_PATH = "/images/watt_icon.png"; //$NON-NLS-1$
 	private static final int MIN_POWER = 0;
-	private static final int MAX_POWER = 1111;
+	private static final int MAX_POWER = 2000;
 
 	private static final int GAUGE_PADDING = 5;
+	private static final int DASHBOARD_GAUGE_PADDING = 2;
+	/** Class selector of the gauges of the dashboard. */
+	private static final int DASHBOARD_GAUGE_CLASS = 1;
+	/** Number of power values displayed by the trend. */
+	private static final int TREND_CAPACITY = 60;
+	private final ServiceTracker<PowerService> powerServiceTracker;
 	private final GaugeWidget gauge = new GaugeWidget(MIN_POWER, MAX_POWER, UNIT_NAME, UNIT_ICON_PATH, false);
+	private final TrendWidget trend = new TrendWidget(TREND_CAPACITY, MIN_POWER, MAX_POWER);
+	@Nullable
+	private final GaugeDashboard dashboard;
+	private final RenderMetrics renderMetrics = new RenderMetrics();
+	private final StartupMetrics startupMetrics = new StartupMetrics(Constants.getInt(STARTUP_BUDGET_CONSTANT));
+	private final OverlapContainer root = new OverlapContainer() {
+		@Override
+		public void render(GraphicsContext g) {
+			super.render(g);
+			UI.this.startupMetrics.markFrameRendered();
+		}
+	};
+
+	/** Desktop created on the first show and kept for the next ones. */
+	@Nullable
+	private Desktop desktop;
+	@Nullable
+	private PerformanceOverlay performanceOverlay;
+	@Nullable
+	private Timer overlayTimer;
+	/** Whether the performance overlay is shown again on the next show, used in the MicroUI thread only. */
+	private boolean overlayRestored;
+
+	private final CoalescingUpdater updater = new CoalescingUpdater() {
+		@Override
+		protected void apply(int power) {
+			updateGauge(power);
+		}
+	};
 
 	private boolean minMaxSet;
+	/** Gauge of the dashboard displaying the next value, used in the MicroUI thread only. */
+	private int nextChannel;
+	@Nullable
+	private AutoRange autoRange;
+
+	/**
+	 * Creates the UI.
+	 * <p>
+	 * If the <code>com.microej.demo.sandbox.ui.dashboard.channels</code> BON constant is not 0, a dashboard of gauges
+	 * is displayed instead of the single gauge. The dashboard is a rendering demo only: the power service provides a
+	 * single channel, so each power value is displayed by the next gauge to load the rendering with many changing
+	 * gauges. The gauges do not display independent channels.
+	 * <p>
+	 * The sprite mode, peak hold and setpoint configured by the BON constants apply to the single gauge and to the
+	 * gauges of the dashboard.
+	 *
+	 * @param powerServiceTracker
+	 *            the tracker of the power service displayed by the UI.
+	 */
+	public UI(ServiceTracker<PowerService> powerServiceTracker) {
+		this.powerServiceTracker = powerServiceTracker;
+		SimpleDock dock = new SimpleDock(LayoutOrientation.VERTICAL);
+		int channels = Constants.getInt(DASHBOARD_CHANNELS_CONSTANT);
+		if (channels != 0) {
+			GaugeDashboard dashboard = new GaugeDashboard(channels, MIN_POWER, MAX_POWER, UNIT_NAME);
+			for (int i = 0; i < channels; i++) {
+				GaugeWidget gauge = dashboard.getGauge(i);
+				gauge.addClassSelector(DASHBOARD_GAUGE_CLASS);
+				configureGauge(gauge);
+			}
+			this.dashboard = dashboard;
+			dock.setCenterChild(dashboard);
+		} else {
+			this.dashboard = null;
+			configureGauge(this.gauge);
+			dock.setCenterChild(this.gauge);
+		}
+		dock.setLastChild(this.trend);
+		this.root.addChild(dock);
+		if (Constants.getBoolean(GAUGE_AUTO_RANGE_CONSTANT)) {
+			this.autoRange = new AutoRange(MIN_POWER, MAX_POWER);
+		}
+	}
+
+	private static void configureGauge(GaugeWidget gauge) {
+		gauge.setSpriteMode(Constants.getBoolean(GAUGE_SPRITE_CONSTANT));
+		gauge.setPeakHold(true);
+		gauge.setSetpoint(Constants.getInt(GAUGE_SETPOINT_CONSTANT));
+	}
 
 	/**
 	 * Shows the UI with the gauge as main widget.
+	 * <p>
+	 * The desktop, its stylesheet and the widget tree are created on the first call and kept for the next ones, so
+	 * that showing the UI again after {@link #hide()} only lays out and renders it.
+	 * <p>
+	 * This warm path only applies to a hide and show of this instance. When the feature is stopped, the Kernel
+	 * reclaims all its objects, so the next start of the feature creates a new UI and measures a cold start.
 	 *
 	 * @see GaugeWidget
 	 */
 	public void show() {
-		Desktop desktop = new Desktop();
-		desktop.setStylesheet(createCSS());
+		Desktop desktop = this.desktop;
+		this.startupMetrics.markStart(desktop == null);
+		if (desktop == null) {
+			desktop = new Desktop() {
+				@Override
+				protected RenderPolicy createRenderPolicy() {
+					// The performance overlay is stacked over the gauge.
+					return new OverlapRenderPolicy(this);
+				}
+			};
+			desktop.setStylesheet(createCSS());
+			desktop.setWidget(this.root);
+			this.desktop = desktop;
+
+			if (Constants.getBoolean(PERFORMANCE_OVERLAY_CONSTANT)) {
+				setPerformanceOverlayVisible(true);
+			}
+		}
 
 		// Display gauge with fallback values until the real ones can be read from MeterData.
 		this.minMaxSet = false;
 
-		desktop.setWidget(this.gauge);
 		desktop.requestShow();
+
+		// Executed after the release of the overlay by a previous hide.
+		MicroUI.callSerially(new Runnable() {
+			@Override
+			public void run() {
+				if (UI.this.overlayRestored) {
+					UI.this.overlayRestored = false;
+					setPerformanceOverlayVisible(true);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Hides the UI and suspends its rendering.
+	 * <p>
+	 * The animations are stopped and the images cached by the widgets, including the faces shared by the gauges of the
+	 * dashboard, are released when they are hidden. The performance overlay is removed and its timer is canceled, the
+	 * overlay is shown again by the next {@link #show()}. Nothing is rendered nor animated until the next
+	 * {@link #show()}.
+	 */
+	public void hide() {
+		final Desktop desktop = this.desktop;
+		if (desktop != null) {
+			desktop.requestHide();
+			MicroUI.callSerially(new Runnable() {
+				@Override
+				public void run() {
+					// Executed after the hiding: nothing is left to animate until the next show.
+					desktop.getAnimator().stopAllAnimations();
+					releaseOverlay();
+				}
+			});
+		}
+	}
+
+	private void releaseOverlay() {
+		if (this.performanceOverlay != null) {
+			setPerformanceOverlayVisible(false);
+			this.overlayRestored = true;
+		}
+		Timer timer = this.overlayTimer;
+		if (timer != null) {
+			timer.cancel();
+			this.overlayTimer = null;
+		}
+	}
+
+	/**
+	 * Shows or hides the performance overlay.
+	 * <p>
+	 * The rendering statistics are recorded while the overlay is visible. This method must be called in the MicroUI
+	 * thread.
+	 *
+	 * @param visible
+	 *            <code>true</code> to show the overlay, <code>false</code> to hide it.
+	 * @see #setRenderMetricsEnabled(boolean)
+	 */
+	public void setPerformanceOverlayVisible(boolean visible) {
+		PerformanceOverlay overlay = this.performanceOverlay;
+		if (visible == (overlay != null)) {
+			return;
+		}
+
+		if (visible) {
+			Timer timer = this.overlayTimer;
+			if (timer == null) {
+				timer = new Timer();
+				this.overlayTimer = timer;
+			}
+			overlay = new PerformanceOverlay(this.renderMetrics, timer);
+			this.performanceOverlay = overlay;
+			setRenderMetricsEnabled(true);
+			this.root.addChild(overlay);
+		} else {
+			this.performanceOverlay = null;
+			setRenderMetricsEnabled(false);
+			this.root.removeChild(overlay);
+		}
+		this.root.requestLayOut();
+	}
+
+	/**
+	 * Enables or disables the recording of the rendering statistics of the gauge.
+	 * <p>
+	 * When the dashboard is displayed, the statistics of its first gauge are recorded.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to record the statistics, <code>false</code> otherwise.
+	 * @see #getRenderMetrics()
+	 */
+	public void setRenderMetricsEnabled(boolean enabled) {
+		GaugeDashboard dashboard = this.dashboard;
+		GaugeWidget gauge = (dashboard != null ? dashboard.getGauge(0) : this.gauge);
+		gauge.setRenderMetrics(enabled ? this.renderMetrics : null);
+	}
+
+	/**
+	 * Gets the rendering statistics of the gauge.
+	 *
+	 * @return the rendering statistics.
+	 * @see #setRenderMetricsEnabled(boolean)
+	 */
+	public RenderMetrics getRenderMetrics() {
+		return this.renderMetrics;
 	}
 
 	@Override
 	public void update() {
-		final PowerService powerService = ServiceFactory.getService(PowerService.class);
+		PowerService powerService = this.powerServiceTracker.getService();
 		if (powerService == null) {
 			LOGGER.severe("MeterData service not found."); //$NON-NLS-1$
 			return;
 		}
 
-		MicroUI.callSerially(new Runnable() {
-			@Override
-			public void run() {
-				if (!UI.this.minMaxSet) {
-					UI.this.minMaxSet = true;
-					UI.this.gauge.setMinMax(powerService.getMinPower(), powerService.getMaxPower());
-				}
+		int power = powerService.getPower();
+		// The trend keeps every value whereas only the latest one is displayed by the gauge if the provider notifies
+		// faster than the UI renders.
+		this.trend.addValue(power);
+		this.updater.post(power);
+	}
 
-				UI.this.gauge.setValue(powerService.getPower(), true);
+	/**
+	 * Gets the time to first frame measurements of the UI.
+	 *
+	 * @return the startup metrics.
+	 */
+	public StartupMetrics getStartupMetrics() {
+		return this.startupMetrics;
+	}
+
+	/**
+	 * Gets the updater forwarding the power values to the UI thread.
+	 *
+	 * @return the updater.
+	 */
+	public CoalescingUpdater getUpdater() {
+		return this.updater;
+	}
+
+	private void updateGauge(int power) {
+		AutoRange autoRange = this.autoRange;
+		if (autoRange != null) {
+			if (autoRange.addValue(power)) {
+				setRange(autoRange.getMinValue(), autoRange.getMaxValue());
 			}
-		});
+		} else if (!this.minMaxSet) {
+			PowerService powerService = this.powerServiceTracker.getService();
+			if (powerService != null) {
+				this.minMaxSet = true;
+				setRange(powerService.getMinPower(), powerService.getMaxPower());
+			}
+		}
+
+		GaugeDashboard dashboard = this.dashboard;
+		if (dashboard != null) {
+			// Rendering demo: the single power channel is spread over the gauges.
+			int channel = this.nextChannel;
+			dashboard.setValue(channel, power);
+			this.nextChannel = (channel + 1) % dashboard.getChannelCount();
+		} else {
+			this.gauge.setValue(power, true);
+		}
+	}
+
+	private void setRange(int minPower, int maxPower) {
+		GaugeDashboard dashboard = this.dashboard;
+		if (dashboard != null) {
+			dashboard.setMinMax(minPower, maxPower);
+		} else {
+			this.gauge.setMinMax(minPower, maxPower);
+		}
+		this.trend.setMinMax(minPower, maxPower);
 	}
 
 	private CascadingStylesheet createCSS() {
@@ -98,6 +385,21 @@ public class UI implements Observer {
 		style.setVerticalAlignment(Alignment.VCENTER);
 
 		style.setPadding(new UniformOutline(GAUGE_PADDING));
+
+		// The gauges of the dashboard are too small for the large font.
+		style = css.getSelectorStyle(new ClassSelector(DASHBOARD_GAUGE_CLASS));
+		style.setFont(Fonts.getSourceSansPro12px400());
+		style.setPadding(new UniformOutline(DASHBOARD_GAUGE_PADDING));
+
+		style = css.getSelectorStyle(new TypeSelector(TrendWidget.class));
+		style.setColor(AppColors.PROGRESS_LINE_FOREGROUND);
+		style.setPadding(new UniformOutline(GAUGE_PADDING));
+
+		style = css.getSelectorStyle(new TypeSelector(PerformanceOverlay.class));
+		style.setBackground(NoBackground.NO_BACKGROUND);
+		style.setColor(AppColors.SECONDARY_LABEL);
+		style.setFont(Fonts.getSourceSansPro12px400());
+		style.setExtraInt(PerformanceOverlay.STYLE_COLOR_BOX, AppColors.CONTENT_BG_BLACK);
 		return css;
 	}
 
@@ -0,0 +1,167 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.perf;
+
+import ej.annotation.Nullable;
+import ej.bon.Timer;
+import ej.bon.TimerTask;
+import ej.bon.Util;
+import ej.microui.MicroUI;
+import ej.microui.display.Font;
+import ej.microui.display.GraphicsContext;
+import ej.microui.display.Painter;
+import ej.mwt.Widget;
+import ej.mwt.style.Style;
+import ej.mwt.util.Size;
+
+/**
+ * Widget displaying the statistics of a {@link RenderMetrics} in a box at the top left corner of its bounds.
+ * <p>
+ * The box is opaque so that the widget can be stacked over the measured widget. It is refreshed periodically while
+ * the widget is shown: the timer only posts the refresh to the MicroUI thread, which reads the metrics, formats the
+ * lines of the box and renders it. The frames rendered between two refreshes draw the same lines, so the overlay does
+ * not allocate in the frames it measures.
+ */
+public class PerformanceOverlay extends Widget {
+
+	/** Style ID for the color of the box. */
+	public static final int STYLE_COLOR_BOX = 0;
+
+	private static final int DEFAULT_BOX_COLOR = 0x000000;
+	private static final int REFRESH_PERIOD = 1000;
+	private static final int LINE_COUNT = 5;
+	private static final int BOX_PADDING = 2;
+	/** Sample text used to compute the width of the box. */
+	private static final String WIDEST_LINE = "render 000.0 / 000.0 ms"; //$NON-NLS-1$
+
+	private static final int US_PER_MS = 1000;
+	private static final int US_PER_TENTH_OF_MS = 100;
+	private static final int DECIMAL_BASE = 10;
+
+	private final RenderMetrics metrics;
+	private final Timer timer;
+
+	@Nullable
+	private TimerTask refreshTask;
+	private long lastRefreshTime;
+	private int lastFramesRendered;
+	private int framesPerSecond;
+	/** Lines displayed in the box, formatted on each refresh. */
+	private final String[] lines = new String[LINE_COUNT];
+
+	/**
+	 * Creates a performance overlay.
+	 *
+	 * @param metrics
+	 *            the metrics to display.
+	 * @param timer
+	 *            the timer used to refresh the overlay.
+	 */
+	public PerformanceOverlay(RenderMetrics metrics, Timer timer) {
+		this.metrics = metrics;
+		this.timer = timer;
+	}
+
+	@Override
+	protected void onShown() {
+		this.lastRefreshTime = Util.platformTimeMillis();
+		this.lastFramesRendered = this.metrics.getFramesRendered();
+		formatLines();
+		final Runnable refresh = new Runnable() {
+			@Override
+			public void run() {
+				refresh();
+			}
+		};
+		TimerTask task = new TimerTask() {
+			@Override
+			public void run() {
+				// The style and the rendering must only be accessed from the MicroUI thread.
+				MicroUI.callSerially(refresh);
+			}
+		};
+		this.refreshTask = task;
+		this.timer.schedule(task, REFRESH_PERIOD, REFRESH_PERIOD);
+	}
+
+	@Override
+	protected void onHidden() {
+		TimerTask task = this.refreshTask;
+		if (task != null) {
+			task.cancel();
+			this.refreshTask = null;
+		}
+	}
+
+	private void refresh() {
+		if (!isShown()) {
+			// Hidden since the refresh was posted.
+			return;
+		}
+		long now = Util.platformTimeMillis();
+		int framesRendered = this.metrics.getFramesRendered();
+		long elapsed = now - this.lastRefreshTime;
+		if (elapsed > 0) {
+			this.framesPerSecond = (int) ((framesRendered - this.lastFramesRendered) * 1000L / elapsed);
+		}
+		this.lastRefreshTime = now;
+		this.lastFramesRendered = framesRendered;
+		formatLines();
+
+		Font font = getStyle().getFont();
+		requestRender(0, 0, getBoxWidth(font), getBoxHeight(font));
+	}
+
+	@Override
+	protected void computeContentOptimalSize(Size size) {
+		Font font = getStyle().getFont();
+		size.setSize(getBoxWidth(font), getBoxHeight(font));
+	}
+
+	private void formatLines() {
+		RenderMetrics metrics = this.metrics;
+		String[] lines = this.lines;
+		lines[0] = this.framesPerSecond + " fps, " + metrics.getFramesSkipped() + " skipped"; //$NON-NLS-1$ //$NON-NLS-2$
+		lines[1] = "render " + formatMillis(metrics.getAverageRenderTime()) + " / " //$NON-NLS-1$ //$NON-NLS-2$
+				+ formatMillis(metrics.getMaxRenderTime()) + " ms"; //$NON-NLS-1$
+		lines[2] = "static " + formatMillis(metrics.getStaticRenderTime()) + " ms"; //$NON-NLS-1$ //$NON-NLS-2$
+		lines[3] = "dynamic " + formatMillis(metrics.getDynamicRenderTime()) + " ms"; //$NON-NLS-1$ //$NON-NLS-2$
+		lines[4] = "tick lag " + formatMillis(metrics.getAverageTickLag()) + " / " //$NON-NLS-1$ //$NON-NLS-2$
+				+ formatMillis(metrics.getMaxTickLag()) + " ms"; //$NON-NLS-1$
+	}
+
+	@Override
+	protected void renderContent(GraphicsContext g, int contentWidth, int contentHeight) {
+		Style style = getStyle();
+		Font font = style.getFont();
+
+		g.setColor(style.getExtraInt(STYLE_COLOR_BOX, DEFAULT_BOX_COLOR));
+		Painter.fillRectangle(g, 0, 0, getBoxWidth(font), getBoxHeight(font));
+
+		g.setColor(style.getColor());
+		int lineHeight = font.getHeight();
+		int y = BOX_PADDING;
+		for (String line : this.lines) {
+			if (line != null) {
+				Painter.drawString(g, line, font, BOX_PADDING, y);
+			}
+			y += lineHeight;
+		}
+	}
+
+	private static int getBoxWidth(Font font) {
+		return font.stringWidth(WIDEST_LINE) + BOX_PADDING * 2;
+	}
+
+	private static int getBoxHeight(Font font) {
+		return font.getHeight() * LINE_COUNT + BOX_PADDING * 2;
+	}
+
+	private static String formatMillis(long micros) {
+		return (micros / US_PER_MS) + "." + ((micros / US_PER_TENTH_OF_MS) % DECIMAL_BASE); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.perf;
+
+/**
+ * Collects rendering statistics of a widget.
+ * <p>
+ * The statistics are recorded in the MicroUI thread. When read from another thread, the values may be slightly
+ * inconsistent with each other.
+ * <p>
+ * All durations are in microseconds.
+ */
+public class RenderMetrics {
+
+	/** Upper bounds (exclusive) of the render time histogram buckets, the last bucket has no upper bound. */
+	private static final int[] BUCKET_BOUNDS = { 1000, 2000, 4000, 8000, 16000, 33000, 66000 };
+
+	private final int[] histogram = new int[BUCKET_BOUNDS.length + 1];
+
+	private int framesRendered;
+	private int framesSkipped;
+	private long totalRenderTime;
+	private long maxRenderTime;
+	private long totalStaticTime;
+	private int framesWithTickLag;
+	private long totalTickLag;
+	private long maxTickLag;
+
+	/**
+	 * Records a rendered frame.
+	 *
+	 * @param renderTime
+	 *            the time spent to render the frame.
+	 * @param staticTime
+	 *            the part of the render time spent to draw the static layer.
+	 * @param tickLag
+	 *            the time elapsed between the animation tick requesting the frame and the start of its rendering, or
+	 *            <code>-1</code> if the frame has not been requested by an animation tick.
+	 */
+	public void recordFrame(long renderTime, long staticTime, long tickLag) {
+		this.framesRendered++;
+		this.histogram[getBucket(renderTime)]++;
+		this.totalRenderTime += renderTime;
+		if (renderTime > this.maxRenderTime) {
+			this.maxRenderTime = renderTime;
+		}
+		this.totalStaticTime += staticTime;
+
+		if (tickLag >= 0) {
+			this.framesWithTickLag++;
+			this.totalTickLag += tickLag;
+			if (tickLag > this.maxTickLag) {
+				this.maxTickLag = tickLag;
+			}
+		}
+	}
+
+	/**
+	 * Records an animation frame that has been skipped.
+	 */
+	public void recordSkippedFrame() {
+		this.framesSkipped++;
+	}
+
+	/**
+	 * Resets all the statistics.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.histogram.length; i++) {
+			this.histogram[i] = 0;
+		}
+		this.framesRendered = 0;
+		this.framesSkipped = 0;
+		this.totalRenderTime = 0;
+		this.maxRenderTime = 0;
+		this.totalStaticTime = 0;
+		this.framesWithTickLag = 0;
+		this.totalTickLag = 0;
+		this.maxTickLag = 0;
+	}
+
+	private static int getBucket(long renderTime) {
+		int[] bounds = BUCKET_BOUNDS;
+		for (int i = 0; i < bounds.length; i++) {
+			if (renderTime < bounds[i]) {
+				return i;
+			}
+		}
+		return bounds.length;
+	}
+
+	/**
+	 * Gets the number of buckets of the render time histogram.
+	 *
+	 * @return the number of buckets.
+	 */
+	public int getBucketCount() {
+		return this.histogram.length;
+	}
+
+	/**
+	 * Gets the upper bound (exclusive) of a bucket of the render time histogram.
+	 *
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the upper bound of the bucket, or {@link Long#MAX_VALUE} for the last one.
+	 */
+	public long getBucketUpperBound(int bucket) {
+		return (bucket < BUCKET_BOUNDS.length) ? BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of frames of a bucket of the render time histogram.
+	 *
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the number of frames rendered in the time range of the bucket.
+	 */
+	public int getBucketFrames(int bucket) {
+		return this.histogram[bucket];
+	}
+
+	/**
+	 * Gets the number of rendered frames.
+	 *
+	 * @return the number of rendered frames.
+	 */
+	public int getFramesRendered() {
+		return this.framesRendered;
+	}
+
+	/**
+	 * Gets the number of skipped animation frames.
+	 *
+	 * @return the number of skipped frames.
+	 */
+	public int getFramesSkipped() {
+		return this.framesSkipped;
+	}
+
+	/**
+	 * Gets the average render time of a frame.
+	 *
+	 * @return the average render time.
+	 */
+	public long getAverageRenderTime() {
+		int frames = this.framesRendered;
+		return (frames == 0) ? 0 : this.totalRenderTime / frames;
+	}
+
+	/**
+	 * Gets the longest render time of a frame.
+	 *
+	 * @return the maximum render time.
+	 */
+	public long getMaxRenderTime() {
+		return this.maxRenderTime;
+	}
+
+	/**
+	 * Gets the total time spent to draw the static layer.
+	 *
+	 * @return the static layer render time.
+	 */
+	public long getStaticRenderTime() {
+		return this.totalStaticTime;
+	}
+
+	/**
+	 * Gets the total time spent to draw the dynamic layer.
+	 *
+	 * @return the dynamic layer render time.
+	 */
+	public long getDynamicRenderTime() {
+		return this.totalRenderTime - this.totalStaticTime;
+	}
+
+	/**
+	 * Gets the average time elapsed between an animation tick and the rendering of its frame.
+	 *
+	 * @return the average tick lag.
+	 */
+	public long getAverageTickLag() {
+		int frames = this.framesWithTickLag;
+		return (frames == 0) ? 0 : this.totalTickLag / frames;
+	}
+
+	/**
+	 * Gets the longest time elapsed between an animation tick and the rendering of its frame.
+	 *
+	 * @return the maximum tick lag.
+	 */
+	public long getMaxTickLag() {
+		return this.maxTickLag;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.perf;
+
+import java.util.logging.Logger;
+
+import ej.bon.Util;
+
+/**
+ * Measures the time elapsed between the start of the UI and the end of the rendering of its first frame.
+ * <p>
+ * A cold start creates the desktop and its widgets, a warm start shows them again after a hide of the same UI. A stop
+ * of the feature reclaims the UI, so its next start is a cold start. The time to first frame of each start is logged,
+ * with a warning if it exceeds the budget.
+ * <p>
+ * All durations are in milliseconds.
+ */
+public class StartupMetrics {
+
+	private static final Logger LOGGER = Logger.getLogger("StartupMetrics"); //$NON-NLS-1$
+	private static final int NS_PER_MS = 1000000;
+
+	private final int budget;
+
+	// Guarded by this.
+	private long startTime;
+	private boolean coldStart;
+	private boolean waitingFirstFrame;
+	private long lastColdStartTime = -1;
+	private long lastWarmStartTime = -1;
+
+	/**
+	 * Creates startup metrics.
+	 *
+	 * @param budget
+	 *            the maximum expected time to first frame, or <code>0</code> for no budget.
+	 */
+	public StartupMetrics(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Marks the start of the UI.
+	 *
+	 * @param cold
+	 *            <code>true</code> if the UI is created, <code>false</code> if it is shown again.
+	 */
+	public synchronized void markStart(boolean cold) {
+		this.startTime = Util.platformTimeNanos();
+		this.coldStart = cold;
+		this.waitingFirstFrame = true;
+	}
+
+	/**
+	 * Marks the end of the rendering of a frame.
+	 * <p>
+	 * Only the first frame after a start is measured.
+	 */
+	public void markFrameRendered() {
+		long time;
+		boolean cold;
+		synchronized (this) {
+			if (!this.waitingFirstFrame) {
+				return;
+			}
+			this.waitingFirstFrame = false;
+			time = (Util.platformTimeNanos() - this.startTime) / NS_PER_MS;
+			cold = this.coldStart;
+			if (cold) {
+				this.lastColdStartTime = time;
+			} else {
+				this.lastWarmStartTime = time;
+			}
+		}
+
+		String start = cold ? "cold" : "warm"; //$NON-NLS-1$ //$NON-NLS-2$
+		if (this.budget > 0 && time > this.budget) {
+			LOGGER.warning("First frame of " + start + " start in " + time + " ms, budget is " + this.budget //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ " ms"); //$NON-NLS-1$
+		} else {
+			LOGGER.info("First frame of " + start + " start in " + time + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	/**
+	 * Gets the time to first frame of the last cold start.
+	 *
+	 * @return the time to first frame, or <code>-1</code> if no cold start has been measured.
+	 */
+	public synchronized long getColdStartTime() {
+		return this.lastColdStartTime;
+	}
+
+	/**
+	 * Gets the time to first frame of the last warm start.
+	 *
+	 * @return the time to first frame, or <code>-1</code> if no warm start has been measured.
+	 */
+	public synchronized long getWarmStartTime() {
+		return this.lastWarmStartTime;
+	}
+
+	/**
+	 * Gets the time to first frame budget.
+	 *
+	 * @return the budget, or <code>0</code> if there is no budget.
+	 */
+	public int getBudget() {
+		return this.budget;
+	}
+}
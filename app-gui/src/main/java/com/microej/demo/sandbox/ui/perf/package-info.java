@@ -0,0 +1,11 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+/**
+ * Contains the classes measuring and displaying the rendering performance.
+ */
+@ej.annotation.NonNullByDefault
+package com.microej.demo.sandbox.ui.perf;
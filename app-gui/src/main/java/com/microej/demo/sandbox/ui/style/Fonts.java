@@ -4,6 +4,7 @@
  */
 package com.microej.demo.sandbox.ui.style;
 
+import ej.annotation.Nullable;
 import ej.microui.display.Font;
 
 /**
@@ -14,6 +15,12 @@ public class Fonts {
 	private static final String SOURCE_12_400 = "/fonts/SourceSansPro_12px-400.ejf"; //$NON-NLS-1$
 	private static final String SOURCE_82_700 = "/fonts/SourceSansPro_82px-700.ejf"; //$NON-NLS-1$
 
+	// Fonts retrieved on the first call. Concurrent first calls retrieve the same font.
+	@Nullable
+	private static Font sourceSansPro12px400;
+	@Nullable
+	private static Font sourceSansPro82px700;
+
 	/**
 	 * Hides the constructor in order to prevent instantiating a class containing only static methods.
 	 */
@@ -24,6 +31,8 @@ public class Fonts {
 	/**
 	 * Gets the Source Sans Pro font with a height of 12px and a weight of 400 (Regular).
 	 * <p>
+	 * Only the printable ASCII characters are embedded in the application.
+	 * <p>
 	 * Height (Cap to descender): 12<br>
 	 * Font-weight: 400<br>
 	 * Height: 19<br>
@@ -34,12 +43,19 @@ public class Fonts {
 	 *
 	 */
 	public static Font getSourceSansPro12px400() {
-		return Font.getFont(SOURCE_12_400);
+		Font font = sourceSansPro12px400;
+		if (font == null) {
+			font = Font.getFont(SOURCE_12_400);
+			sourceSansPro12px400 = font;
+		}
+		return font;
 	}
 
 	/**
 	 * Gets the Source Sans Pro font with a height of 82px and a weight of 700 (Bold).
 	 * <p>
+	 * Only the digits and the minus sign are embedded in the application.
+	 * <p>
 	 * Height (Cap to descender): 82<br>
 	 * Font-weight: 700<br>
 	 * Height: 82<br>
@@ -49,7 +65,12 @@ public class Fonts {
 	 * @return the font with the settings given above.
 	 */
 	public static Font getSourceSansPro82px700() {
-		return Font.getFont(SOURCE_82_700);
+		Font font = sourceSansPro82px700;
+		if (font == null) {
+			font = Font.getFont(SOURCE_82_700);
+			sourceSansPro82px700 = font;
+		}
+		return font;
 	}
 
 }
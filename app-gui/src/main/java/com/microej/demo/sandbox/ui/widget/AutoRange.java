@@ -0,0 +1,176 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+/**
+ * Computes the scale of a gauge from the observed values.
+ * <p>
+ * The scale is always made of 10 steps of 1, 2 or 5 times a power of ten, so that the labels of the gauge are round
+ * values. The scale grows as soon as a value is out of it, and shrinks only when all the values observed during a
+ * window of {@value #DEFAULT_WINDOW} values, with a margin, fit in half of it. This hysteresis avoids changing the
+ * scale, and drawing the gauge face again, when the values oscillate around a step.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class AutoRange {
+
+	/** Default number of values observed before shrinking the scale. */
+	public static final int DEFAULT_WINDOW = 60;
+
+	/** Number of steps of the scale, matching the long graduations of the gauge. */
+	private static final int STEPS = 10;
+	private static final int[] STEP_MULTIPLIERS = { 1, 2, 5 };
+	private static final int DECIMAL_BASE = 10;
+	/** The scale shrinks if the new one is at most the current one divided by this factor. */
+	private static final int SHRINK_FACTOR = 2;
+	/** Margin kept around the observed values when shrinking the scale, as a divider of their span. */
+	private static final int SHRINK_MARGIN_DIVIDER = 2;
+
+	private final int window;
+
+	private int minValue;
+	private int maxValue;
+
+	// Values observed in the current window.
+	private int windowMin;
+	private int windowMax;
+	private int windowCount;
+
+	/**
+	 * Creates an auto range with an initial scale and the default window.
+	 *
+	 * @param minValue
+	 *            the initial minimum value of the scale.
+	 * @param maxValue
+	 *            the initial maximum value of the scale.
+	 */
+	public AutoRange(int minValue, int maxValue) {
+		this(minValue, maxValue, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Creates an auto range with an initial scale.
+	 *
+	 * @param minValue
+	 *            the initial minimum value of the scale.
+	 * @param maxValue
+	 *            the initial maximum value of the scale.
+	 * @param window
+	 *            the number of values observed before shrinking the scale.
+	 */
+	public AutoRange(int minValue, int maxValue, int window) {
+		if (minValue >= maxValue || window <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.window = window;
+		resetWindow();
+	}
+
+	/**
+	 * Adds an observed value and updates the scale if needed.
+	 *
+	 * @param value
+	 *            the observed value.
+	 * @return <code>true</code> if the scale changed, <code>false</code> otherwise.
+	 */
+	public boolean addValue(int value) {
+		if (value < this.windowMin) {
+			this.windowMin = value;
+		}
+		if (value > this.windowMax) {
+			this.windowMax = value;
+		}
+
+		if (value < this.minValue || value > this.maxValue) {
+			// Grow immediately to show the value, keeping the values observed in the window visible.
+			boolean changed = setScale(Math.min(this.minValue, this.windowMin), Math.max(this.maxValue, this.windowMax));
+			resetWindow();
+			return changed;
+		}
+
+		if (++this.windowCount < this.window) {
+			return false;
+		}
+
+		// End of the window: shrink if the observed values use a small part of the scale. Keep a margin around them
+		// so that the next values are unlikely to grow the scale again.
+		boolean changed = false;
+		long margin = ((long) this.windowMax - this.windowMin) / SHRINK_MARGIN_DIVIDER;
+		int lowestValue = (int) Math.max(this.windowMin - margin, Integer.MIN_VALUE);
+		int highestValue = (int) Math.min(this.windowMax + margin, Integer.MAX_VALUE);
+		long step = computeStep(lowestValue, highestValue);
+		long span = (long) this.maxValue - this.minValue;
+		if (step * STEPS * SHRINK_FACTOR <= span) {
+			changed = setScale(lowestValue, highestValue);
+		}
+		resetWindow();
+		return changed;
+	}
+
+	/**
+	 * Gets the minimum value of the scale.
+	 *
+	 * @return the minimum value.
+	 */
+	public int getMinValue() {
+		return this.minValue;
+	}
+
+	/**
+	 * Gets the maximum value of the scale.
+	 *
+	 * @return the maximum value.
+	 */
+	public int getMaxValue() {
+		return this.maxValue;
+	}
+
+	private boolean setScale(int lowestValue, int highestValue) {
+		long step = computeStep(lowestValue, highestValue);
+		long min = floor(lowestValue, step);
+		long max = min + step * STEPS;
+		if (min < Integer.MIN_VALUE || max > Integer.MAX_VALUE) {
+			return false;
+		}
+
+		if (min == this.minValue && max == this.maxValue) {
+			return false;
+		}
+		this.minValue = (int) min;
+		this.maxValue = (int) max;
+		return true;
+	}
+
+	/**
+	 * Computes the smallest round step such that 10 steps starting from a multiple of the step cover the given values.
+	 */
+	private static long computeStep(int lowestValue, int highestValue) {
+		long magnitude = 1;
+		while (true) {
+			for (int multiplier : STEP_MULTIPLIERS) {
+				long step = magnitude * multiplier;
+				if (floor(lowestValue, step) + step * STEPS >= highestValue) {
+					return step;
+				}
+			}
+			magnitude *= DECIMAL_BASE;
+		}
+	}
+
+	private static long floor(long value, long step) {
+		long result = value / step * step;
+		return (result > value) ? result - step : result;
+	}
+
+	private void resetWindow() {
+		this.windowMin = Integer.MAX_VALUE;
+		this.windowMax = Integer.MIN_VALUE;
+		this.windowCount = 0;
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import ej.microui.display.BufferedImage;
+import ej.microui.display.GraphicsContext;
+import ej.microui.display.Painter;
+import ej.mwt.style.Style;
+
+/**
+ * Progress arc of a gauge rasterized in two images and revealed segment by segment.
+ * <p>
+ * The background image contains the arc without progress, the foreground image contains the arc with a full progress.
+ * The arc is split in segments covering the same angle. A segment is described by the horizontal spans of the pixels
+ * whose angle lies in its angular sector, so the segments do not overlap. Revealing or hiding a segment copies its
+ * spans from the foreground or the background image: the cost of a frame only depends on the number of segments that
+ * changed since the previous frame.
+ * <p>
+ * This class must be used in the MicroUI thread.
+ */
+/* package */ class GaugeArcSprite {
+
+	/** Number of values describing a span: x, y and length. */
+	private static final int SPAN_FIELDS = 3;
+	private static final int HALF_CIRCLE = 180;
+
+	private final BufferedImage background;
+	private final BufferedImage foreground;
+	/** Position of the images in the content of the gauge. */
+	private final int x;
+	private final int y;
+	/** Spans of each segment, in the content coordinates of the gauge. */
+	private final short[][] segments;
+
+	// Key
+	private final int contentWidth;
+	private final int contentHeight;
+	private final Style style;
+	private final boolean inverted;
+
+	/** Number of revealed segments, or <code>-1</code> if the displayed segments are unknown. */
+	private int revealedSegments = -1;
+
+	/**
+	 * Creates a sprite from its images.
+	 * <p>
+	 * The sprite becomes the owner of the images and closes them in {@link #close()}.
+	 */
+	/* package */ GaugeArcSprite(BufferedImage background, BufferedImage foreground, int x, int y, short[][] segments,
+			int contentWidth, int contentHeight, Style style, boolean inverted) {
+		this.background = background;
+		this.foreground = foreground;
+		this.x = x;
+		this.y = y;
+		this.segments = segments;
+		this.contentWidth = contentWidth;
+		this.contentHeight = contentHeight;
+		this.style = style;
+		this.inverted = inverted;
+	}
+
+	/**
+	 * Computes the spans of the segments of an arc.
+	 * <p>
+	 * The pixels whose distance to the center line of the arc is at most the given half thickness are distributed
+	 * among the segments according to their angle. The pixels of the caps are added to the first and last segments.
+	 *
+	 * @param arc
+	 *            the center line of the arc.
+	 * @param halfThickness
+	 *            the distance to the center line covered by the segments.
+	 * @param startAngle
+	 *            the start angle of the arc, in degrees.
+	 * @param arcAngle
+	 *            the angle of the arc, in degrees, negative for a clockwise arc.
+	 * @param inverted
+	 *            whether the progress goes from the end to the start of the arc.
+	 * @param segmentAngle
+	 *            the angle covered by a segment, in degrees.
+	 * @return the spans of each segment, as a sequence of x, y and length values.
+	 */
+	/* package */ static short[][] computeSegments(ArcParameter arc, int halfThickness, int startAngle, int arcAngle,
+			boolean inverted, int segmentAngle) {
+		float centerX = arc.getXOffset() + (arc.getDiameter() - 1) / 2f;
+		float centerY = arc.getYOffset() + (arc.getDiameter() - 1) / 2f;
+		float innerRadius = Math.max(arc.getRadius() - halfThickness, 0);
+		float outerRadius = arc.getRadius() + halfThickness;
+		float innerSquare = innerRadius * innerRadius;
+		float outerSquare = outerRadius * outerRadius;
+
+		int arcLength = Math.abs(arcAngle);
+		float capAngle = (float) Math.toDegrees((double) halfThickness / Math.max(arc.getRadius(), 1));
+		int segmentCount = (arcLength + segmentAngle - 1) / segmentAngle;
+
+		int left = (int) Math.floor(centerX - outerRadius);
+		int right = (int) Math.ceil(centerX + outerRadius);
+		int top = (int) Math.floor(centerY - outerRadius);
+		int bottom = (int) Math.ceil(centerY + outerRadius);
+
+		// The first pass counts the spans of each segment, the second one fills them.
+		int[] counts = new int[segmentCount];
+		short[][] segments = new short[segmentCount][];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int y = top; y <= bottom; y++) {
+				float dy = y - centerY;
+				int spanStart = left;
+				int spanSegment = -1;
+				// The column after the right bound closes the last span of the row.
+				for (int x = left; x <= right + 1; x++) {
+					int segment = -1;
+					float dx = x - centerX;
+					float distanceSquare = dx * dx + dy * dy;
+					if (x <= right && distanceSquare >= innerSquare && distanceSquare <= outerSquare) {
+						float progress = computeProgress(dx, dy, startAngle, arcAngle, capAngle);
+						if (progress >= -capAngle && progress <= arcLength + capAngle) {
+							if (inverted) {
+								progress = arcLength - progress;
+							}
+							segment = Math.min(Math.max((int) Math.floor(progress / segmentAngle), 0),
+									segmentCount - 1);
+						}
+					}
+
+					if (segment != spanSegment) {
+						if (spanSegment >= 0) {
+							int index = counts[spanSegment]++;
+							if (pass == 1) {
+								short[] spans = segments[spanSegment];
+								spans[index * SPAN_FIELDS] = (short) spanStart;
+								spans[index * SPAN_FIELDS + 1] = (short) y;
+								spans[index * SPAN_FIELDS + 2] = (short) (x - spanStart);
+							}
+						}
+						spanSegment = segment;
+						spanStart = x;
+					}
+				}
+			}
+
+			if (pass == 0) {
+				for (int i = 0; i < segmentCount; i++) {
+					segments[i] = new short[counts[i] * SPAN_FIELDS];
+					counts[i] = 0;
+				}
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Computes the angle between the start of the arc and a point, in the direction of the arc. The points of the gap
+	 * between the end and the start of the arc get a negative angle when they are closer to the start.
+	 */
+	private static float computeProgress(float dx, float dy, int startAngle, int arcAngle, float capAngle) {
+		// The Y axis of the display goes down while the angles go counterclockwise.
+		float angle = (float) Math.toDegrees(Math.atan2(-dy, dx));
+		float progress = (angle - startAngle) * (arcAngle < 0 ? -1 : 1);
+		int fullCircle = HALF_CIRCLE * 2;
+		progress %= fullCircle;
+		if (progress < 0) {
+			progress += fullCircle;
+		}
+		int arcLength = Math.abs(arcAngle);
+		if (progress > arcLength + (fullCircle - arcLength) / 2f) {
+			progress -= fullCircle;
+		}
+		return progress;
+	}
+
+	/**
+	 * Checks whether this sprite has been created for the given gauge layout.
+	 *
+	 * @param contentWidth
+	 *            the content width of the gauge.
+	 * @param contentHeight
+	 *            the content height of the gauge.
+	 * @param style
+	 *            the style of the gauge.
+	 * @param inverted
+	 *            the direction of the gauge.
+	 * @return <code>true</code> if this sprite can be used to render the gauge, <code>false</code> otherwise.
+	 */
+	/* package */ boolean matches(int contentWidth, int contentHeight, Style style, boolean inverted) {
+		return this.contentWidth == contentWidth && this.contentHeight == contentHeight && this.inverted == inverted
+				&& this.style.equals(style);
+	}
+
+	/**
+	 * Gets the number of segments of the arc.
+	 *
+	 * @return the number of segments.
+	 */
+	/* package */ int getSegmentCount() {
+		return this.segments.length;
+	}
+
+	/**
+	 * Renders the arc with the given number of revealed segments.
+	 * <p>
+	 * Only the segments that changed since the previous rendering are copied, unless the whole arc is requested or the
+	 * clip does not cover the arc.
+	 *
+	 * @param g
+	 *            the graphics context, translated to the content of the gauge.
+	 * @param revealedSegments
+	 *            the number of segments to reveal from the start of the progress.
+	 * @param full
+	 *            <code>true</code> to render all the segments, for instance when the gauge face has been drawn again.
+	 */
+	/* package */ void render(GraphicsContext g, int revealedSegments, boolean full) {
+		int revealed = this.revealedSegments;
+		int segmentCount = this.segments.length;
+		if (full || revealed < 0) {
+			copySegments(g, this.foreground, 0, revealedSegments);
+			copySegments(g, this.background, revealedSegments, segmentCount);
+		} else if (revealedSegments > revealed) {
+			copySegments(g, this.foreground, revealed, revealedSegments);
+		} else if (revealedSegments < revealed) {
+			copySegments(g, this.background, revealedSegments, revealed);
+		}
+
+		// The segments outside the clip keep their previous state: render them all next time.
+		this.revealedSegments = isClipCovering(g) ? revealedSegments : -1;
+	}
+
+	private boolean isClipCovering(GraphicsContext g) {
+		int clipX = g.getClipX();
+		int clipY = g.getClipY();
+		return clipX <= this.x && clipY <= this.y && clipX + g.getClipWidth() >= this.x + this.background.getWidth()
+				&& clipY + g.getClipHeight() >= this.y + this.background.getHeight();
+	}
+
+	private void copySegments(GraphicsContext g, BufferedImage image, int fromSegment, int toSegment) {
+		short[][] segments = this.segments;
+		int imageX = this.x;
+		int imageY = this.y;
+		for (int segment = fromSegment; segment < toSegment; segment++) {
+			short[] spans = segments[segment];
+			for (int i = 0; i < spans.length; i += SPAN_FIELDS) {
+				int spanX = spans[i];
+				int spanY = spans[i + 1];
+				Painter.drawImageRegion(g, image, spanX - imageX, spanY - imageY, spans[i + 2], 1, spanX, spanY);
+			}
+		}
+	}
+
+	/**
+	 * Releases the images of this sprite.
+	 */
+	/* package */ void close() {
+		this.background.close();
+		this.foreground.close();
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import ej.bon.XMath;
+import ej.microui.display.GraphicsContext;
+import ej.mwt.Container;
+import ej.mwt.Desktop;
+import ej.mwt.animation.Animation;
+import ej.mwt.style.Style;
+import ej.mwt.util.Size;
+
+/**
+ * Grid of gauges displaying several channels.
+ * <p>
+ * The gauges share a {@link GaugeFaceCache}, so their common static face is rasterized only once. The values set on
+ * the channels are applied at most once per frame, and all the gauges whose value changed are rendered in a single
+ * render pass. The gauges whose value did not change are not rendered.
+ */
+public class GaugeDashboard extends Container implements Animation {
+
+	/** Minimum number of channels. */
+	public static final int MIN_CHANNELS = 4;
+	/** Maximum number of channels. */
+	public static final int MAX_CHANNELS = 32;
+
+	private static final int DEFAULT_FRAME_RATE = 30;
+	private static final int MS_PER_SECOND = 1000;
+
+	private final GaugeWidget[] gauges;
+	private final GaugeFaceCache faceCache = new GaugeFaceCache(1);
+	private final int columns;
+
+	// Values set but not applied yet, guarded by this.
+	private final int[] pendingValues;
+	private final boolean[] pending;
+	private boolean animated;
+
+	// Gauges to render in the next partial render, used in the MicroUI thread only.
+	private final boolean[] dirty;
+	private boolean partialRenderRequested;
+	private boolean fullRender = true;
+
+	private final int frameInterval = MS_PER_SECOND / DEFAULT_FRAME_RATE;
+	private long lastFrameTime;
+
+	/**
+	 * Creates a dashboard.
+	 *
+	 * @param channels
+	 *            the number of channels, between {@value #MIN_CHANNELS} and {@value #MAX_CHANNELS}.
+	 * @param minValue
+	 *            the minimum value of the gauges.
+	 * @param maxValue
+	 *            the maximum value of the gauges.
+	 * @param unit
+	 *            the unit of the values.
+	 */
+	public GaugeDashboard(int channels, int minValue, int maxValue, String unit) {
+		if (channels < MIN_CHANNELS || channels > MAX_CHANNELS) {
+			throw new IllegalArgumentException();
+		}
+
+		GaugeWidget[] gauges = new GaugeWidget[channels];
+		for (int i = 0; i < channels; i++) {
+			GaugeWidget gauge = new GaugeWidget(minValue, maxValue, unit);
+			gauge.setFaceCache(this.faceCache);
+			gauges[i] = gauge;
+			addChild(gauge);
+		}
+		this.gauges = gauges;
+		this.pendingValues = new int[channels];
+		this.pending = new boolean[channels];
+		this.dirty = new boolean[channels];
+
+		int columns = 1;
+		while (columns * columns < channels) {
+			columns++;
+		}
+		this.columns = columns;
+	}
+
+	/**
+	 * Gets the number of channels.
+	 *
+	 * @return the number of channels.
+	 */
+	public int getChannelCount() {
+		return this.gauges.length;
+	}
+
+	/**
+	 * Gets the gauge displaying a channel.
+	 *
+	 * @param channel
+	 *            the index of the channel.
+	 * @return the gauge of the channel.
+	 */
+	public GaugeWidget getGauge(int channel) {
+		return this.gauges[channel];
+	}
+
+	/**
+	 * Gets the cache of the static face shared by the gauges.
+	 *
+	 * @return the face cache.
+	 */
+	public GaugeFaceCache getFaceCache() {
+		return this.faceCache;
+	}
+
+	/**
+	 * Sets the minimum and maximum value of all the gauges.
+	 * <p>
+	 * This method must be called in the MicroUI thread.
+	 *
+	 * @param minValue
+	 *            the minimum value.
+	 * @param maxValue
+	 *            the maximum value.
+	 */
+	public void setMinMax(int minValue, int maxValue) {
+		boolean changed = false;
+		for (GaugeWidget gauge : this.gauges) {
+			changed |= gauge.setMinMax(minValue, maxValue);
+		}
+		if (changed) {
+			this.fullRender = true;
+			requestRender();
+		}
+	}
+
+	/**
+	 * Sets the value of a channel.
+	 * <p>
+	 * This method can be called from any thread. The value is displayed on the next frame, if several values are set
+	 * on the same channel during a frame only the last one is displayed.
+	 *
+	 * @param channel
+	 *            the index of the channel.
+	 * @param value
+	 *            the value to set.
+	 */
+	public void setValue(int channel, int value) {
+		boolean startAnimation;
+		synchronized (this) {
+			this.pendingValues[channel] = value;
+			this.pending[channel] = true;
+			startAnimation = !this.animated;
+			this.animated = true;
+		}
+
+		if (startAnimation) {
+			Desktop desktop = getDesktop();
+			if (isShown() && desktop != null) {
+				desktop.getAnimator().startAnimation(this);
+			} else {
+				synchronized (this) {
+					this.animated = false;
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean tick(long platformTimeMillis) {
+		if (platformTimeMillis - this.lastFrameTime < this.frameInterval) {
+			return true; // Wait for the next frame.
+		}
+		this.lastFrameTime = platformTimeMillis;
+
+		if (applyPendingValues()) {
+			this.partialRenderRequested = true;
+			requestRender();
+		}
+		return false;
+	}
+
+	/**
+	 * Applies the pending values to the gauges and marks the changed gauges as dirty. The next value set starts the
+	 * animation again.
+	 *
+	 * @return <code>true</code> if a gauge changed, <code>false</code> otherwise.
+	 */
+	private synchronized boolean applyPendingValues() {
+		boolean changed = false;
+		GaugeWidget[] gauges = this.gauges;
+		for (int i = 0; i < gauges.length; i++) {
+			if (this.pending[i]) {
+				this.pending[i] = false;
+				int value = this.pendingValues[i];
+				GaugeWidget gauge = gauges[i];
+				if (gauge.getValue() != value) {
+					gauge.setValue(value);
+					this.dirty[i] = true;
+					changed = true;
+				}
+			}
+		}
+		this.animated = false;
+		return changed;
+	}
+
+	@Override
+	protected void onShown() {
+		super.onShown();
+		applyPendingValues();
+		this.fullRender = true;
+	}
+
+	@Override
+	protected void onHidden() {
+		super.onHidden();
+		Desktop desktop = getDesktop();
+		if (desktop != null) {
+			desktop.getAnimator().stopAnimation(this);
+		}
+		synchronized (this) {
+			this.animated = false;
+		}
+		// Rasterized again on the next rendering.
+		this.faceCache.clear();
+	}
+
+	@Override
+	protected void onLaidOut() {
+		super.onLaidOut();
+		this.fullRender = true;
+	}
+
+	@Override
+	public void render(GraphicsContext g) {
+		boolean[] dirty = this.dirty;
+		GaugeWidget[] gauges = this.gauges;
+
+		if (this.fullRender || !this.partialRenderRequested) {
+			// The background is drawn over all the gauges: render them completely.
+			this.fullRender = false;
+			this.partialRenderRequested = false;
+			for (int i = 0; i < gauges.length; i++) {
+				dirty[i] = false;
+				gauges[i].invalidateStaticLayer();
+			}
+			super.render(g);
+			return;
+		}
+		this.partialRenderRequested = false;
+
+		// Only render the gauges whose value changed, without drawing the background of the dashboard.
+		Style style = getStyle();
+		Size contentSize = new Size(getWidth(), getHeight());
+		style.getMargin().apply(g, contentSize);
+		style.getBorder().apply(g, contentSize);
+		style.getPadding().apply(g, contentSize);
+		for (int i = 0; i < gauges.length; i++) {
+			if (dirty[i]) {
+				dirty[i] = false;
+				renderChild(gauges[i], g);
+			}
+		}
+	}
+
+	@Override
+	protected void computeContentOptimalSize(Size size) {
+		int columns = this.columns;
+		int rows = getRows();
+		int cellWidth = size.getWidth() / columns;
+		int cellHeight = size.getHeight() / rows;
+
+		int maxWidth = 0;
+		int maxHeight = 0;
+		for (GaugeWidget gauge : this.gauges) {
+			computeChildOptimalSize(gauge, cellWidth, cellHeight);
+			maxWidth = XMath.max(maxWidth, gauge.getWidth());
+			maxHeight = XMath.max(maxHeight, gauge.getHeight());
+		}
+		size.setSize(maxWidth * columns, maxHeight * rows);
+	}
+
+	@Override
+	protected void layOutChildren(int contentWidth, int contentHeight) {
+		int columns = this.columns;
+		// All the cells have the same size so that the gauges share the same face.
+		int cellWidth = contentWidth / columns;
+		int cellHeight = contentHeight / getRows();
+
+		GaugeWidget[] gauges = this.gauges;
+		for (int i = 0; i < gauges.length; i++) {
+			layOutChild(gauges[i], (i % columns) * cellWidth, (i / columns) * cellHeight, cellWidth, cellHeight);
+		}
+	}
+
+	private int getRows() {
+		return (this.gauges.length + this.columns - 1) / this.columns;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import ej.annotation.Nullable;
+import ej.microui.display.BufferedImage;
+import ej.mwt.style.Style;
+
+/**
+ * Cache of the static faces of gauges (background, inner arc, graduations, labels and unit).
+ * <p>
+ * Gauges sharing a cache and having the same content size, range, direction, unit and style draw the same face
+ * image, which is rasterized only once.
+ * <p>
+ * This class must be used in the MicroUI thread.
+ *
+ * @see GaugeWidget#setFaceCache(GaugeFaceCache)
+ */
+public class GaugeFaceCache {
+
+	private static final int DEFAULT_CAPACITY = 4;
+
+	private final Face[] faces;
+	/** Index of the next face to replace when the cache is full. */
+	private int nextIndex;
+
+	/**
+	 * Creates a face cache holding up to 4 faces.
+	 */
+	public GaugeFaceCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a face cache.
+	 *
+	 * @param capacity
+	 *            the maximum number of faces in the cache.
+	 */
+	public GaugeFaceCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.faces = new Face[capacity];
+	}
+
+	/* package */ @Nullable
+	BufferedImage get(GaugeWidget gauge, int width, int height) {
+		for (Face face : this.faces) {
+			if (face != null && face.matches(gauge, width, height)) {
+				return face.image;
+			}
+		}
+		return null;
+	}
+
+	/* package */ void put(GaugeWidget gauge, int width, int height, BufferedImage image) {
+		Face[] faces = this.faces;
+		int index = this.nextIndex;
+		Face oldFace = faces[index];
+		if (oldFace != null) {
+			oldFace.image.close();
+		}
+		faces[index] = new Face(gauge, width, height, image);
+		this.nextIndex = (index + 1) % faces.length;
+	}
+
+	/**
+	 * Releases all the cached faces.
+	 */
+	public void clear() {
+		Face[] faces = this.faces;
+		for (int i = 0; i < faces.length; i++) {
+			Face face = faces[i];
+			if (face != null) {
+				face.image.close();
+				faces[i] = null;
+			}
+		}
+		this.nextIndex = 0;
+	}
+
+	private static final class Face {
+		final int width;
+		final int height;
+		final int minValue;
+		final int maxValue;
+		final boolean inverted;
+		final String unit;
+		final String unitIconPath;
+		final Style style;
+		final BufferedImage image;
+
+		Face(GaugeWidget gauge, int width, int height, BufferedImage image) {
+			this.width = width;
+			this.height = height;
+			this.minValue = gauge.getMinValue();
+			this.maxValue = gauge.getMaxValue();
+			this.inverted = gauge.isInverted();
+			this.unit = gauge.getUnit();
+			this.unitIconPath = gauge.getUnitIconPath();
+			this.style = gauge.getStyle();
+			this.image = image;
+		}
+
+		boolean matches(GaugeWidget gauge, int width, int height) {
+			return this.width == width && this.height == height && this.minValue == gauge.getMinValue()
+					&& this.maxValue == gauge.getMaxValue() && this.inverted == gauge.isInverted()
+					&& this.unit.equals(gauge.getUnit()) && this.unitIconPath.equals(gauge.getUnitIconPath())
+					&& this.style.equals(gauge.getStyle());
+		}
+	}
+}
@@ -99,6 +99,42 @@ public class GaugeHelper {
 				(int) Math.round(pY + radius + param.getYOffset()));
 	}
 
+	/**
+	 * Calculates the X coordinate of the point on a circle with the offset specified in {@link ArcParameter}.
+	 * <p>
+	 * Same as {@link #computeOffsetPointOnCircle(float, ArcParameter)} without allocating a {@link Point}.
+	 *
+	 * @param angle
+	 *            the angle for which to calculate the point.
+	 * @param param
+	 *            the {@link ArcParameter} containing radius and offset of the circle.
+	 *
+	 * @return the X coordinate.
+	 */
+	public static int computeOffsetXOnCircle(float angle, ArcParameter param) {
+		int radius = param.getRadius();
+		double pX = radius * XMath.cos(XMath.toRadians(FULL_CIRCLE - angle));
+		return (int) Math.round(pX + radius + param.getXOffset());
+	}
+
+	/**
+	 * Calculates the Y coordinate of the point on a circle with the offset specified in {@link ArcParameter}.
+	 * <p>
+	 * Same as {@link #computeOffsetPointOnCircle(float, ArcParameter)} without allocating a {@link Point}.
+	 *
+	 * @param angle
+	 *            the angle for which to calculate the point.
+	 * @param param
+	 *            the {@link ArcParameter} containing radius and offset of the circle.
+	 *
+	 * @return the Y coordinate.
+	 */
+	public static int computeOffsetYOnCircle(float angle, ArcParameter param) {
+		int radius = param.getRadius();
+		double pY = radius * XMath.sin(XMath.toRadians(FULL_CIRCLE - angle));
+		return (int) Math.round(pY + radius + param.getYOffset());
+	}
+
 	/**
 	 * Calculates the angle from a given value and the given angle / value bounds.
 	 * <p>
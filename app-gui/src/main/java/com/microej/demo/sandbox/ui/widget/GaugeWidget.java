@@ -6,18 +6,26 @@
  */
 package com.microej.demo.sandbox.ui.widget;
 
+import com.microej.demo.sandbox.ui.perf.RenderMetrics;
+
 import ej.annotation.Nullable;
 import ej.basictool.ThreadUtils;
+import ej.bon.Util;
 import ej.bon.XMath;
 import ej.drawing.ShapePainter;
 import ej.drawing.ShapePainter.Cap;
+import ej.microui.MicroUIException;
+import ej.microui.display.BufferedImage;
 import ej.microui.display.Font;
 import ej.microui.display.GraphicsContext;
+import ej.microui.display.Image;
 import ej.microui.display.Painter;
 import ej.microui.display.ResourceImage;
 import ej.motion.Motion;
 import ej.motion.quad.QuadEaseInOutFunction;
+import ej.mwt.Desktop;
 import ej.mwt.Widget;
+import ej.mwt.animation.Animation;
 import ej.mwt.style.Style;
 import ej.mwt.util.Alignment;
 import ej.mwt.util.Size;
@@ -45,14 +53,62 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 	public static final int STYLE_FONT_UNIT_LABEL = 5;
 	/** Style ID for the font of the arc labels. */
 	public static final int STYLE_FONT_ARC_LABELS = 6;
+	/** Style ID for the color of the peak marker. */
+	public static final int STYLE_COLOR_PEAK = 7;
+	/** Style ID for the color of the setpoint marker. */
+	public static final int STYLE_COLOR_SETPOINT = 8;
+	/** Style ID for the color of the setpoint marker when the value reaches the setpoint. */
+	public static final int STYLE_COLOR_ALARM = 9;
+
+	/** Quality tier drawing the arcs with anti-aliasing. */
+	public static final int QUALITY_FULL = 0;
+	/** Quality tier drawing the moving arcs without anti-aliasing. */
+	public static final int QUALITY_NO_FADE = 1;
+	/**
+	 * Quality tier drawing the moving arcs without anti-aliasing, and only the part of the outer arc that changed since
+	 * the previous frame.
+	 */
+	public static final int QUALITY_INCREMENTAL_ARC = 2;
 
 	// Default style values
 	private static final int DEFAULT_PROGRESS_COLOR = 0xE91C73;
 	private static final int DEFAULT_PROGRESS_BG_COLOR = 0x382349;
+	private static final int DEFAULT_ALARM_COLOR = 0xFF3B30;
 
 	// Animation
 	private static final int ANIMATION_DURATION = 1000;
+	/** Shortest duration of an animation started while the previous one is still running. */
+	private static final int MIN_ANIMATION_DURATION = 150;
 	private static final int ANIMATION_FACTOR = 10;
+	/** Default maximum frame rate of the animation, in frames per second. */
+	private static final int DEFAULT_MAX_FRAME_RATE = 30;
+	private static final int MS_PER_SECOND = 1000;
+	private static final int NS_PER_US = 1000;
+	private static final int US_PER_MS = 1000;
+
+	// Adaptive quality
+	/** Number of consecutive animation frames over budget before lowering the quality. */
+	private static final int FRAMES_OVER_BUDGET_TO_DEGRADE = 3;
+	/** Number of consecutive animation frames well under budget before raising the quality. */
+	private static final int FRAMES_UNDER_BUDGET_TO_UPGRADE = 30;
+	/** Percentage of the budget under which a frame is considered well under budget. */
+	private static final int UPGRADE_BUDGET_PERCENT = 50;
+	private static final int HUNDRED_PERCENT = 100;
+	/** Weight of the last frame in the average frame time, as a power of two. */
+	private static final int FRAME_TIME_AVERAGE_SHIFT = 2;
+
+	// Sprite mode
+	/** Angle covered by a segment of the progress arc sprite, in degrees. */
+	private static final int SPRITE_SEGMENT_ANGLE = 2;
+	/** Pixels around the faded outer arc covered by the sprite segments, not reaching the markers. */
+	private static final int SPRITE_MARGIN = 1;
+
+	// Markers
+	/** Time during which the peak is held before decaying, in milliseconds. */
+	private static final int PEAK_HOLD_DURATION = 2000;
+	/** Decay speed of the peak after the hold, in percent of the range per second. */
+	private static final int PEAK_DECAY_PERCENT_PER_SECOND = 20;
+	private static final int MARKER_THICKNESS = 4;
 
 	// Icon & Unit
 	/**
@@ -124,11 +180,18 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 	private static final int LINE_SHORT_ARC_OFFSET = LINE_SHORT_LENGTH + INNER_ARC_OFFSET + FADE * 2;
 	private static final int LINE_LONG_ARC_OFFSET = LINE_LONG_LENGTH + INNER_ARC_OFFSET + FADE * 2;
 	private static final int LINE_LABEL_ARC_OFFSET = LINE_LONG_ARC_OFFSET + LINE_LABEL_DISTANCE;
+	/** The markers are centered in the gap between the outer and the inner arcs. */
+	private static final int MARKER_ARC_OFFSET = OUTER_ARC_OFFSET + OUTER_ARC_THICKNESS / 2 + FADE
+			+ INNER_OUTER_ARC_DISTANCE / 2;
+	/** Radius of the area covered by a marker, fade included. */
+	private static final int MARKER_EXTENT = MARKER_THICKNESS / 2 + FADE;
 
 	// Arc Angles
 	private static final int START_ANGLE = 220;
 	private static final int END_ANGLE = -40;
 	private static final int ARC_ANGLE = END_ANGLE - START_ANGLE;
+	/** Angle drawn over the previous end of the progress when only the change of the outer arc is drawn. */
+	private static final int ARC_CHANGE_OVERLAP = 1;
 
 	private final String unit;
 	private final String unitIconPath;
@@ -139,13 +202,73 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 	private int maxValue;
 	private final boolean inverted;
 
+	// Frame pacing
+	private int frameInterval = MS_PER_SECOND / DEFAULT_MAX_FRAME_RATE;
+	private long lastFrameTime;
+	private long animationEndTime;
+	private int renderedValue;
+	private int renderedArcEndX = -1;
+	private int renderedArcEndY = -1;
+	/** Sweep of the progress arc rendered by the last frame, in degrees. */
+	private float renderedArcAngle;
+	/** Whether the outer arc of the last frame was drawn without anti-aliasing nor sprite, and can be updated. */
+	private boolean arcUpdatable;
+
+	// Adaptive quality
+	private boolean adaptiveQuality = true;
+	/** Render time budget of an animation frame, in microseconds. */
+	private int frameBudget = MS_PER_SECOND / DEFAULT_MAX_FRAME_RATE * US_PER_MS;
+	/** Quality used to render the animation frames, adjusted from their render time. */
+	private int motionQuality = QUALITY_FULL;
+	/** Quality used to render the current frame. */
+	private int frameQuality = QUALITY_FULL;
+	private long averageFrameTime;
+	private int framesOverBudget;
+	private int framesUnderBudget;
+
+	// Instrumentation
+	@Nullable
+	private RenderMetrics metrics;
+	private long renderRequestTime;
+	private long staticRenderTime;
+
 	@Nullable
 	private MotionAnimation motionAnimation;
 	@Nullable
-	private ResourceImage unitIcon;
+	private Image unitIcon;
+	/** Unit icon loaded in the images heap, closed when the gauge is hidden. */
+	@Nullable
+	private ResourceImage loadedUnitIcon;
 
 	@Nullable
 	private DrawParameters drawParam;
+	@Nullable
+	private GaugeFaceCache faceCache;
+	private boolean spriteMode;
+	@Nullable
+	private GaugeArcSprite arcSprite;
+
+	// Markers
+	private boolean peakHold;
+	/** Highest value displayed since the last hold started. */
+	private float heldPeak;
+	private long peakTime;
+	private boolean peakAnimated;
+	private boolean setpointEnabled;
+	private int setpoint;
+	// Position of the displayed markers, -1 if not displayed.
+	private int renderedPeakX = -1;
+	private int renderedPeakY = -1;
+	private int renderedSetpointX = -1;
+	private int renderedSetpointY = -1;
+	private int renderedSetpointColor;
+
+	private final Animation peakAnimation = new Animation() {
+		@Override
+		public boolean tick(long platformTimeMillis) {
+			return tickPeak(platformTimeMillis);
+		}
+	};
 
 	/**
 	 * Creates the GaugeWidget without an specified direction.
@@ -203,16 +326,287 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 
 	/**
 	 * Sets the minimum and maximum value.
+	 * <p>
+	 * The static face is drawn again only if the range changes.
 	 *
 	 * @param minValue
 	 *            the minimum value to set.
 	 * @param maxValue
 	 *            the maximum value to set.
+	 * @return <code>true</code> if the range changed, <code>false</code> otherwise.
 	 */
-	public void setMinMax(int minValue, int maxValue) {
+	public boolean setMinMax(int minValue, int maxValue) {
+		if (minValue == this.minValue && maxValue == this.maxValue) {
+			return false;
+		}
 		this.minValue = minValue;
 		this.maxValue = maxValue;
 		this.drawParam = null; // Reset drawParam to re-render arc labels.
+		requestRender();
+		return true;
+	}
+
+	/**
+	 * Gets the minimum value.
+	 *
+	 * @return the minimum value.
+	 */
+	public int getMinValue() {
+		return this.minValue;
+	}
+
+	/**
+	 * Gets the maximum value.
+	 *
+	 * @return the maximum value.
+	 */
+	public int getMaxValue() {
+		return this.maxValue;
+	}
+
+	/**
+	 * Gets the current value.
+	 *
+	 * @return the current value.
+	 */
+	public int getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Gets whether the progress direction is right to left.
+	 *
+	 * @return <code>true</code> if the direction is inverted, <code>false</code> otherwise.
+	 */
+	public boolean isInverted() {
+		return this.inverted;
+	}
+
+	/**
+	 * Gets the unit of the value.
+	 *
+	 * @return the unit.
+	 */
+	public String getUnit() {
+		return this.unit;
+	}
+
+	/**
+	 * Gets the path of the unit icon.
+	 *
+	 * @return the path of the unit icon, or an empty string if the gauge has no icon.
+	 */
+	public String getUnitIconPath() {
+		return this.unitIconPath;
+	}
+
+	/**
+	 * Sets the cache used to share the static face of this gauge with similar gauges.
+	 * <p>
+	 * When a cache is set, the static face is rasterized in an image of the cache, then drawn from this image.
+	 *
+	 * @param faceCache
+	 *            the cache to use, or <code>null</code> to draw the face directly.
+	 */
+	public void setFaceCache(@Nullable GaugeFaceCache faceCache) {
+		this.faceCache = faceCache;
+		this.drawParam = null;
+	}
+
+	/**
+	 * Requests the static face to be drawn again on the next rendering, for instance when the parent of the gauge has
+	 * drawn its background over it.
+	 */
+	/* package */ void invalidateStaticLayer() {
+		this.drawParam = null;
+	}
+
+	/**
+	 * Forces the quality used to render the animation frames, used by the rendering benchmark with the adaptive quality
+	 * disabled.
+	 */
+	/* package */ void setMotionQuality(int quality) {
+		this.motionQuality = quality;
+	}
+
+	/**
+	 * Ticks the running value animation at the given time instead of waiting for the animator, used by the rendering
+	 * benchmark.
+	 *
+	 * @return <code>true</code> if the animation is still running, <code>false</code> otherwise.
+	 */
+	/* package */ boolean tickAnimation(long platformTimeMillis) {
+		MotionAnimation animation = this.motionAnimation;
+		return animation != null && animation.tick(platformTimeMillis);
+	}
+
+	/**
+	 * Enables or disables the sprite rendering of the outer arc.
+	 * <p>
+	 * In sprite mode, the outer arc is rasterized once per layout in two images: without progress and with a full
+	 * progress. Each frame copies the angular segments of the arc that changed since the previous frame from these
+	 * images instead of rasterizing the arcs. The end of the progress is rounded to segments of 2 degrees and has no
+	 * rounded cap.
+	 * <p>
+	 * If the images cannot be allocated, the sprite mode is disabled and the arcs are drawn directly.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to render the outer arc from sprites, <code>false</code> to draw it.
+	 */
+	public void setSpriteMode(boolean enabled) {
+		this.spriteMode = enabled;
+		if (!enabled) {
+			releaseArcSprite();
+		}
+		this.drawParam = null;
+	}
+
+	/**
+	 * Gets whether the outer arc is rendered from sprites.
+	 *
+	 * @return <code>true</code> if the sprite mode is enabled, <code>false</code> otherwise.
+	 * @see #setSpriteMode(boolean)
+	 */
+	public boolean isSpriteMode() {
+		return this.spriteMode;
+	}
+
+	/**
+	 * Enables or disables the peak-hold marker.
+	 * <p>
+	 * The peak marker shows the highest value displayed recently. It is held for 2 seconds, then decays towards the
+	 * current value. This method must be called in the MicroUI thread.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to show the peak marker, <code>false</code> to hide it.
+	 */
+	public void setPeakHold(boolean enabled) {
+		if (enabled == this.peakHold) {
+			return;
+		}
+		this.peakHold = enabled;
+		resetPeak();
+	}
+
+	/**
+	 * Resets the peak marker to the current value.
+	 * <p>
+	 * This method must be called in the MicroUI thread.
+	 */
+	public void resetPeak() {
+		this.heldPeak = getDisplayedValue();
+		this.peakTime = Util.platformTimeMillis();
+		requestRender();
+	}
+
+	/**
+	 * Sets the setpoint shown by a marker.
+	 * <p>
+	 * The marker is drawn with the alarm color when the displayed value reaches the setpoint. This method must be
+	 * called in the MicroUI thread.
+	 *
+	 * @param setpoint
+	 *            the setpoint value.
+	 * @see #STYLE_COLOR_SETPOINT
+	 * @see #STYLE_COLOR_ALARM
+	 */
+	public void setSetpoint(int setpoint) {
+		if (this.setpointEnabled && setpoint == this.setpoint) {
+			return;
+		}
+		this.setpointEnabled = true;
+		this.setpoint = setpoint;
+		requestRender();
+	}
+
+	/**
+	 * Removes the setpoint marker.
+	 * <p>
+	 * This method must be called in the MicroUI thread.
+	 */
+	public void clearSetpoint() {
+		if (this.setpointEnabled) {
+			this.setpointEnabled = false;
+			requestRender();
+		}
+	}
+
+	/**
+	 * Gets whether the value currently reaches the setpoint.
+	 *
+	 * @return <code>true</code> if a setpoint is set and the value is greater than or equal to it, <code>false</code>
+	 *         otherwise.
+	 */
+	public boolean isAlarm() {
+		return this.setpointEnabled && this.value >= this.setpoint;
+	}
+
+	/**
+	 * Sets the maximum frame rate of the value animation.
+	 * <p>
+	 * Animation ticks coming faster than this rate are skipped, the last tick of an animation is always rendered.
+	 *
+	 * @param framesPerSecond
+	 *            the maximum number of frames per second, or <code>0</code> to render every tick.
+	 */
+	public void setMaxFrameRate(int framesPerSecond) {
+		if (framesPerSecond < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.frameInterval = (framesPerSecond == 0) ? 0 : MS_PER_SECOND / framesPerSecond;
+	}
+
+	/**
+	 * Sets the metrics recording the rendering statistics of this widget.
+	 *
+	 * @param metrics
+	 *            the metrics to record to, or <code>null</code> to disable the instrumentation.
+	 */
+	public void setRenderMetrics(@Nullable RenderMetrics metrics) {
+		this.metrics = metrics;
+		this.renderRequestTime = 0;
+	}
+
+	/**
+	 * Enables or disables the adaptive rendering quality.
+	 * <p>
+	 * When enabled, the render time of the animation frames is measured. The quality used during the animations is
+	 * lowered when the frames exceed the frame budget and raised again when they are well under it. The frames of a
+	 * settled value are always rendered with the full quality, the first one over the static face when the animation
+	 * was rendered with a lower quality.
+	 *
+	 * @param enabled
+	 *            <code>true</code> to adapt the quality, <code>false</code> to always render with the full quality.
+	 * @see #setFrameBudget(int)
+	 */
+	public void setAdaptiveQuality(boolean enabled) {
+		this.adaptiveQuality = enabled;
+		if (!enabled) {
+			this.motionQuality = QUALITY_FULL;
+		}
+	}
+
+	/**
+	 * Sets the render time budget of an animation frame used by the adaptive quality.
+	 *
+	 * @param milliseconds
+	 *            the frame budget in milliseconds.
+	 * @see #setAdaptiveQuality(boolean)
+	 */
+	public void setFrameBudget(int milliseconds) {
+		if (milliseconds <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.frameBudget = milliseconds * US_PER_MS;
+	}
+
+	/**
+	 * Gets the quality currently used to render the animation frames.
+	 *
+	 * @return one of {@link #QUALITY_FULL}, {@link #QUALITY_NO_FADE} or {@link #QUALITY_INCREMENTAL_ARC}.
+	 */
+	public int getMotionQuality() {
+		return this.motionQuality;
 	}
 
 	/**
@@ -261,21 +655,28 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 			return;
 		}
 
-		if (animate) {
+		if (animate && isShown()) {
 			int oldValue = this.value;
+			int duration = ANIMATION_DURATION;
 			if (this.motionAnimation != null) {
-				oldValue = this.animValue;
+				oldValue = this.animValue / ANIMATION_FACTOR;
+				// Values are coming faster than they are animated: only use the remaining time of the running
+				// animation so that the display catches up instead of showing stale intermediate values.
+				long remaining = this.animationEndTime - Util.platformTimeMillis();
+				duration = (int) XMath.limit(remaining, MIN_ANIMATION_DURATION, ANIMATION_DURATION);
 			}
-			startAnimation(oldValue, newValue);
+			startAnimation(oldValue, newValue, duration);
 		}
 		this.value = newValue;
 	}
 
-	private void startAnimation(int oldValue, int newValue) {
+	private void startAnimation(int oldValue, int newValue, int duration) {
 		stopAnimation();
 
 		Motion motion = new Motion(QuadEaseInOutFunction.INSTANCE, oldValue * ANIMATION_FACTOR,
-				newValue * ANIMATION_FACTOR, ANIMATION_DURATION);
+				newValue * ANIMATION_FACTOR, duration);
+		this.animValue = oldValue * ANIMATION_FACTOR;
+		this.animationEndTime = Util.platformTimeMillis() + duration;
 		this.motionAnimation = new MotionAnimation(getDesktop().getAnimator(), motion, this);
 		this.motionAnimation.start();
 	}
@@ -290,30 +691,158 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 	@Override
 	public void tick(int value, boolean finished) {
 		this.animValue = value;
-		requestRender();
 		if (finished) {
 			this.motionAnimation = null;
+			if (this.frameQuality != QUALITY_FULL) {
+				// The arcs drawn without anti-aliasing left pixels under the fade of the full quality arcs: render the
+				// settled value over the face.
+				this.drawParam = null;
+			}
+			requestRender();
+			return;
+		}
+
+		long now = Util.platformTimeMillis();
+		RenderMetrics metrics = this.metrics;
+		if (now - this.lastFrameTime < this.frameInterval || !isFrameVisible(value)) {
+			// Skip the frame, the next tick or the last one renders the up-to-date value.
+			if (metrics != null) {
+				metrics.recordSkippedFrame();
+			}
+			return;
+		}
+		this.lastFrameTime = now;
+		if (metrics != null) {
+			this.renderRequestTime = Util.platformTimeNanos();
+		}
+		requestRender();
+	}
+
+	/**
+	 * Checks whether rendering the given animation value would change the displayed value or the end of the progress
+	 * arc compared to the last rendered frame.
+	 */
+	private boolean isFrameVisible(int animationValue) {
+		DrawParameters param = this.drawParam;
+		if (param == null || animationValue / ANIMATION_FACTOR != this.renderedValue) {
+			return true;
+		}
+		float angle = computeProgressEndAngle((float) animationValue / ANIMATION_FACTOR);
+		return GaugeHelper.computeOffsetXOnCircle(angle, param.outer) != this.renderedArcEndX
+				|| GaugeHelper.computeOffsetYOnCircle(angle, param.outer) != this.renderedArcEndY;
+	}
+
+	private float computeProgressAngle(float drawValue) {
+		float boundedValue = XMath.limit(drawValue, this.minValue, this.maxValue);
+		float angle = GaugeHelper.computeAngleFromValue(boundedValue, this.minValue, this.maxValue, 0, ARC_ANGLE);
+		return this.inverted ? -angle : angle;
+	}
+
+	private float computeProgressEndAngle(float drawValue) {
+		return (this.inverted ? END_ANGLE : START_ANGLE) + computeProgressAngle(drawValue);
+	}
+
+	private float getDisplayedValue() {
+		return (this.motionAnimation != null) ? (float) this.animValue / ANIMATION_FACTOR : this.value;
+	}
+
+	/**
+	 * Gets the value of the peak marker at the given time: the held peak during the hold, then a decaying value that
+	 * does not go under the displayed value.
+	 */
+	private float computePeak(long time, float displayedValue) {
+		long decayTime = time - this.peakTime - PEAK_HOLD_DURATION;
+		float peak = this.heldPeak;
+		if (decayTime > 0) {
+			float decayPerMillisecond = (float) (this.maxValue - this.minValue) * PEAK_DECAY_PERCENT_PER_SECOND
+					/ GaugeHelper.HUNDRED_PERCENT / MS_PER_SECOND;
+			peak -= decayPerMillisecond * decayTime;
+		}
+		return Math.max(peak, displayedValue);
+	}
+
+	/**
+	 * Renders the gauge while the peak decays, only when the peak marker moves by at least one pixel.
+	 */
+	private boolean tickPeak(long platformTimeMillis) {
+		float displayedValue = getDisplayedValue();
+		float peak = computePeak(platformTimeMillis, displayedValue);
+		DrawParameters param = this.drawParam;
+		if (param != null) {
+			float angle = computeProgressEndAngle(peak);
+			if (GaugeHelper.computeOffsetXOnCircle(angle, param.marker) != this.renderedPeakX
+					|| GaugeHelper.computeOffsetYOnCircle(angle, param.marker) != this.renderedPeakY) {
+				requestRender();
+			}
+		}
+
+		boolean decaying = this.peakHold && peak > displayedValue;
+		this.peakAnimated = decaying;
+		return decaying;
+	}
+
+	private void startPeakAnimation() {
+		if (!this.peakAnimated) {
+			Desktop desktop = getDesktop();
+			if (desktop != null) {
+				this.peakAnimated = true;
+				desktop.getAnimator().startAnimation(this.peakAnimation);
+			}
+		}
+	}
+
+	private void stopPeakAnimation() {
+		if (this.peakAnimated) {
+			this.peakAnimated = false;
+			Desktop desktop = getDesktop();
+			if (desktop != null) {
+				desktop.getAnimator().stopAnimation(this.peakAnimation);
+			}
 		}
 	}
 
 	@Override
 	protected void onShown() {
-		if (!this.unitIconPath.isEmpty()) {
-			this.unitIcon = ResourceImage.loadImage(this.unitIconPath);
-		}
+		// The display may have been used by another application while the gauge was hidden.
+		this.drawParam = null;
 	}
 
 	@Override
 	protected void onHidden() {
 		stopAnimation(); // Cleanly close animation if running when widget is hidden.
+		stopPeakAnimation();
+		releaseArcSprite(); // Rasterized again on the next rendering.
 
-		ResourceImage icon = this.unitIcon;
-		if (icon != null) {
-			icon.close();
+		ResourceImage loadedIcon = this.loadedUnitIcon;
+		if (loadedIcon != null) {
+			loadedIcon.close();
+			this.loadedUnitIcon = null;
 			this.unitIcon = null;
 		}
 	}
 
+	/**
+	 * Gets the unit icon, retrieving it on the first call.
+	 * <p>
+	 * The icon generated at build time is kept for the lifetime of the gauge: its handle does not use the images heap.
+	 * Otherwise, the icon is loaded in the images heap until the gauge is hidden.
+	 */
+	@Nullable
+	private Image getUnitIcon() {
+		Image icon = this.unitIcon;
+		if (icon == null && !this.unitIconPath.isEmpty()) {
+			try {
+				icon = Image.getImage(this.unitIconPath);
+			} catch (MicroUIException e) {
+				ResourceImage loadedIcon = ResourceImage.loadImage(this.unitIconPath);
+				this.loadedUnitIcon = loadedIcon;
+				icon = loadedIcon;
+			}
+			this.unitIcon = icon;
+		}
+		return icon;
+	}
+
 	@Override
 	protected void computeContentOptimalSize(Size size) {
 		int minWidth = 0;
@@ -355,7 +884,7 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 		minHeight += mainFont.getHeight();
 		minHeight += unitFont.getHeight();
 		// If we have an unit icon, take it's height into account.
-		ResourceImage icon = this.unitIcon;
+		Image icon = getUnitIcon();
 		if (icon != null) {
 			minHeight += icon.getHeight();
 		}
@@ -365,8 +894,29 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 		this.drawParam = null;
 	}
 
+	@Override
+	protected void onLaidOut() {
+		// Render the static layer again since the bounds may have changed or an overlapping widget may have been
+		// removed.
+		this.drawParam = null;
+	}
+
+	@Override
+	protected void onDetached() {
+		super.onDetached();
+		releaseArcSprite();
+	}
+
 	@Override
 	public void render(GraphicsContext g) {
+		RenderMetrics metrics = this.metrics;
+		long startTime = Util.platformTimeNanos();
+		this.staticRenderTime = 0;
+
+		boolean animated = (this.motionAnimation != null);
+		this.frameQuality = animated ? this.motionQuality : QUALITY_FULL;
+		boolean staticRendered = (this.drawParam == null);
+
 		Style style = getStyle();
 		assert style != null;
 		Size contentSize = new Size(getWidth(), getHeight());
@@ -384,6 +934,49 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 		} catch (Exception e) {
 			ThreadUtils.handleUncaughtException(e);
 		}
+
+		long renderTime = (Util.platformTimeNanos() - startTime) / NS_PER_US;
+		if (animated && !staticRendered && this.adaptiveQuality) {
+			// Only the frames drawing the moving parts are representative of the animation cost.
+			updateMotionQuality(renderTime);
+		}
+
+		if (metrics != null) {
+			long requestTime = this.renderRequestTime;
+			long tickLag = (requestTime == 0) ? -1 : (startTime - requestTime) / NS_PER_US;
+			this.renderRequestTime = 0;
+			metrics.recordFrame(renderTime, this.staticRenderTime / NS_PER_US, tickLag);
+		}
+	}
+
+	/**
+	 * Adjusts the quality of the animation frames from the render time of the last one.
+	 * <p>
+	 * The quality is lowered after several consecutive frames over budget and raised after many consecutive frames well
+	 * under budget, so that it does not switch back and forth between two tiers.
+	 */
+	private void updateMotionQuality(long renderTime) {
+		long average = this.averageFrameTime;
+		average += (renderTime - average) >> FRAME_TIME_AVERAGE_SHIFT;
+		this.averageFrameTime = average;
+
+		int budget = this.frameBudget;
+		if (average > budget) {
+			this.framesUnderBudget = 0;
+			if (++this.framesOverBudget >= FRAMES_OVER_BUDGET_TO_DEGRADE && this.motionQuality < QUALITY_INCREMENTAL_ARC) {
+				this.motionQuality++;
+				this.framesOverBudget = 0;
+			}
+		} else if (average < (long) budget * UPGRADE_BUDGET_PERCENT / HUNDRED_PERCENT) {
+			this.framesOverBudget = 0;
+			if (++this.framesUnderBudget >= FRAMES_UNDER_BUDGET_TO_UPGRADE && this.motionQuality > QUALITY_FULL) {
+				this.motionQuality--;
+				this.framesUnderBudget = 0;
+			}
+		} else {
+			this.framesOverBudget = 0;
+			this.framesUnderBudget = 0;
+		}
 	}
 
 	@Override
@@ -397,16 +990,14 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 		int progressBgColor = style.getExtraInt(STYLE_COLOR_PROGRESS_BG, DEFAULT_PROGRESS_BG_COLOR);
 
 		int unitLabelColor = style.getExtraInt(STYLE_COLOR_UNIT_LABEL, valueColor);
-		int unitIconColor = style.getExtraInt(STYLE_COLOR_UNIT_LABEL, progressColor);
-
-		int arcLabelColor = style.getExtraInt(STYLE_COLOR_ARC_LABELS, progressBgColor);
 
 		Font mainFont = style.getFont();
-		Font arcFont = style.getExtraObject(STYLE_FONT_ARC_LABELS, Font.class, mainFont);
-		Font unitFont = style.getExtraObject(STYLE_FONT_UNIT_LABEL, Font.class, mainFont);
 
 		DrawParameters param = this.drawParam;
+		boolean faceRendered = (param == null);
 		if (param == null) {
+			long staticStartTime = (this.metrics != null) ? Util.platformTimeNanos() : 0;
+
 			// Calculate required positions
 			int offsetHeight = (int) (contentHeight / OFFSET_CENTRE_DIVIDER);
 			int radius = offsetHeight;
@@ -441,28 +1032,56 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 			ArcParameter lineLabel = new ArcParameter(radius - LINE_LABEL_ARC_OFFSET, xPos + LINE_LABEL_ARC_OFFSET,
 					yPos + LINE_LABEL_ARC_OFFSET);
 
+			ArcParameter marker = new ArcParameter(radius - MARKER_ARC_OFFSET, xPos + MARKER_ARC_OFFSET,
+					yPos + MARKER_ARC_OFFSET);
+
 			param = new DrawParameters(xCenterAligned, yCenterAligned, outer, inner, lineStart, lineShort, lineLong,
-					lineLabel);
+					lineLabel, marker);
 			this.drawParam = param;
 
-			// Draw inner Arc, lines on inner Arc and labels for long line.
-			renderInnerArc(g, param, arcFont, progressBgColor, arcLabelColor);
+			GaugeFaceCache cache = this.faceCache;
+			BufferedImage face = (cache != null) ? getCachedFace(cache, param, contentWidth, contentHeight) : null;
+			if (face != null) {
+				Painter.drawImage(g, face, 0, 0);
+			} else {
+				renderFace(g, param);
+			}
 
-			// Draw unit label & icon
-			renderUnit(g, param, unitFont, unitLabelColor, unitIconColor);
+			if (this.metrics != null) {
+				this.staticRenderTime = Util.platformTimeNanos() - staticStartTime;
+			}
 		}
 
 		// Draw outer arc background
 		ArcParameter outer = param.outer;
 
-		g.setColor(progressBgColor);
-		ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
-				START_ANGLE, ARC_ANGLE, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
+		GaugeArcSprite sprite = null;
+		if (this.spriteMode) {
+			sprite = getArcSprite(param, contentWidth, contentHeight, progressColor, progressBgColor);
+		}
+
+		boolean faded = (this.frameQuality == QUALITY_FULL);
+		// The arc drawn by the previous frame is still displayed unless the face has just been drawn over it.
+		boolean incremental = (this.frameQuality == QUALITY_INCREMENTAL_ARC && sprite == null && !faceRendered
+				&& this.arcUpdatable);
+		if (sprite == null && !incremental) {
+			g.setColor(progressBgColor);
+			if (faded) {
+				ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+						START_ANGLE, ARC_ANGLE, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
+			} else {
+				// Cover the fade of the previous frames to not leave progress pixels behind.
+				ShapePainter.drawThickCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+						START_ANGLE, ARC_ANGLE, OUTER_ARC_THICKNESS + FADE * 2);
+			}
+		}
 
 		// Draw value
 		int drawValue = this.value;
+		float arcValue = drawValue;
 		if (this.motionAnimation != null) {
 			drawValue = this.animValue / ANIMATION_FACTOR;
+			arcValue = (float) this.animValue / ANIMATION_FACTOR;
 		}
 
 		int baselineOffset = mainFont.getHeight() - mainFont.getBaselinePosition();
@@ -474,20 +1093,272 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 				param.yCenterAligned + baselineOffset, Alignment.HCENTER, Alignment.BOTTOM);
 
 		// Draw outer progress arc
-		float angle = GaugeHelper.computeAngleFromValue(drawValue, this.minValue, this.maxValue, 0, ARC_ANGLE);
-		int start = START_ANGLE;
-		if (this.inverted) {
-			angle = -angle;
-			start = END_ANGLE;
+		float angle = computeProgressAngle(arcValue);
+		int start = this.inverted ? END_ANGLE : START_ANGLE;
+
+		// Remember what is displayed to skip the animation frames that would not change anything.
+		this.renderedValue = drawValue;
+		this.renderedArcEndX = GaugeHelper.computeOffsetXOnCircle(start + angle, outer);
+		this.renderedArcEndY = GaugeHelper.computeOffsetYOnCircle(start + angle, outer);
+
+		if (sprite != null) {
+			int segments = XMath.min(Math.round(Math.abs(angle) / SPRITE_SEGMENT_ANGLE), sprite.getSegmentCount());
+			sprite.render(g, segments, faceRendered);
+		} else if (incremental) {
+			renderArcChange(g, outer, start, angle, progressColor, progressBgColor);
+		} else {
+			g.setColor(progressColor);
+
+			int backgroundColor = g.getBackgroundColor();
+			g.removeBackgroundColor(); // Background needs to be removed since lines intersect with inner arc
+			if (faded) {
+				ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+						start, angle, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
+			} else {
+				ShapePainter.drawThickCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(), start,
+						angle, OUTER_ARC_THICKNESS + FADE);
+			}
+			g.setBackgroundColor(backgroundColor);
 		}
+		this.renderedArcAngle = angle;
+		this.arcUpdatable = (sprite == null && !faded);
 
-		g.setColor(progressColor);
+		renderMarkers(g, param, arcValue, faceRendered);
+	}
 
-		int backgroundColor = g.getBackgroundColor();
-		g.removeBackgroundColor(); // Background needs to be removed since lines intersect with inner arc
-		ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(), start,
-				angle, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
-		g.setBackgroundColor(backgroundColor);
+	/**
+	 * Draws the part of the outer arc between the end of the progress rendered by the previous frame and the new one,
+	 * with the progress color when the progress grows or with the background color when it shrinks.
+	 * <p>
+	 * Both frames are drawn without anti-aliasing, so the drawn part overlaps the previous progress by
+	 * {@value #ARC_CHANGE_OVERLAP} degree to not leave a seam.
+	 */
+	private void renderArcChange(GraphicsContext g, ArcParameter outer, int start, float angle, int progressColor,
+			int progressBgColor) {
+		float previousSweep = Math.abs(this.renderedArcAngle);
+		float sweep = Math.abs(angle);
+		// The angles of the progress are negative clockwise, positive when the direction is inverted.
+		int direction = this.inverted ? 1 : -1;
+		if (sweep > previousSweep) {
+			float from = Math.max(previousSweep - ARC_CHANGE_OVERLAP, 0);
+			g.setColor(progressColor);
+			int backgroundColor = g.getBackgroundColor();
+			g.removeBackgroundColor(); // Background needs to be removed since lines intersect with inner arc
+			ShapePainter.drawThickCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+					start + direction * from, direction * (sweep - from), OUTER_ARC_THICKNESS + FADE);
+			g.setBackgroundColor(backgroundColor);
+		} else if (sweep < previousSweep) {
+			float to = Math.min(previousSweep + ARC_CHANGE_OVERLAP, Math.abs(ARC_ANGLE));
+			g.setColor(progressBgColor);
+			ShapePainter.drawThickCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+					start + angle, direction * (to - sweep), OUTER_ARC_THICKNESS + FADE * 2);
+		}
+	}
+
+	/**
+	 * Renders the peak and setpoint markers.
+	 * <p>
+	 * Unless the face has just been drawn, only the markers that moved or changed color are erased at their previous
+	 * position and drawn at their new one.
+	 */
+	private void renderMarkers(GraphicsContext g, DrawParameters param, float arcValue, boolean faceRendered) {
+		Style style = getStyle();
+		ArcParameter marker = param.marker;
+
+		int peakX = -1;
+		int peakY = -1;
+		if (this.peakHold) {
+			long now = Util.platformTimeMillis();
+			float peak = computePeak(now, arcValue);
+			if (peak <= arcValue) {
+				// New peak: hold it.
+				this.heldPeak = arcValue;
+				this.peakTime = now;
+			} else {
+				startPeakAnimation();
+			}
+			float angle = computeProgressEndAngle(peak);
+			peakX = GaugeHelper.computeOffsetXOnCircle(angle, marker);
+			peakY = GaugeHelper.computeOffsetYOnCircle(angle, marker);
+		}
+
+		int setpointX = -1;
+		int setpointY = -1;
+		int setpointColor = 0;
+		if (this.setpointEnabled) {
+			float angle = computeProgressEndAngle(this.setpoint);
+			setpointX = GaugeHelper.computeOffsetXOnCircle(angle, marker);
+			setpointY = GaugeHelper.computeOffsetYOnCircle(angle, marker);
+			setpointColor = (arcValue >= this.setpoint) ? style.getExtraInt(STYLE_COLOR_ALARM, DEFAULT_ALARM_COLOR)
+					: style.getExtraInt(STYLE_COLOR_SETPOINT, style.getColor());
+		}
+
+		int oldPeakX = this.renderedPeakX;
+		int oldPeakY = this.renderedPeakY;
+		int oldSetpointX = this.renderedSetpointX;
+		int oldSetpointY = this.renderedSetpointY;
+		boolean peakChanged = faceRendered || peakX != oldPeakX || peakY != oldPeakY;
+		boolean setpointChanged = faceRendered || setpointX != oldSetpointX || setpointY != oldSetpointY
+				|| setpointColor != this.renderedSetpointColor;
+		if (!peakChanged && !setpointChanged) {
+			return;
+		}
+
+		// Erasing a marker may erase a part of the other one: draw both again if they are close.
+		if (markersOverlap(oldPeakX, oldPeakY, oldSetpointX, oldSetpointY)
+				|| markersOverlap(peakX, peakY, setpointX, setpointY)
+				|| markersOverlap(oldPeakX, oldPeakY, setpointX, setpointY)
+				|| markersOverlap(peakX, peakY, oldSetpointX, oldSetpointY)) {
+			peakChanged = true;
+			setpointChanged = true;
+		}
+
+		if (!faceRendered) {
+			g.setColor(g.getBackgroundColor());
+			if (peakChanged) {
+				eraseMarker(g, oldPeakX, oldPeakY);
+			}
+			if (setpointChanged) {
+				eraseMarker(g, oldSetpointX, oldSetpointY);
+			}
+		}
+
+		if (peakChanged && peakX >= 0) {
+			g.setColor(style.getExtraInt(STYLE_COLOR_PEAK,
+					style.getExtraInt(STYLE_COLOR_PROGRESS, DEFAULT_PROGRESS_COLOR)));
+			ShapePainter.drawThickFadedPoint(g, peakX, peakY, MARKER_THICKNESS, FADE);
+		}
+		if (setpointChanged && setpointX >= 0) {
+			g.setColor(setpointColor);
+			ShapePainter.drawThickFadedPoint(g, setpointX, setpointY, MARKER_THICKNESS, FADE);
+		}
+
+		this.renderedPeakX = peakX;
+		this.renderedPeakY = peakY;
+		this.renderedSetpointX = setpointX;
+		this.renderedSetpointY = setpointY;
+		this.renderedSetpointColor = setpointColor;
+	}
+
+	private static boolean markersOverlap(int x1, int y1, int x2, int y2) {
+		return x1 >= 0 && x2 >= 0 && Math.abs(x1 - x2) <= MARKER_EXTENT * 2 && Math.abs(y1 - y2) <= MARKER_EXTENT * 2;
+	}
+
+	private static void eraseMarker(GraphicsContext g, int x, int y) {
+		if (x >= 0) {
+			// A disc rather than a square, so that the corners do not reach the arcs around the gap.
+			Painter.fillCircle(g, x - MARKER_EXTENT, y - MARKER_EXTENT, MARKER_EXTENT * 2 + 1);
+		}
+	}
+
+	/**
+	 * Gets the sprite of the outer arc for the current layout, rasterizing it if needed.
+	 */
+	@Nullable
+	private GaugeArcSprite getArcSprite(DrawParameters param, int contentWidth, int contentHeight, int progressColor,
+			int progressBgColor) {
+		Style style = getStyle();
+		GaugeArcSprite sprite = this.arcSprite;
+		if (sprite != null && sprite.matches(contentWidth, contentHeight, style, this.inverted)) {
+			return sprite;
+		}
+		releaseArcSprite();
+
+		ArcParameter outer = param.outer;
+		int halfThickness = OUTER_ARC_OFFSET + SPRITE_MARGIN;
+		int x = outer.getXOffset() - halfThickness;
+		int y = outer.getYOffset() - halfThickness;
+		int size = outer.getDiameter() + halfThickness * 2;
+
+		BufferedImage background = null;
+		BufferedImage foreground;
+		try {
+			background = new BufferedImage(size, size);
+			foreground = new BufferedImage(size, size);
+		} catch (RuntimeException e) {
+			// Not enough memory in the images heap, the arcs are drawn directly.
+			if (background != null) {
+				background.close();
+			}
+			this.spriteMode = false;
+			return null;
+		}
+
+		renderArcSprite(background, outer, x, y, contentWidth, contentHeight, progressBgColor, progressColor, false);
+		renderArcSprite(foreground, outer, x, y, contentWidth, contentHeight, progressBgColor, progressColor, true);
+		short[][] segments = GaugeArcSprite.computeSegments(outer, halfThickness, START_ANGLE, ARC_ANGLE,
+				this.inverted, SPRITE_SEGMENT_ANGLE);
+
+		sprite = new GaugeArcSprite(background, foreground, x, y, segments, contentWidth, contentHeight, style,
+				this.inverted);
+		this.arcSprite = sprite;
+		return sprite;
+	}
+
+	private void renderArcSprite(BufferedImage image, ArcParameter outer, int x, int y, int contentWidth,
+			int contentHeight, int progressBgColor, int progressColor, boolean fullProgress) {
+		GraphicsContext g = image.getGraphicsContext();
+		g.translate(-x, -y);
+		getStyle().getBackground().apply(g, contentWidth, contentHeight);
+
+		g.setColor(progressBgColor);
+		ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+				START_ANGLE, ARC_ANGLE, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
+
+		if (fullProgress) {
+			// The full progress covers the same pixels in both directions.
+			g.setColor(progressColor);
+			g.removeBackgroundColor();
+			ShapePainter.drawThickFadedCircleArc(g, outer.getXOffset(), outer.getYOffset(), outer.getDiameter(),
+					START_ANGLE, ARC_ANGLE, OUTER_ARC_THICKNESS, FADE, CAP, CAP);
+		}
+	}
+
+	private void releaseArcSprite() {
+		GaugeArcSprite sprite = this.arcSprite;
+		if (sprite != null) {
+			sprite.close();
+			this.arcSprite = null;
+		}
+	}
+
+	@Nullable
+	private BufferedImage getCachedFace(GaugeFaceCache cache, DrawParameters param, int contentWidth,
+			int contentHeight) {
+		BufferedImage face = cache.get(this, contentWidth, contentHeight);
+		if (face == null) {
+			try {
+				face = new BufferedImage(contentWidth, contentHeight);
+			} catch (RuntimeException e) {
+				// Not enough memory in the images heap, the face is drawn directly.
+				return null;
+			}
+			GraphicsContext faceGraphics = face.getGraphicsContext();
+			getStyle().getBackground().apply(faceGraphics, contentWidth, contentHeight);
+			renderFace(faceGraphics, param);
+			cache.put(this, contentWidth, contentHeight, face);
+		}
+		return face;
+	}
+
+	private void renderFace(GraphicsContext g, DrawParameters param) {
+		Style style = getStyle();
+		int valueColor = style.getColor();
+		int progressColor = style.getExtraInt(STYLE_COLOR_PROGRESS, DEFAULT_PROGRESS_COLOR);
+		int progressBgColor = style.getExtraInt(STYLE_COLOR_PROGRESS_BG, DEFAULT_PROGRESS_BG_COLOR);
+		int unitLabelColor = style.getExtraInt(STYLE_COLOR_UNIT_LABEL, valueColor);
+		int unitIconColor = style.getExtraInt(STYLE_COLOR_UNIT_LABEL, progressColor);
+		int arcLabelColor = style.getExtraInt(STYLE_COLOR_ARC_LABELS, progressBgColor);
+
+		Font mainFont = style.getFont();
+		Font arcFont = style.getExtraObject(STYLE_FONT_ARC_LABELS, Font.class, mainFont);
+		Font unitFont = style.getExtraObject(STYLE_FONT_UNIT_LABEL, Font.class, mainFont);
+
+		// Draw inner Arc, lines on inner Arc and labels for long line.
+		renderInnerArc(g, param, arcFont, progressBgColor, arcLabelColor);
+
+		// Draw unit label & icon
+		renderUnit(g, param, unitFont, unitLabelColor, unitIconColor);
 	}
 
 	private void renderInnerArc(GraphicsContext g, DrawParameters param, Font arcFont, int progressBgColor,
@@ -537,7 +1408,7 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 				(int) (yCenterAligned + (outerRadius / UNIT_TEXT_OFFSET_DIVIDER)), Alignment.HCENTER,
 				Alignment.VCENTER);
 
-		ResourceImage icon = this.unitIcon;
+		Image icon = getUnitIcon();
 		if (icon != null) {
 			g.setColor(iconColor);
 			Painter.drawImage(g, icon, xCenterAligned - (icon.getWidth() / 2),
@@ -566,9 +1437,11 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 		ArcParameter lineShort;
 		ArcParameter lineLong;
 		ArcParameter lineLabel;
+		ArcParameter marker;
 
 		DrawParameters(int xCenterAligned, int yCenterAligned, ArcParameter outer, ArcParameter inner,
-				ArcParameter lineStart, ArcParameter lineShort, ArcParameter lineLong, ArcParameter lineLabel) {
+				ArcParameter lineStart, ArcParameter lineShort, ArcParameter lineLong, ArcParameter lineLabel,
+				ArcParameter marker) {
 			this.xCenterAligned = xCenterAligned;
 			this.yCenterAligned = yCenterAligned;
 			this.outer = outer;
@@ -577,6 +1450,7 @@ public class GaugeWidget extends Widget implements MotionAnimationListener {
 			this.lineShort = lineShort;
 			this.lineLong = lineLong;
 			this.lineLabel = lineLabel;
+			this.marker = marker;
 		}
 
 	}
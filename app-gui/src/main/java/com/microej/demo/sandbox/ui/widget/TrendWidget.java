@@ -0,0 +1,254 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import ej.basictool.ThreadUtils;
+import ej.bon.XMath;
+import ej.microui.display.GraphicsContext;
+import ej.microui.display.Painter;
+import ej.mwt.Widget;
+import ej.mwt.style.Style;
+import ej.mwt.util.Size;
+
+/**
+ * Scrolling trend of the last values.
+ * <p>
+ * The values are stored in a ring buffer. When new values are added, the pixels already drawn are shifted to the left
+ * and only the new segments are drawn on the right, instead of drawing the whole line again.
+ * <p>
+ * Values can be added from any thread. A render copies the values to draw under the lock and draws them without it,
+ * so adding a value never waits for a render.
+ */
+public class TrendWidget extends Widget {
+
+	/** Default height of the trend, in pixels. */
+	private static final int DEFAULT_HEIGHT = 48;
+	/** Extra columns cleared on the left of the new segments to erase the end of the previous one. */
+	private static final int JOIN_MARGIN = 1;
+
+	private final int[] values;
+	private int minValue;
+	private int maxValue;
+
+	/** Index of the next value to write in the ring buffer. */
+	private int head;
+	private int count;
+	/** Values added since the last render. */
+	private int pendingValues;
+	private boolean fullRender;
+
+	private int backgroundColor;
+
+	// Values drawn by the current render, the most recent first, used in the MicroUI thread only.
+	private final int[] drawnValues;
+	private int drawnMinValue;
+	private int drawnMaxValue;
+
+	/**
+	 * Creates a trend widget.
+	 *
+	 * @param capacity
+	 *            the number of values to display.
+	 * @param minValue
+	 *            the value displayed at the bottom of the widget.
+	 * @param maxValue
+	 *            the value displayed at the top of the widget.
+	 */
+	public TrendWidget(int capacity, int minValue, int maxValue) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException();
+		}
+		this.values = new int[capacity];
+		this.drawnValues = new int[capacity];
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.fullRender = true;
+	}
+
+	/**
+	 * Sets the minimum and maximum value.
+	 *
+	 * @param minValue
+	 *            the value displayed at the bottom of the widget.
+	 * @param maxValue
+	 *            the value displayed at the top of the widget.
+	 */
+	public synchronized void setMinMax(int minValue, int maxValue) {
+		if (minValue == this.minValue && maxValue == this.maxValue) {
+			return;
+		}
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.fullRender = true;
+		requestRender();
+	}
+
+	/**
+	 * Adds a value at the end of the trend.
+	 *
+	 * @param value
+	 *            the value to add.
+	 */
+	public void addValue(int value) {
+		synchronized (this) {
+			int[] values = this.values;
+			values[this.head] = value;
+			this.head = (this.head + 1) % values.length;
+			if (this.count < values.length) {
+				this.count++;
+			}
+			this.pendingValues++;
+		}
+		requestRender();
+	}
+
+	/**
+	 * Removes all the values.
+	 */
+	public synchronized void clear() {
+		this.head = 0;
+		this.count = 0;
+		this.pendingValues = 0;
+		this.fullRender = true;
+		requestRender();
+	}
+
+	@Override
+	protected void onLaidOut() {
+		this.fullRender = true;
+	}
+
+	@Override
+	protected void computeContentOptimalSize(Size size) {
+		size.setHeight(DEFAULT_HEIGHT);
+	}
+
+	@Override
+	public void render(GraphicsContext g) {
+		Style style = getStyle();
+		// Scrolling the pixels is possible only if the whole widget is rendered, otherwise a part of the pixels would
+		// not be up-to-date.
+		boolean fullyVisible = g.getClipX() <= 0 && g.getClipY() <= 0
+				&& g.getClipX() + g.getClipWidth() >= getWidth() && g.getClipY() + g.getClipHeight() >= getHeight();
+		boolean full;
+		synchronized (this) {
+			full = this.fullRender || !fullyVisible;
+			this.fullRender = !fullyVisible;
+		}
+
+		Size contentSize = new Size(getWidth(), getHeight());
+		style.getMargin().apply(g, contentSize);
+		if (full) {
+			style.getBackground().apply(g, contentSize.getWidth(), contentSize.getHeight());
+			this.backgroundColor = g.getBackgroundColor();
+		}
+		style.getBorder().apply(g, contentSize);
+		style.getPadding().apply(g, contentSize);
+		try {
+			if (full) {
+				renderContent(g, contentSize.getWidth(), contentSize.getHeight());
+			} else {
+				renderNewValues(g, contentSize.getWidth(), contentSize.getHeight());
+			}
+		} catch (Exception e) {
+			ThreadUtils.handleUncaughtException(e);
+		}
+	}
+
+	@Override
+	protected void renderContent(GraphicsContext g, int contentWidth, int contentHeight) {
+		int valueCount;
+		synchronized (this) {
+			this.pendingValues = 0;
+			valueCount = copyValues(this.count);
+		}
+		g.setColor(getStyle().getColor());
+		drawSegments(g, contentWidth, contentHeight, valueCount - 1);
+	}
+
+	private void renderNewValues(GraphicsContext g, int contentWidth, int contentHeight) {
+		int pendingValues;
+		int valueCount;
+		synchronized (this) {
+			pendingValues = this.pendingValues;
+			if (pendingValues == 0) {
+				return;
+			}
+			this.pendingValues = 0;
+			// The new segments plus the last previous one whose end is cleared.
+			valueCount = copyValues(XMath.min(pendingValues + JOIN_MARGIN + 1, this.count));
+		}
+
+		int step = getStep(contentWidth);
+		int shift = pendingValues * step;
+		if (shift < contentWidth) {
+			Painter.drawDisplayRegion(g, shift, 0, contentWidth - shift, contentHeight, 0, 0);
+		} else {
+			shift = contentWidth;
+		}
+
+		int clearedWidth = XMath.min(shift + JOIN_MARGIN, contentWidth);
+		g.setColor(this.backgroundColor);
+		Painter.fillRectangle(g, contentWidth - clearedWidth, 0, clearedWidth, contentHeight);
+
+		g.setColor(getStyle().getColor());
+		drawSegments(g, contentWidth, contentHeight, valueCount - 1);
+	}
+
+	/**
+	 * Copies the given number of most recent values and the range in which they are drawn. Must be called with the
+	 * lock held.
+	 *
+	 * @return the number of copied values.
+	 */
+	private int copyValues(int valueCount) {
+		int[] values = this.values;
+		int[] drawnValues = this.drawnValues;
+		int capacity = values.length;
+		int index = this.head;
+		for (int i = 0; i < valueCount; i++) {
+			index = (index - 1 + capacity) % capacity;
+			drawnValues[i] = values[index];
+		}
+		this.drawnMinValue = this.minValue;
+		this.drawnMaxValue = this.maxValue;
+		return valueCount;
+	}
+
+	/**
+	 * Draws the segments joining the given number of most recent copied values to their previous value, the most
+	 * recent value being on the right side of the content.
+	 */
+	private void drawSegments(GraphicsContext g, int contentWidth, int contentHeight, int segments) {
+		int[] drawnValues = this.drawnValues;
+		int step = getStep(contentWidth);
+		int maxSegments = (contentWidth - 1) / step;
+		int drawnSegments = XMath.min(segments, maxSegments);
+
+		int x = contentWidth - 1;
+		int y = computeY(drawnValues[0], contentHeight);
+		for (int i = 1; i <= drawnSegments; i++) {
+			int previousX = x - step;
+			int previousY = computeY(drawnValues[i], contentHeight);
+			Painter.drawLine(g, previousX, previousY, x, y);
+			x = previousX;
+			y = previousY;
+		}
+	}
+
+	private int getStep(int contentWidth) {
+		return XMath.max(1, contentWidth / (this.values.length - 1));
+	}
+
+	private int computeY(int value, int contentHeight) {
+		int min = this.drawnMinValue;
+		int max = this.drawnMaxValue;
+		int range = XMath.max(1, max - min);
+		int boundedValue = XMath.limit(value, min, max);
+		return contentHeight - 1 - (int) ((long) (boundedValue - min) * (contentHeight - 1) / range);
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import java.util.Random;
+
+import ej.motion.quad.QuadEaseInOutFunction;
+
+/**
+ * Configuration of a gauge rendered by the {@link GaugeBenchmarkTest}: size, range, direction, rendering mode and
+ * sequence of values rendered frame by frame.
+ * <p>
+ * The values of an animated case are animated one after the other, every frame of the animations being rendered with
+ * the motion quality of the case.
+ * <p>
+ * A case may also render a {@link GaugeDashboard} whose gauges all change on every frame.
+ */
+public class BenchmarkCase {
+
+	/** Motion quality of a case whose values are set without animation. */
+	public static final int NOT_ANIMATED = -2;
+	/** Motion quality of an animated case whose quality is adapted by the gauge to its frame time. */
+	public static final int ADAPTIVE_QUALITY = -1;
+
+	private static final int JITTER_PERCENT = 5;
+	private static final int HUNDRED_PERCENT = 100;
+
+	private final String name;
+	private final int size;
+	private final int minValue;
+	private final int maxValue;
+	private final boolean inverted;
+	private final boolean spriteMode;
+	private final int motionQuality;
+	private final int channels;
+	private final int[] values;
+
+	/**
+	 * Creates a benchmark case.
+	 *
+	 * @param name
+	 *            the name of the case.
+	 * @param size
+	 *            the width and height of the gauge.
+	 * @param minValue
+	 *            the minimum value of the gauge.
+	 * @param maxValue
+	 *            the maximum value of the gauge.
+	 * @param inverted
+	 *            whether the direction of the gauge is inverted.
+	 * @param values
+	 *            the values to render, one per frame.
+	 */
+	public BenchmarkCase(String name, int size, int minValue, int maxValue, boolean inverted, int[] values) {
+		this(name, size, minValue, maxValue, inverted, false, values);
+	}
+
+	/**
+	 * Creates a benchmark case.
+	 *
+	 * @param name
+	 *            the name of the case.
+	 * @param size
+	 *            the width and height of the gauge.
+	 * @param minValue
+	 *            the minimum value of the gauge.
+	 * @param maxValue
+	 *            the maximum value of the gauge.
+	 * @param inverted
+	 *            whether the direction of the gauge is inverted.
+	 * @param spriteMode
+	 *            whether the outer arc of the gauge is rendered from sprites.
+	 * @param values
+	 *            the values to render, one per frame.
+	 * @see com.microej.demo.sandbox.ui.widget.GaugeWidget#setSpriteMode(boolean)
+	 */
+	public BenchmarkCase(String name, int size, int minValue, int maxValue, boolean inverted, boolean spriteMode,
+			int[] values) {
+		this(name, size, minValue, maxValue, inverted, spriteMode, NOT_ANIMATED, values);
+	}
+
+	/**
+	 * Creates a benchmark case.
+	 *
+	 * @param name
+	 *            the name of the case.
+	 * @param size
+	 *            the width and height of the gauge.
+	 * @param minValue
+	 *            the minimum value of the gauge.
+	 * @param maxValue
+	 *            the maximum value of the gauge.
+	 * @param inverted
+	 *            whether the direction of the gauge is inverted.
+	 * @param spriteMode
+	 *            whether the outer arc of the gauge is rendered from sprites.
+	 * @param motionQuality
+	 *            the quality of the animation frames, one of the <code>GaugeWidget.QUALITY_*</code> constants,
+	 *            {@link #ADAPTIVE_QUALITY} or {@link #NOT_ANIMATED}.
+	 * @param values
+	 *            the values to render, one per frame if the case is not animated, one per animation otherwise.
+	 */
+	public BenchmarkCase(String name, int size, int minValue, int maxValue, boolean inverted, boolean spriteMode,
+			int motionQuality, int[] values) {
+		this.name = name;
+		this.size = size;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.inverted = inverted;
+		this.spriteMode = spriteMode;
+		this.motionQuality = motionQuality;
+		this.channels = 0;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a dashboard benchmark case.
+	 * <p>
+	 * On each frame, the channel <code>c</code> displays the value <code>values[(frame + c) % values.length]</code>.
+	 *
+	 * @param name
+	 *            the name of the case.
+	 * @param size
+	 *            the width and height of the dashboard.
+	 * @param minValue
+	 *            the minimum value of the gauges.
+	 * @param maxValue
+	 *            the maximum value of the gauges.
+	 * @param channels
+	 *            the number of gauges of the dashboard.
+	 * @param values
+	 *            the values to render.
+	 */
+	public BenchmarkCase(String name, int size, int minValue, int maxValue, int channels, int[] values) {
+		this.name = name;
+		this.size = size;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.inverted = false;
+		this.spriteMode = false;
+		this.motionQuality = NOT_ANIMATED;
+		this.channels = channels;
+		this.values = values;
+	}
+
+	/**
+	 * Creates the values of an animation from the minimum to the maximum value, eased like the gauge animation.
+	 *
+	 * @param minValue
+	 *            the minimum value.
+	 * @param maxValue
+	 *            the maximum value.
+	 * @param frames
+	 *            the number of frames.
+	 * @return the values of the animation.
+	 */
+	public static int[] createSweep(int minValue, int maxValue, int frames) {
+		int[] values = new int[frames];
+		for (int i = 0; i < frames; i++) {
+			float progress = QuadEaseInOutFunction.INSTANCE.computeValue((float) i / (frames - 1));
+			values[i] = minValue + Math.round(progress * (maxValue - minValue));
+		}
+		return values;
+	}
+
+	/**
+	 * Creates values oscillating randomly around the middle of the range.
+	 * <p>
+	 * The sequence is the same for the same arguments.
+	 *
+	 * @param minValue
+	 *            the minimum value.
+	 * @param maxValue
+	 *            the maximum value.
+	 * @param frames
+	 *            the number of frames.
+	 * @return the values of the sequence.
+	 */
+	public static int[] createJitter(int minValue, int maxValue, int frames) {
+		Random random = new Random(frames);
+		int middle = (minValue + maxValue) / 2;
+		int amplitude = (maxValue - minValue) * JITTER_PERCENT / HUNDRED_PERCENT;
+		int[] values = new int[frames];
+		for (int i = 0; i < frames; i++) {
+			values[i] = middle - amplitude + random.nextInt(amplitude * 2 + 1);
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the name of the case.
+	 *
+	 * @return the name.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Gets the width and height of the gauge.
+	 *
+	 * @return the size.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the minimum value of the gauge.
+	 *
+	 * @return the minimum value.
+	 */
+	public int getMinValue() {
+		return this.minValue;
+	}
+
+	/**
+	 * Gets the maximum value of the gauge.
+	 *
+	 * @return the maximum value.
+	 */
+	public int getMaxValue() {
+		return this.maxValue;
+	}
+
+	/**
+	 * Gets whether the direction of the gauge is inverted.
+	 *
+	 * @return <code>true</code> if the direction is inverted, <code>false</code> otherwise.
+	 */
+	public boolean isInverted() {
+		return this.inverted;
+	}
+
+	/**
+	 * Gets whether the outer arc of the gauge is rendered from sprites.
+	 *
+	 * @return <code>true</code> if the sprite mode is used, <code>false</code> otherwise.
+	 */
+	public boolean isSpriteMode() {
+		return this.spriteMode;
+	}
+
+	/**
+	 * Gets whether the values are animated.
+	 *
+	 * @return <code>true</code> if the values are animated, <code>false</code> otherwise.
+	 */
+	public boolean isAnimated() {
+		return this.motionQuality != NOT_ANIMATED;
+	}
+
+	/**
+	 * Gets the quality of the animation frames.
+	 *
+	 * @return one of the <code>GaugeWidget.QUALITY_*</code> constants, {@link #ADAPTIVE_QUALITY} or
+	 *         {@link #NOT_ANIMATED}.
+	 */
+	public int getMotionQuality() {
+		return this.motionQuality;
+	}
+
+	/**
+	 * Gets the number of gauges of the dashboard.
+	 *
+	 * @return the number of channels, or 0 for a single gauge.
+	 */
+	public int getChannels() {
+		return this.channels;
+	}
+
+	/**
+	 * Gets the values to render, one per frame if the case is not animated, one per animation otherwise.
+	 *
+	 * @return the values.
+	 */
+	public int[] getValues() {
+		return this.values;
+	}
+}
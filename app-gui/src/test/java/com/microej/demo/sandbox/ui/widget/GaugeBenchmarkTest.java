@@ -0,0 +1,511 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microej.demo.sandbox.ui.style.AppColors;
+import com.microej.demo.sandbox.ui.style.Fonts;
+
+import ej.annotation.Nullable;
+import ej.bon.Util;
+import ej.bon.XMath;
+import ej.microui.MicroUI;
+import ej.microui.display.BufferedImage;
+import ej.microui.display.Colors;
+import ej.microui.display.GraphicsContext;
+import ej.mwt.Container;
+import ej.mwt.Desktop;
+import ej.mwt.Widget;
+import ej.mwt.style.EditableStyle;
+import ej.mwt.style.background.RectangularBackground;
+import ej.mwt.style.outline.UniformOutline;
+import ej.mwt.stylesheet.cascading.CascadingStylesheet;
+import ej.mwt.stylesheet.selector.ClassSelector;
+import ej.mwt.stylesheet.selector.TypeSelector;
+import ej.mwt.util.Alignment;
+import ej.mwt.util.Size;
+
+/**
+ * Measures the rendering time of the {@link GaugeWidget} and checks its rendering.
+ * <p>
+ * Each {@link BenchmarkCase} is rendered frame by frame in an offscreen image. The time of the first frame (static
+ * face and dynamic layer), the average time of the following frames (dynamic layer only) and their frame rate are
+ * logged.
+ * <p>
+ * The last frame is then compared with a reference rendering of the same state, drawn from scratch with the full
+ * quality in another image. A case fails if the frames rendered incrementally (partial redraws, animation frames with
+ * a lower quality, sprites) leave more different pixels than allowed.
+ */
+public class GaugeBenchmarkTest {
+
+	private static final Logger LOGGER = Logger.getLogger("GaugeBenchmark"); //$NON-NLS-1$
+
+	/** Maximum difference allowed on a color channel of a pixel. */
+	private static final int CHANNEL_TOLERANCE = 16;
+	/** Maximum number of different pixels allowed, per thousand pixels. */
+	private static final int DIFFERENT_PIXELS_PER_MILLE = 2;
+	private static final int PER_MILLE = 1000;
+
+	private static final int[] SIZES = { 160, 240, 320 };
+	private static final int[][] RANGES = { { 0, 100 }, { 0, 2000 }, { -500, 500 } };
+	private static final int FRAMES = 30;
+
+	// Animated cases
+	private static final int ANIMATED_SIZE = 240;
+	private static final int[] MOTION_QUALITIES = { GaugeWidget.QUALITY_FULL, GaugeWidget.QUALITY_NO_FADE,
+			GaugeWidget.QUALITY_INCREMENTAL_ARC, BenchmarkCase.ADAPTIVE_QUALITY };
+	private static final String[] MOTION_QUALITY_NAMES = { "full", "no_fade", "incremental_arc", "adaptive" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	/** Values animated one after the other, in percent of the range: growing then shrinking progress. */
+	private static final int[] ANIMATION_PERCENTS = { 80, 20, 60 };
+	/** Time between two ticks of an animation, in milliseconds. */
+	private static final int ANIMATION_TICK_PERIOD = 33;
+	/** Frame budget of the adaptive quality, low enough for the quality to be lowered during the animations. */
+	private static final int ADAPTIVE_FRAME_BUDGET = 1;
+
+	// Dashboard case
+	private static final int DASHBOARD_SIZE = 320;
+	private static final int DASHBOARD_CHANNELS = 16;
+	/** Class selector of the gauges of the dashboard. */
+	private static final int DASHBOARD_GAUGE_CLASS = 1;
+	private static final int DASHBOARD_GAUGE_PADDING = 2;
+	/** Time between two ticks of the dashboard, longer than its frame interval. */
+	private static final int DASHBOARD_TICK_PERIOD = 1000;
+	/** Frame rate the dashboard must reach. */
+	private static final int DASHBOARD_MIN_FRAME_RATE = 30;
+
+	private static final String UNIT = "Watt"; //$NON-NLS-1$
+	private static final int GAUGE_PADDING = 5;
+	private static final int HUNDRED_PERCENT = 100;
+	private static final int NS_PER_US = 1000;
+	private static final int US_PER_MS = 1000;
+	private static final int US_PER_SECOND = 1000000;
+
+	/** Indexes of the measured times. */
+	private static final int FIRST_FRAME_TIME = 0;
+	private static final int NEXT_FRAMES_TIME = 1;
+	private static final int NEXT_FRAMES_COUNT = 2;
+
+	private final BenchmarkHost host = new BenchmarkHost();
+	/** Frame rate reached by the frames following the first one in the last run case. */
+	private long frameRate;
+
+	/**
+	 * Starts MicroUI.
+	 */
+	@BeforeClass
+	public static void startMicroUI() {
+		MicroUI.start();
+	}
+
+	/**
+	 * Shows the desktop hosting the benchmarked gauges.
+	 */
+	@Before
+	public void showDesktop() {
+		Desktop desktop = new Desktop();
+		desktop.setStylesheet(createStylesheet());
+		desktop.setWidget(this.host);
+		desktop.requestShow();
+	}
+
+	/**
+	 * Renders the gauge with values set without animation: every combination of size, range, direction, rendering mode
+	 * and value sequence.
+	 */
+	@Test
+	public void testValues() {
+		BenchmarkCase[] cases = new BenchmarkCase[SIZES.length * RANGES.length * 2 * 2 * 2];
+		int index = 0;
+		for (int size : SIZES) {
+			for (int[] range : RANGES) {
+				int min = range[0];
+				int max = range[1];
+				for (int inverted = 0; inverted < 2; inverted++) {
+					for (int sprite = 0; sprite < 2; sprite++) {
+						String suffix = size + "_" + min + "_" + max + (inverted == 1 ? "_inverted" : "") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+								+ (sprite == 1 ? "_sprite" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+						cases[index++] = new BenchmarkCase("sweep_" + suffix, size, min, max, inverted == 1, //$NON-NLS-1$
+								sprite == 1, BenchmarkCase.createSweep(min, max, FRAMES));
+						cases[index++] = new BenchmarkCase("jitter_" + suffix, size, min, max, inverted == 1, //$NON-NLS-1$
+								sprite == 1, BenchmarkCase.createJitter(min, max, FRAMES));
+					}
+				}
+			}
+		}
+		runCases(cases);
+	}
+
+	/**
+	 * Renders every frame of value animations, growing and shrinking the progress, with each motion quality and with
+	 * the adaptive quality, in both directions and rendering modes.
+	 */
+	@Test
+	public void testAnimations() {
+		int[] range = RANGES[1];
+		int min = range[0];
+		int max = range[1];
+		int[] values = new int[ANIMATION_PERCENTS.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = min + (max - min) * ANIMATION_PERCENTS[i] / HUNDRED_PERCENT;
+		}
+
+		BenchmarkCase[] cases = new BenchmarkCase[MOTION_QUALITIES.length * 2 * 2];
+		int index = 0;
+		for (int quality = 0; quality < MOTION_QUALITIES.length; quality++) {
+			for (int inverted = 0; inverted < 2; inverted++) {
+				for (int sprite = 0; sprite < 2; sprite++) {
+					String name = "animation_" + MOTION_QUALITY_NAMES[quality] + (inverted == 1 ? "_inverted" : "") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							+ (sprite == 1 ? "_sprite" : ""); //$NON-NLS-1$ //$NON-NLS-2$
+					cases[index++] = new BenchmarkCase(name, ANIMATED_SIZE, min, max, inverted == 1, sprite == 1,
+							MOTION_QUALITIES[quality], values);
+				}
+			}
+		}
+		runCases(cases);
+	}
+
+	/**
+	 * Renders a dashboard of {@value #DASHBOARD_CHANNELS} gauges all changing on every frame, and checks that it
+	 * reaches {@value #DASHBOARD_MIN_FRAME_RATE} frames per second on the platform running the test.
+	 */
+	@Test
+	public void testDashboard() {
+		int[] range = RANGES[1];
+		String name = "dashboard_" + DASHBOARD_CHANNELS; //$NON-NLS-1$
+		runCases(new BenchmarkCase[] { new BenchmarkCase(name, DASHBOARD_SIZE, range[0], range[1], DASHBOARD_CHANNELS,
+				BenchmarkCase.createJitter(range[0], range[1], FRAMES)) });
+		assertTrue(name + ": " + this.frameRate + " fps", this.frameRate >= DASHBOARD_MIN_FRAME_RATE); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void runCases(BenchmarkCase[] cases) {
+		StringBuilder failures = new StringBuilder();
+		for (BenchmarkCase benchmarkCase : cases) {
+			String report = runCase(benchmarkCase);
+			if (report != null) {
+				failures.append('\n').append(report);
+			}
+		}
+		assertTrue("Failed cases:" + failures, failures.length() == 0); //$NON-NLS-1$
+	}
+
+	/**
+	 * Runs a case and logs its results.
+	 *
+	 * @return the report of the case if it failed, <code>null</code> otherwise.
+	 */
+	@Nullable
+	private String runCase(final BenchmarkCase benchmarkCase) {
+		final Widget widget = createWidget(benchmarkCase);
+		runInUIThread(new Runnable() {
+			@Override
+			public void run() {
+				GaugeBenchmarkTest.this.host.setChild(widget, benchmarkCase.getSize());
+			}
+		});
+
+		// Rendering after the layout requested by the host.
+		final long[] times = new long[NEXT_FRAMES_COUNT + 1];
+		final RenderedImage[] images = new RenderedImage[2];
+		runInUIThread(new Runnable() {
+			@Override
+			public void run() {
+				if (widget instanceof GaugeDashboard) {
+					images[0] = render((GaugeDashboard) widget, benchmarkCase, times);
+				} else if (benchmarkCase.isAnimated()) {
+					images[0] = renderAnimations((GaugeWidget) widget, benchmarkCase, times);
+				} else {
+					images[0] = render((GaugeWidget) widget, benchmarkCase, times);
+				}
+				images[1] = renderReference(widget, benchmarkCase.getSize());
+			}
+		});
+
+		long frameTime = XMath.max(times[NEXT_FRAMES_TIME] / XMath.max(times[NEXT_FRAMES_COUNT], 1), 1);
+		this.frameRate = US_PER_SECOND / frameTime;
+		String report = benchmarkCase.getName() + ": first frame " + formatMillis(times[FIRST_FRAME_TIME]) //$NON-NLS-1$
+				+ " ms, " + formatMillis(frameTime) + " ms/frame, " + this.frameRate + " fps"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		if (benchmarkCase.getMotionQuality() == BenchmarkCase.ADAPTIVE_QUALITY) {
+			report += ", quality " + ((GaugeWidget) widget).getMotionQuality(); //$NON-NLS-1$
+		}
+
+		RenderedImage image = images[0];
+		int differentPixels = image.countDifferentPixels(images[1], CHANNEL_TOLERANCE);
+		int allowedPixels = image.getPixelCount() * DIFFERENT_PIXELS_PER_MILLE / PER_MILLE;
+		report += ", " + differentPixels + " different pixels"; //$NON-NLS-1$ //$NON-NLS-2$
+		if (differentPixels > allowedPixels) {
+			LOGGER.warning(report);
+			return report;
+		}
+		LOGGER.info(report);
+		return null;
+	}
+
+	private static Widget createWidget(BenchmarkCase benchmarkCase) {
+		if (benchmarkCase.getChannels() == 0) {
+			GaugeWidget gauge = new GaugeWidget(benchmarkCase.getMinValue(), benchmarkCase.getMaxValue(), UNIT, "", //$NON-NLS-1$
+					benchmarkCase.isInverted());
+			gauge.setSpriteMode(benchmarkCase.isSpriteMode());
+			return gauge;
+		}
+
+		GaugeDashboard dashboard = new GaugeDashboard(benchmarkCase.getChannels(), benchmarkCase.getMinValue(),
+				benchmarkCase.getMaxValue(), UNIT);
+		for (int i = 0; i < benchmarkCase.getChannels(); i++) {
+			dashboard.getGauge(i).addClassSelector(DASHBOARD_GAUGE_CLASS);
+		}
+		return dashboard;
+	}
+
+	/**
+	 * Renders all the frames of a case and returns the last one.
+	 */
+	private static RenderedImage render(GaugeWidget gauge, BenchmarkCase benchmarkCase, long[] times) {
+		int size = benchmarkCase.getSize();
+		int[] values = benchmarkCase.getValues();
+		BufferedImage image = new BufferedImage(size, size);
+		try {
+			GraphicsContext g = image.getGraphicsContext();
+
+			// The gauge may have already been rendered on the display.
+			gauge.invalidateStaticLayer();
+
+			long start = Util.platformTimeNanos();
+			gauge.setValue(values[0]);
+			gauge.render(g);
+			long end = Util.platformTimeNanos();
+			times[FIRST_FRAME_TIME] = (end - start) / NS_PER_US;
+
+			start = end;
+			for (int i = 1; i < values.length; i++) {
+				gauge.setValue(values[i]);
+				gauge.render(g);
+			}
+			times[NEXT_FRAMES_TIME] = (Util.platformTimeNanos() - start) / NS_PER_US;
+			times[NEXT_FRAMES_COUNT] = values.length - 1;
+			return readPixels(image, size);
+		} finally {
+			image.close();
+		}
+	}
+
+	/**
+	 * Animates the values of a case one after the other, rendering every tick of the animations, and returns the last
+	 * frame, rendered once the last animation is finished.
+	 * <p>
+	 * The animations are ticked every {@value #ANIMATION_TICK_PERIOD} ms of animation time, independently of the time
+	 * spent rendering.
+	 */
+	private static RenderedImage renderAnimations(GaugeWidget gauge, BenchmarkCase benchmarkCase, long[] times) {
+		int quality = benchmarkCase.getMotionQuality();
+		if (quality == BenchmarkCase.ADAPTIVE_QUALITY) {
+			gauge.setAdaptiveQuality(true);
+			gauge.setFrameBudget(ADAPTIVE_FRAME_BUDGET);
+		} else {
+			gauge.setAdaptiveQuality(false);
+			gauge.setMotionQuality(quality);
+		}
+		// Every tick is rendered.
+		gauge.setMaxFrameRate(0);
+
+		int size = benchmarkCase.getSize();
+		BufferedImage image = new BufferedImage(size, size);
+		try {
+			GraphicsContext g = image.getGraphicsContext();
+			gauge.invalidateStaticLayer();
+
+			long start = Util.platformTimeNanos();
+			gauge.render(g);
+			times[FIRST_FRAME_TIME] = (Util.platformTimeNanos() - start) / NS_PER_US;
+
+			long renderTime = 0;
+			int frames = 0;
+			for (int value : benchmarkCase.getValues()) {
+				gauge.setValue(value, true);
+				long tickTime = Util.platformTimeMillis();
+				boolean running;
+				do {
+					tickTime += ANIMATION_TICK_PERIOD;
+					running = gauge.tickAnimation(tickTime);
+					start = Util.platformTimeNanos();
+					gauge.render(g);
+					renderTime += Util.platformTimeNanos() - start;
+					frames++;
+				} while (running);
+			}
+			times[NEXT_FRAMES_TIME] = renderTime / NS_PER_US;
+			times[NEXT_FRAMES_COUNT] = frames;
+			return readPixels(image, size);
+		} finally {
+			image.close();
+		}
+	}
+
+	/**
+	 * Renders all the frames of a dashboard case, all the gauges changing on every frame, and returns the last one.
+	 * <p>
+	 * The values are applied by the animation tick of the dashboard, so each frame after the first one is a partial
+	 * render of the changed gauges.
+	 */
+	private static RenderedImage render(GaugeDashboard dashboard, BenchmarkCase benchmarkCase, long[] times) {
+		int size = benchmarkCase.getSize();
+		BufferedImage image = new BufferedImage(size, size);
+		try {
+			GraphicsContext g = image.getGraphicsContext();
+
+			long start = Util.platformTimeNanos();
+			renderFrame(dashboard, benchmarkCase, 0, g);
+			long end = Util.platformTimeNanos();
+			times[FIRST_FRAME_TIME] = (end - start) / NS_PER_US;
+
+			start = end;
+			int frames = benchmarkCase.getValues().length;
+			for (int i = 1; i < frames; i++) {
+				renderFrame(dashboard, benchmarkCase, i, g);
+			}
+			times[NEXT_FRAMES_TIME] = (Util.platformTimeNanos() - start) / NS_PER_US;
+			times[NEXT_FRAMES_COUNT] = frames - 1;
+			return readPixels(image, size);
+		} finally {
+			image.close();
+		}
+	}
+
+	private static void renderFrame(GaugeDashboard dashboard, BenchmarkCase benchmarkCase, int frame,
+			GraphicsContext g) {
+		int[] values = benchmarkCase.getValues();
+		int channels = dashboard.getChannelCount();
+		for (int c = 0; c < channels; c++) {
+			dashboard.setValue(c, values[(frame + c) % values.length]);
+		}
+		dashboard.tick((frame + 1L) * DASHBOARD_TICK_PERIOD);
+		dashboard.render(g);
+	}
+
+	/**
+	 * Renders the current state of a gauge or of a dashboard from scratch in a new image.
+	 */
+	private static RenderedImage renderReference(Widget widget, int size) {
+		BufferedImage image = new BufferedImage(size, size);
+		try {
+			if (widget instanceof GaugeWidget) {
+				((GaugeWidget) widget).invalidateStaticLayer();
+			}
+			// Without pending values, the dashboard renders all its gauges.
+			widget.render(image.getGraphicsContext());
+			return readPixels(image, size);
+		} finally {
+			image.close();
+		}
+	}
+
+	private static RenderedImage readPixels(BufferedImage image, int size) {
+		int[] pixels = new int[size * size];
+		image.readPixels(pixels, 0, size, 0, 0, size, size);
+		return new RenderedImage(size, size, pixels);
+	}
+
+	private static String formatMillis(long micros) {
+		long hundredths = micros / (US_PER_MS / 100);
+		long fraction = hundredths % 100;
+		return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Runs a task in the MicroUI thread and waits for its end.
+	 */
+	private static void runInUIThread(final Runnable task) {
+		final Object lock = new Object();
+		final boolean[] done = new boolean[1];
+		MicroUI.callSerially(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					synchronized (lock) {
+						done[0] = true;
+						lock.notifyAll();
+					}
+				}
+			}
+		});
+
+		synchronized (lock) {
+			while (!done[0]) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private static CascadingStylesheet createStylesheet() {
+		CascadingStylesheet css = new CascadingStylesheet();
+		EditableStyle style = css.getDefaultStyle();
+		style.setBackground(new RectangularBackground(AppColors.CONTENT_BG_BLACK));
+
+		style = css.getSelectorStyle(new TypeSelector(GaugeWidget.class));
+		style.setColor(Colors.WHITE);
+		style.setFont(Fonts.getSourceSansPro82px700());
+		style.setExtraObject(GaugeWidget.STYLE_FONT_UNIT_LABEL, Fonts.getSourceSansPro12px400());
+		style.setExtraObject(GaugeWidget.STYLE_FONT_ARC_LABELS, Fonts.getSourceSansPro12px400());
+		style.setExtraInt(GaugeWidget.STYLE_COLOR_PROGRESS, AppColors.PROGRESS_LINE_FOREGROUND);
+		style.setExtraInt(GaugeWidget.STYLE_COLOR_PROGRESS_BG, AppColors.PROGRESS_LINE_BACKGROUND);
+		style.setHorizontalAlignment(Alignment.HCENTER);
+		style.setVerticalAlignment(Alignment.VCENTER);
+		style.setPadding(new UniformOutline(GAUGE_PADDING));
+
+		style = css.getSelectorStyle(new ClassSelector(DASHBOARD_GAUGE_CLASS));
+		style.setFont(Fonts.getSourceSansPro12px400());
+		style.setPadding(new UniformOutline(DASHBOARD_GAUGE_PADDING));
+		return css;
+	}
+
+	/**
+	 * Container laying out its only child with a fixed size at its top left corner.
+	 */
+	private static class BenchmarkHost extends Container {
+
+		@Nullable
+		private Widget child;
+		private int childSize;
+
+		void setChild(Widget child, int size) {
+			Widget oldChild = this.child;
+			if (oldChild != null) {
+				removeChild(oldChild);
+			}
+			this.child = child;
+			this.childSize = size;
+			addChild(child);
+			requestLayOut();
+		}
+
+		@Override
+		protected void computeContentOptimalSize(Size size) {
+			size.setSize(this.childSize, this.childSize);
+		}
+
+		@Override
+		protected void layOutChildren(int contentWidth, int contentHeight) {
+			Widget child = this.child;
+			if (child != null) {
+				layOutChild(child, 0, 0, this.childSize, this.childSize);
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.ui.widget;
+
+/**
+ * Pixels of a rendering, compared with a reference rendering.
+ */
+public class RenderedImage {
+
+	private static final int CHANNEL_MASK = 0xff;
+	private static final int BITS_PER_CHANNEL = 8;
+	private static final int CHANNELS = 4;
+
+	private final int width;
+	private final int height;
+	private final int[] pixels;
+
+	/**
+	 * Creates a rendered image.
+	 *
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 * @param pixels
+	 *            the pixels of the image in ARGB8888 format, row by row.
+	 */
+	public RenderedImage(int width, int height, int[] pixels) {
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	/**
+	 * Counts the pixels that differ from another image by more than a tolerance on any color channel.
+	 *
+	 * @param other
+	 *            the image to compare to.
+	 * @param channelTolerance
+	 *            the maximum difference allowed on a channel of a pixel.
+	 * @return the number of different pixels, or the number of pixels of this image if the sizes differ.
+	 */
+	public int countDifferentPixels(RenderedImage other, int channelTolerance) {
+		int[] pixels = this.pixels;
+		if (other.width != this.width || other.height != this.height) {
+			return pixels.length;
+		}
+
+		int[] otherPixels = other.pixels;
+		int differentPixels = 0;
+		for (int i = 0; i < pixels.length; i++) {
+			if (!isSimilar(pixels[i], otherPixels[i], channelTolerance)) {
+				differentPixels++;
+			}
+		}
+		return differentPixels;
+	}
+
+	private static boolean isSimilar(int pixel, int otherPixel, int channelTolerance) {
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			int shift = channel * BITS_PER_CHANNEL;
+			int value = (pixel >>> shift) & CHANNEL_MASK;
+			int otherValue = (otherPixel >>> shift) & CHANNEL_MASK;
+			if (Math.abs(value - otherValue) > channelTolerance) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of pixels of the image.
+	 *
+	 * @return the number of pixels.
+	 */
+	public int getPixelCount() {
+		return this.pixels.length;
+	}
+}
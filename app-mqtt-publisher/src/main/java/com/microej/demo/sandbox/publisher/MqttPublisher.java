@@ -14,18 +14,29 @@ import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
-import com.microej.demo.sandbox.sharedinterface.Observer;
-import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.DeliveryMonitor;
+import com.microej.demo.sandbox.sharedinterface.PowerStreamSubscriber;
+import com.microej.demo.sandbox.sharedinterface.PowerSubscription;
 
-import ej.service.ServiceFactory;
+import ej.annotation.Nullable;
 
 /**
  * The MqttPublisher class publishes the power readings from the PowerProvider into an MQTT queue.
+ * <p>
+ * The power samples are received from a stream subscription and sent by a dedicated thread. A new sample is requested
+ * only once the previous one has been sent, so that a slow uplink is never overloaded.
+ * <p>
+ * The received samples are checked by a {@link DeliveryMonitor}. The samples conflated by the subscription while a
+ * message is being sent are expected: they are counted as dropped, not as missed. The missed samples are the other
+ * gaps in the sequence numbers. The monitor is reset when a new subscription is set, so that the first sample of a
+ * restarted provider is not counted as out of order.
  */
-public class MqttPublisher implements Observer {
+public class MqttPublisher implements PowerStreamSubscriber, Runnable {
 
 	private static final Logger LOGGER = Logger.getLogger("MqttPublisher"); //$NON-NLS-1$
 	private static final Random RANDOM = new Random();
+	/** Age above which a received sample is stale, a bit more than the default sampling period. */
+	private static final int STALE_THRESHOLD = 5000;
 
 	/**
 	 * URL of the MQTT broker.
@@ -44,8 +55,17 @@ public class MqttPublisher implements Observer {
 
 	private final MqttClient client = new MqttClient(BROKER, PUBLISHER_ID);
 	private final PowerSubscriber powerSubscriber = new PowerSubscriber();
+	private final DeliveryMonitor deliveryMonitor = new DeliveryMonitor(STALE_THRESHOLD);
 	private int lastValue = -1;
 
+	@Nullable
+	private volatile PowerSubscription subscription;
+	// Guarded by this.
+	@Nullable
+	private Thread sender;
+	private boolean hasSample;
+	private int sample;
+
 	/**
 	 * Connects the MQTT client to the BROKER and subscribes to the TOPIC.
 	 */
@@ -59,12 +79,24 @@ public class MqttPublisher implements Observer {
 		} catch (MqttException e) {
 			LOGGER.log(Level.SEVERE, "MQTT ERROR", e); //$NON-NLS-1$
 		}
+
+		synchronized (this) {
+			Thread sender = new Thread(this, "MqttSender"); //$NON-NLS-1$
+			this.sender = sender;
+			sender.start();
+		}
 	}
 
 	/**
 	 * Disconnects the MQTT client.
 	 */
 	public void disconnect() {
+		synchronized (this) {
+			this.sender = null;
+			notifyAll();
+		}
+		LOGGER.info("Power samples delivery: " + this.deliveryMonitor); //$NON-NLS-1$
+
 		try {
 			this.client.disconnect();
 			this.client.close();
@@ -74,24 +106,90 @@ public class MqttPublisher implements Observer {
 		}
 	}
 
+	/**
+	 * Sets the subscription delivering the power samples and requests the first one.
+	 * <p>
+	 * The delivery statistics of the previous subscription are logged, and the delivery monitor is reset for the new
+	 * one.
+	 *
+	 * @param subscription
+	 *            the subscription, or <code>null</code> to cancel the current one.
+	 */
+	public void setSubscription(@Nullable PowerSubscription subscription) {
+		PowerSubscription previous = this.subscription;
+		this.subscription = subscription;
+		if (previous != null) {
+			previous.cancel();
+		}
+		if (subscription != null) {
+			DeliveryMonitor deliveryMonitor = this.deliveryMonitor;
+			if (deliveryMonitor.getReceivedCount() > 0) {
+				LOGGER.info("Power samples delivery: " + deliveryMonitor); //$NON-NLS-1$
+			}
+			deliveryMonitor.reset();
+			subscription.request(1);
+		}
+	}
+
+	/**
+	 * Gets the delivery statistics of the power samples received by the publisher.
+	 *
+	 * @return the delivery monitor.
+	 */
+	public DeliveryMonitor getDeliveryMonitor() {
+		return this.deliveryMonitor;
+	}
+
+	@Override
+	public void onNext(int power, long timestamp, int sequence, int dropped) {
+		this.deliveryMonitor.record(sequence, timestamp, dropped);
+		synchronized (this) {
+			// Called from the provider delivery thread: only hand the sample over to the sender thread.
+			this.sample = power;
+			this.hasSample = true;
+			notifyAll();
+		}
+	}
+
 	@Override
-	public void update() {
-		if (!MqttPublisher.this.client.isConnected()) {
-			LOGGER.severe("Client is not connected."); //$NON-NLS-1$
-			return;
+	public void run() {
+		Thread currentThread = Thread.currentThread();
+		while (true) {
+			int power;
+			synchronized (this) {
+				while (!this.hasSample && this.sender == currentThread) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						currentThread.interrupt();
+						return;
+					}
+				}
+				if (this.sender != currentThread) {
+					return;
+				}
+				this.hasSample = false;
+				power = this.sample;
+			}
+
+			publish(power);
+
+			PowerSubscription subscription = this.subscription;
+			if (subscription != null) {
+				subscription.request(1);
+			}
 		}
+	}
 
-		// Get current data from data provider
-		PowerService powerService = ServiceFactory.getService(PowerService.class);
-		if (powerService == null) {
-			LOGGER.severe("PowerManager service not found."); //$NON-NLS-1$
+	private void publish(int power) {
+		if (!this.client.isConnected()) {
+			LOGGER.severe("Client is not connected."); //$NON-NLS-1$
 			return;
 		}
 
-		int power = powerService.getPower();
 		if (power != this.lastValue) {
 			this.lastValue = power;
-			MqttPublisher.this.sendMessage(Float.toString(power));
+			sendMessage(Float.toString(power));
 		}
 	}
 
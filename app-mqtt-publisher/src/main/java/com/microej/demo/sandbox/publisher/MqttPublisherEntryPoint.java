@@ -8,32 +8,36 @@ package com.microej.demo.sandbox.publisher;
 
 import java.util.logging.Logger;
 
-import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.CallMetricsPublisher;
+import com.microej.demo.sandbox.sharedinterface.PowerStream;
+import com.microej.demo.sandbox.sharedinterface.PowerSubscription;
+import com.microej.demo.sandbox.sharedinterface.ServiceTracker;
 
 import ej.kf.FeatureEntryPoint;
-import ej.service.ServiceFactory;
 
 /**
  * EntryPoint for the MQTT publisher feature application.
+ * <p>
+ * The publisher subscribes to the power stream as soon as it is registered, whether the power provider is started
+ * before or after this application. Only the latest sample is kept while a message is being sent.
  */
-public class MqttPublisherEntryPoint implements FeatureEntryPoint {
+public class MqttPublisherEntryPoint implements FeatureEntryPoint, ServiceTracker.Listener<PowerStream> {
 
 	private static final Logger LOGGER = Logger.getLogger("MqttPublisherEntryPoint"); //$NON-NLS-1$
+	private static final String NAME = "MqttPublisher"; //$NON-NLS-1$
 
+	private final ServiceTracker<PowerStream> powerStreamTracker = new ServiceTracker<>(PowerStream.class, this);
 	private final MqttPublisher mqttPublisher = new MqttPublisher();
+	private final CallMetricsPublisher callMetricsPublisher = new CallMetricsPublisher(NAME);
 
 	@Override
 	public void start() {
 		this.mqttPublisher.connect();
 
-		// Obtain PowerService and add MQTT publisher as observer
-		PowerService powerService = ServiceFactory.getService(PowerService.class);
-		if (powerService == null) {
-			LOGGER.severe("Power service not found."); //$NON-NLS-1$
-			return;
-		}
+		this.callMetricsPublisher.open();
 
-		powerService.addObserver(this.mqttPublisher);
+		// Subscribe the MQTT publisher to the PowerStream once registered
+		this.powerStreamTracker.open();
 
 		LOGGER.info("started"); //$NON-NLS-1$
 	}
@@ -42,14 +46,28 @@ public class MqttPublisherEntryPoint implements FeatureEntryPoint {
 	public void stop() {
 		this.mqttPublisher.disconnect();
 
-		PowerService powerService = ServiceFactory.getService(PowerService.class);
-		if (powerService == null) {
-			LOGGER.severe("Power service not found."); //$NON-NLS-1$
+		this.callMetricsPublisher.close();
+
+		this.powerStreamTracker.close();
+
+		LOGGER.info("stopped"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void serviceAdded(PowerStream service) {
+		PowerSubscription subscription = service.subscribe(this.mqttPublisher, PowerStream.POLICY_CONFLATE, 1);
+		if (subscription == null) {
+			LOGGER.severe("Power stream subscription failed."); //$NON-NLS-1$
 			return;
 		}
-		powerService.removeObserver(this.mqttPublisher);
+		this.mqttPublisher.setSubscription(subscription);
+		LOGGER.info("Power stream bound"); //$NON-NLS-1$
+	}
 
-		LOGGER.info("stopped"); //$NON-NLS-1$
+	@Override
+	public void serviceRemoved(PowerStream service) {
+		this.mqttPublisher.setSubscription(null);
+		LOGGER.info("Power stream unbound"); //$NON-NLS-1$
 	}
 
 }
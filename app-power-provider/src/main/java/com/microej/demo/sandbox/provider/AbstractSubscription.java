@@ -0,0 +1,209 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerSubscription;
+import com.microej.demo.sandbox.sharedinterface.TrackedProxy;
+
+/**
+ * The AbstractSubscription class keeps the credits of a power stream subscriber.
+ * <p>
+ * The subclasses store the pending samples and deliver them. Their state is guarded by the subscription.
+ * <p>
+ * The subscription is cancelled once the subscriber feature is dead, when a sample is offered or delivered, so that
+ * the subscription of a dead feature without credit is not kept forever.
+ */
+public abstract class AbstractSubscription implements PowerSubscription {
+
+	/** Deadline of a subscription that has nothing to deliver. */
+	/* package */ static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final PowerStreamProvider provider;
+
+	// Guarded by this.
+	private long credits;
+	private int droppedCount;
+	private int reportedDroppedCount;
+	private boolean cancelled;
+
+	/**
+	 * Creates a subscription.
+	 *
+	 * @param provider
+	 *            the stream delivering the samples.
+	 */
+	protected AbstractSubscription(PowerStreamProvider provider) {
+		this.provider = provider;
+	}
+
+	@Override
+	public void request(int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException();
+		}
+		synchronized (this) {
+			if (this.cancelled) {
+				return;
+			}
+			this.credits = Math.min(this.credits + n, Long.MAX_VALUE / 2);
+		}
+		this.provider.wakeUp();
+	}
+
+	@Override
+	public void cancel() {
+		synchronized (this) {
+			this.cancelled = true;
+			clear();
+		}
+		this.provider.remove(this);
+	}
+
+	@Override
+	public synchronized int getDroppedCount() {
+		return this.droppedCount;
+	}
+
+	/**
+	 * Adds a sample to the pending ones.
+	 *
+	 * @param power
+	 *            the power sample.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param sequence
+	 *            the sequence number of the sample.
+	 * @return <code>true</code> if pending samples can be delivered now, <code>false</code> otherwise.
+	 */
+	/* package */ boolean offer(int power, long timestamp, int sequence) {
+		if (isSubscriberDead()) {
+			cancel();
+			return false;
+		}
+		synchronized (this) {
+			if (this.cancelled) {
+				return false;
+			}
+			add(power, timestamp, sequence);
+			return this.credits > 0 && isReady(timestamp);
+		}
+	}
+
+	/**
+	 * Delivers pending samples if the subscriber has a credit.
+	 *
+	 * @param now
+	 *            the current time, in milliseconds.
+	 * @return <code>true</code> if samples have been delivered, <code>false</code> otherwise.
+	 */
+	/* package */ boolean deliver(long now) {
+		synchronized (this) {
+			if (this.cancelled || this.credits == 0 || !isReady(now)) {
+				return false;
+			}
+			this.credits--;
+			take();
+		}
+
+		send();
+		if (isSubscriberDead()) {
+			cancel();
+			return false;
+		}
+		return true;
+	}
+
+	private boolean isSubscriberDead() {
+		Object subscriber = getSubscriber();
+		return subscriber instanceof TrackedProxy && ((TrackedProxy) subscriber).isTargetDead();
+	}
+
+	/**
+	 * Gets the time at which the pending samples must be delivered even if they are not complete.
+	 *
+	 * @return the deadline in milliseconds, or {@link #NO_DEADLINE}.
+	 */
+	/* package */ synchronized long getDeadline() {
+		if (this.cancelled || this.credits == 0) {
+			return NO_DEADLINE;
+		}
+		return computeDeadline();
+	}
+
+	/**
+	 * Counts dropped samples. Must be called with the lock held.
+	 *
+	 * @param count
+	 *            the number of dropped samples.
+	 */
+	protected void drop(int count) {
+		this.droppedCount += count;
+	}
+
+	/**
+	 * Gets the number of samples dropped since the previous call, to report them with the next delivery. Must be called
+	 * with the lock held.
+	 *
+	 * @return the number of samples dropped since the previous call.
+	 */
+	protected int takeDroppedCount() {
+		int droppedCount = this.droppedCount;
+		int dropped = droppedCount - this.reportedDroppedCount;
+		this.reportedDroppedCount = droppedCount;
+		return dropped;
+	}
+
+	/**
+	 * Adds a sample to the pending ones, dropping the oldest one if needed. Called with the lock held.
+	 *
+	 * @param power
+	 *            the power sample.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param sequence
+	 *            the sequence number of the sample.
+	 */
+	protected abstract void add(int power, long timestamp, int sequence);
+
+	/**
+	 * Checks whether the pending samples can be delivered. Called with the lock held.
+	 *
+	 * @param now
+	 *            the current time, in milliseconds.
+	 * @return <code>true</code> if a delivery is ready, <code>false</code> otherwise.
+	 */
+	protected abstract boolean isReady(long now);
+
+	/**
+	 * Moves the next delivery out of the pending samples. Called with the lock held.
+	 */
+	protected abstract void take();
+
+	/**
+	 * Sends the delivery taken by {@link #take()} to the subscriber. Called without lock, from the delivery thread.
+	 */
+	protected abstract void send();
+
+	/**
+	 * Gets the subscriber of this subscription.
+	 *
+	 * @return the subscriber, a proxy if it belongs to another feature.
+	 */
+	protected abstract Object getSubscriber();
+
+	/**
+	 * Computes the time at which the pending samples must be delivered. Called with the lock held.
+	 *
+	 * @return the deadline in milliseconds, or {@link #NO_DEADLINE}.
+	 */
+	protected abstract long computeDeadline();
+
+	/**
+	 * Discards the pending samples. Called with the lock held.
+	 */
+	protected abstract void clear();
+}
@@ -0,0 +1,126 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerBatchSubscriber;
+
+/**
+ * The BatchSubscription class delivers the power samples by batches to a batch subscriber.
+ * <p>
+ * A batch is delivered when it is full, or when its oldest sample has waited for the maximum latency. A credit allows
+ * the delivery of one batch. While the subscriber has no credit, a full batch keeps the latest samples: the oldest one
+ * is dropped when a sample is added.
+ * <p>
+ * The arrays given to the subscriber are allocated once and reused: the Kernel copies them to the subscriber feature.
+ */
+public class BatchSubscription extends AbstractSubscription {
+
+	private final PowerBatchSubscriber subscriber;
+	private final int maxLatency;
+
+	// Guarded by this.
+	private final int[] values;
+	private final long[] timestamps;
+	private final int[] sequences;
+	private int head;
+	private int size;
+
+	// Written by take() and read by send(), both called by the delivery thread.
+	private final int[] batchValues;
+	private final long[] batchTimestamps;
+	private final int[] batchSequences;
+	private int batchSize;
+
+	/**
+	 * Creates a subscription.
+	 *
+	 * @param provider
+	 *            the stream delivering the samples.
+	 * @param subscriber
+	 *            the subscriber.
+	 * @param batchSize
+	 *            the maximum number of samples of a batch.
+	 * @param maxLatency
+	 *            the maximum time a sample waits for its batch to be full, in milliseconds, or <code>0</code> to wait
+	 *            for full batches.
+	 */
+	public BatchSubscription(PowerStreamProvider provider, PowerBatchSubscriber subscriber, int batchSize,
+			int maxLatency) {
+		super(provider);
+		if (batchSize <= 0 || maxLatency < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.subscriber = subscriber;
+		this.maxLatency = maxLatency;
+		this.values = new int[batchSize];
+		this.timestamps = new long[batchSize];
+		this.sequences = new int[batchSize];
+		this.batchValues = new int[batchSize];
+		this.batchTimestamps = new long[batchSize];
+		this.batchSequences = new int[batchSize];
+	}
+
+	@Override
+	protected void add(int power, long timestamp, int sequence) {
+		int capacity = this.values.length;
+		if (this.size == capacity) {
+			this.head = (this.head + 1) % capacity;
+			drop(1);
+		} else {
+			this.size++;
+		}
+		int index = (this.head + this.size - 1) % capacity;
+		this.values[index] = power;
+		this.timestamps[index] = timestamp;
+		this.sequences[index] = sequence;
+	}
+
+	@Override
+	protected boolean isReady(long now) {
+		return this.size == this.values.length || (this.size > 0 && now >= computeDeadline());
+	}
+
+	@Override
+	protected void take() {
+		int capacity = this.values.length;
+		int size = this.size;
+		// Copy the ring buffer in order, in at most two parts.
+		int firstPart = Math.min(size, capacity - this.head);
+		System.arraycopy(this.values, this.head, this.batchValues, 0, firstPart);
+		System.arraycopy(this.timestamps, this.head, this.batchTimestamps, 0, firstPart);
+		System.arraycopy(this.sequences, this.head, this.batchSequences, 0, firstPart);
+		System.arraycopy(this.values, 0, this.batchValues, firstPart, size - firstPart);
+		System.arraycopy(this.timestamps, 0, this.batchTimestamps, firstPart, size - firstPart);
+		System.arraycopy(this.sequences, 0, this.batchSequences, firstPart, size - firstPart);
+		this.batchSize = size;
+		this.head = 0;
+		this.size = 0;
+	}
+
+	@Override
+	protected void send() {
+		this.subscriber.onBatch(this.batchValues, this.batchTimestamps, this.batchSequences, this.batchSize);
+	}
+
+	@Override
+	protected Object getSubscriber() {
+		return this.subscriber;
+	}
+
+	@Override
+	protected long computeDeadline() {
+		if (this.size == 0 || this.maxLatency == 0) {
+			return NO_DEADLINE;
+		}
+		return this.timestamps[this.head] + this.maxLatency;
+	}
+
+	@Override
+	protected void clear() {
+		this.size = 0;
+	}
+}
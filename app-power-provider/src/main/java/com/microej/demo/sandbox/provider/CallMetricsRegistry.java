@@ -0,0 +1,61 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.CallMetricsDirectory;
+import com.microej.demo.sandbox.sharedinterface.CallMetricsSource;
+import com.microej.demo.sandbox.sharedinterface.TrackedProxy;
+
+import ej.annotation.Nullable;
+import ej.basictool.ArrayTools;
+
+/**
+ * The CallMetricsRegistry class keeps the call metrics published by the features.
+ * <p>
+ * The sources of the stopped features are removed when a source is added and when the sources are counted, so that a
+ * feature stopped without removing its source is not kept. The indexes of the sources only change on these calls.
+ */
+public class CallMetricsRegistry implements CallMetricsDirectory {
+
+	private CallMetricsSource[] sources = new CallMetricsSource[0];
+
+	@Override
+	public synchronized void addSource(CallMetricsSource source) {
+		removeDeadSources();
+		CallMetricsSource[] sources = this.sources;
+		if (!ArrayTools.contains(sources, source)) {
+			this.sources = ArrayTools.add(sources, source);
+		}
+	}
+
+	@Override
+	public synchronized void removeSource(CallMetricsSource source) {
+		this.sources = ArrayTools.remove(this.sources, source);
+	}
+
+	@Override
+	public synchronized int getSourceCount() {
+		removeDeadSources();
+		return this.sources.length;
+	}
+
+	@Override
+	@Nullable
+	public synchronized CallMetricsSource getSource(int index) {
+		CallMetricsSource[] sources = this.sources;
+		return index >= 0 && index < sources.length ? sources[index] : null;
+	}
+
+	private void removeDeadSources() {
+		for (CallMetricsSource source : this.sources) {
+			if (source instanceof TrackedProxy && ((TrackedProxy) source).isTargetDead()) {
+				this.sources = ArrayTools.remove(this.sources, source);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+/**
+ * The EnergyAccumulator class integrates the power samples over time to compute the cumulative energy.
+ * <p>
+ * The energy between two samples is the area of the trapezoid defined by their values and timestamps. It is counted
+ * in millijoules (Watt x millisecond), the rounding remainder being carried to the next sample, so that no energy is
+ * lost however short the sampling period. The energy consumed before the first sample, for example while the provider
+ * is stopped, is not counted.
+ * <p>
+ * The samples must be added by a single thread, the energy can be read by any thread.
+ */
+public class EnergyAccumulator {
+
+	/** Number of millijoules in a milliwatt-hour. */
+	public static final int MILLIJOULES_PER_MILLIWATT_HOUR = 3600;
+
+	private volatile long energy;
+
+	// Only accessed by the sampler thread.
+	private boolean started;
+	private int lastPower;
+	private long lastTimestamp;
+	private long remainder;
+
+	/**
+	 * Adds a power sample.
+	 *
+	 * @param power
+	 *            the power value in Watt.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 */
+	public void add(int power, long timestamp) {
+		if (this.started) {
+			long elapsed = timestamp - this.lastTimestamp;
+			if (elapsed > 0) {
+				// Twice the area of the trapezoid.
+				long area = (long) (this.lastPower + power) * elapsed + this.remainder;
+				this.energy += area / 2;
+				this.remainder = area % 2;
+			}
+		}
+		this.started = true;
+		this.lastPower = power;
+		this.lastTimestamp = timestamp;
+	}
+
+	/**
+	 * Restarts the integration from an energy: the energy between the last sample and the next one is not counted.
+	 * <p>
+	 * Must be called before adding samples from another thread.
+	 *
+	 * @param energy
+	 *            the energy in millijoules, usually recovered from the last checkpoint.
+	 */
+	public void restart(long energy) {
+		this.started = false;
+		this.remainder = 0;
+		this.energy = energy;
+	}
+
+	/**
+	 * Gets the cumulative energy.
+	 *
+	 * @return the energy in millijoules.
+	 */
+	public long getEnergy() {
+		return this.energy;
+	}
+}
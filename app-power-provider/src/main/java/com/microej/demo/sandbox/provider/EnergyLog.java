@@ -0,0 +1,177 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * The EnergyLog class checkpoints the cumulative energy in an append-only log file.
+ * <p>
+ * Each checkpoint appends a fixed-size record holding the energy and its checksum, so that the storage is written
+ * sequentially and no block is rewritten for each checkpoint. Once the log holds the maximum number of records, it is
+ * compacted: the latest record is written in a new file that replaces the log.
+ * <p>
+ * The recovery only reads the last record, found from the file length. A record torn by a power loss fails its
+ * checksum and the previous one is read instead. The log is then compacted to be aligned on the records again.
+ */
+public class EnergyLog {
+
+	private static final Logger LOGGER = Logger.getLogger("EnergyLog"); //$NON-NLS-1$
+
+	private static final String LOG_FILE = "energy.log"; //$NON-NLS-1$
+	private static final String COMPACTED_FILE = "energy.log.tmp"; //$NON-NLS-1$
+	/** Size of a record: the energy (long) followed by its checksum (int). */
+	private static final int RECORD_SIZE = 12;
+	private static final int CHECKSUM_SEED = 0x454E5247;
+
+	private final File logFile;
+	private final File compactedFile;
+	private final int maxRecords;
+
+	private int recordCount;
+	private long lastEnergy;
+
+	/**
+	 * Creates an energy log.
+	 *
+	 * @param directory
+	 *            the directory of the log files.
+	 * @param maxRecords
+	 *            the number of records after which the log is compacted.
+	 */
+	public EnergyLog(File directory, int maxRecords) {
+		if (maxRecords <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.logFile = new File(directory, LOG_FILE);
+		this.compactedFile = new File(directory, COMPACTED_FILE);
+		this.maxRecords = maxRecords;
+	}
+
+	/**
+	 * Reads the last checkpoint.
+	 *
+	 * @return the last checkpointed energy in millijoules, or <code>0</code> if there is none.
+	 * @throws IOException
+	 *             if the log cannot be read.
+	 */
+	public long recover() throws IOException {
+		File logFile = this.logFile;
+		File compactedFile = this.compactedFile;
+		if (!logFile.exists()) {
+			// The compaction may have been interrupted between the deletion of the log and its replacement.
+			if (!compactedFile.exists() || !compactedFile.renameTo(logFile)) {
+				File directory = logFile.getParentFile();
+				if (directory != null) {
+					directory.mkdirs();
+				}
+				this.recordCount = 0;
+				this.lastEnergy = 0;
+				return 0;
+			}
+		} else if (compactedFile.exists()) {
+			// The compaction has been interrupted before the deletion of the log, which is still complete.
+			compactedFile.delete();
+		}
+
+		long length = logFile.length();
+		int recordCount = (int) (length / RECORD_SIZE);
+		boolean aligned = length % RECORD_SIZE == 0;
+		for (int record = recordCount - 1; record >= 0; record--) {
+			DataInputStream input = new DataInputStream(new FileInputStream(logFile));
+			try {
+				Streams.skipFully(input, (long) record * RECORD_SIZE);
+				long energy = input.readLong();
+				if (input.readInt() == checksum(energy)) {
+					this.lastEnergy = energy;
+					this.recordCount = recordCount;
+					if (!aligned || record != recordCount - 1) {
+						LOGGER.warning("Torn energy checkpoint, log compacted"); //$NON-NLS-1$
+						compact(energy);
+					}
+					return energy;
+				}
+			} finally {
+				input.close();
+			}
+			aligned = false;
+		}
+
+		// No valid record: start again from an empty log.
+		if (length > 0) {
+			LOGGER.warning("No valid energy checkpoint"); //$NON-NLS-1$
+		}
+		compact(0);
+		return 0;
+	}
+
+	/**
+	 * Appends a checkpoint, if the energy has changed since the last one.
+	 * <p>
+	 * The log is compacted once it holds the maximum number of records.
+	 *
+	 * @param energy
+	 *            the energy in millijoules.
+	 * @throws IOException
+	 *             if the log cannot be written.
+	 */
+	public void append(long energy) throws IOException {
+		if (energy == this.lastEnergy && this.recordCount > 0) {
+			// Spare the storage when nothing has been consumed.
+			return;
+		}
+		if (this.recordCount >= this.maxRecords) {
+			compact(energy);
+			return;
+		}
+
+		write(this.logFile, true, energy);
+		this.recordCount++;
+		this.lastEnergy = energy;
+	}
+
+	/**
+	 * Gets the number of records of the log.
+	 *
+	 * @return the record count.
+	 */
+	public int getRecordCount() {
+		return this.recordCount;
+	}
+
+	private void compact(long energy) throws IOException {
+		File compactedFile = this.compactedFile;
+		write(compactedFile, false, energy);
+		// The log is kept until the compacted one is complete.
+		File logFile = this.logFile;
+		if ((logFile.exists() && !logFile.delete()) || !compactedFile.renameTo(logFile)) {
+			throw new IOException("Cannot replace " + logFile); //$NON-NLS-1$
+		}
+		this.recordCount = 1;
+		this.lastEnergy = energy;
+	}
+
+	private static void write(File file, boolean append, long energy) throws IOException {
+		DataOutputStream output = new DataOutputStream(new FileOutputStream(file, append));
+		try {
+			output.writeLong(energy);
+			output.writeInt(checksum(energy));
+		} finally {
+			output.close();
+		}
+	}
+
+	private static int checksum(long energy) {
+		return CHECKSUM_SEED ^ (int) energy ^ (int) (energy >>> 32) * 31;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The HistoryBlock class is a compressed block of power samples of the history.
+ * <p>
+ * The samples are delta-encoded: the first timestamp and value are followed by the differences with the previous
+ * sample, all written as variable-length integers. With a regular sampling period, a sample takes about 4 bytes
+ * instead of 12.
+ * <p>
+ * The timestamps of a block must not decrease.
+ */
+public class HistoryBlock {
+
+	private static final int VARINT_BITS = 7;
+	private static final int VARINT_MASK = 0x7F;
+	private static final int VARINT_CONTINUATION = 0x80;
+
+	private final byte[] data;
+	private final long firstTimestamp;
+	private final long lastTimestamp;
+
+	/**
+	 * Creates a block from its encoded data.
+	 *
+	 * @param data
+	 *            the encoded samples.
+	 * @param firstTimestamp
+	 *            the timestamp of the first sample.
+	 * @param lastTimestamp
+	 *            the timestamp of the last sample.
+	 */
+	public HistoryBlock(byte[] data, long firstTimestamp, long lastTimestamp) {
+		this.data = data;
+		this.firstTimestamp = firstTimestamp;
+		this.lastTimestamp = lastTimestamp;
+	}
+
+	/**
+	 * Encodes samples in a block.
+	 *
+	 * @param timestamps
+	 *            the timestamps of the samples.
+	 * @param values
+	 *            the power values of the samples.
+	 * @param count
+	 *            the number of samples, at least one.
+	 * @return the block.
+	 */
+	public static HistoryBlock encode(long[] timestamps, int[] values, int count) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(count * 4 + 16);
+		writeVarLong(output, count);
+		writeVarLong(output, timestamps[0]);
+		writeVarLong(output, zigzag(values[0]));
+		for (int i = 1; i < count; i++) {
+			writeVarLong(output, timestamps[i] - timestamps[i - 1]);
+			writeVarLong(output, zigzag(values[i] - values[i - 1]));
+		}
+		return new HistoryBlock(output.toByteArray(), timestamps[0], timestamps[count - 1]);
+	}
+
+	/**
+	 * Decodes the samples of this block that are in a time range.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive.
+	 * @param to
+	 *            the end of the range, inclusive.
+	 * @param result
+	 *            the consumer of the samples.
+	 */
+	public void decode(long from, long to, HistoryConsumer result) {
+		byte[] data = this.data;
+		int[] position = { 0 };
+		int count = (int) readVarLong(data, position);
+		long timestamp = 0;
+		long value = 0;
+		for (int i = 0; i < count; i++) {
+			timestamp += readVarLong(data, position);
+			value += unzigzag(readVarLong(data, position));
+			if (timestamp > to || result.isFull()) {
+				return;
+			}
+			if (timestamp >= from) {
+				result.add(timestamp, (int) value);
+			}
+		}
+	}
+
+	/**
+	 * Gets the encoded samples.
+	 *
+	 * @return the data, not to be modified.
+	 */
+	public byte[] getData() {
+		return this.data;
+	}
+
+	/**
+	 * Gets the timestamp of the first sample.
+	 *
+	 * @return the first timestamp.
+	 */
+	public long getFirstTimestamp() {
+		return this.firstTimestamp;
+	}
+
+	/**
+	 * Gets the timestamp of the last sample.
+	 *
+	 * @return the last timestamp.
+	 */
+	public long getLastTimestamp() {
+		return this.lastTimestamp;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream output, long value) {
+		long remaining = value;
+		while ((remaining & ~VARINT_MASK) != 0) {
+			output.write((int) (remaining & VARINT_MASK) | VARINT_CONTINUATION);
+			remaining >>>= VARINT_BITS;
+		}
+		output.write((int) remaining);
+	}
+
+	private static long readVarLong(byte[] data, int[] position) {
+		int index = position[0];
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = data[index++];
+			value |= (long) (b & VARINT_MASK) << shift;
+			shift += VARINT_BITS;
+		} while ((b & VARINT_CONTINUATION) != 0);
+		position[0] = index;
+		return value;
+	}
+}
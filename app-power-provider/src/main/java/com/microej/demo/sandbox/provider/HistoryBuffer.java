@@ -0,0 +1,71 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * The HistoryBuffer class collects the samples read from the history, up to a maximum count.
+ * <p>
+ * The samples are stored in records of {@link PowerService#HISTORY_RECORD_SIZE} elements.
+ */
+public class HistoryBuffer implements HistoryConsumer {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int maxCount;
+	private long[] records;
+	private int count;
+
+	/**
+	 * Creates a buffer.
+	 *
+	 * @param maxCount
+	 *            the maximum number of samples.
+	 */
+	public HistoryBuffer(int maxCount) {
+		this.maxCount = Math.max(maxCount, 0);
+		this.records = new long[Math.min(this.maxCount, INITIAL_CAPACITY) * PowerService.HISTORY_RECORD_SIZE];
+	}
+
+	@Override
+	public void add(long timestamp, int power) {
+		int offset = this.count * PowerService.HISTORY_RECORD_SIZE;
+		long[] records = this.records;
+		if (offset == records.length) {
+			int capacity = Math.min(this.count * 2, this.maxCount);
+			long[] newRecords = new long[capacity * PowerService.HISTORY_RECORD_SIZE];
+			System.arraycopy(records, 0, newRecords, 0, offset);
+			records = newRecords;
+			this.records = records;
+		}
+		records[offset + PowerService.HISTORY_TIMESTAMP] = timestamp;
+		records[offset + PowerService.HISTORY_POWER] = power;
+		this.count++;
+	}
+
+	@Override
+	public boolean isFull() {
+		return this.count >= this.maxCount;
+	}
+
+	/**
+	 * Gets the collected samples.
+	 *
+	 * @return the records of the samples, oldest first.
+	 */
+	public long[] toArray() {
+		long[] records = this.records;
+		int length = this.count * PowerService.HISTORY_RECORD_SIZE;
+		if (length == records.length) {
+			return records;
+		}
+		long[] array = new long[length];
+		System.arraycopy(records, 0, array, 0, length);
+		return array;
+	}
+}
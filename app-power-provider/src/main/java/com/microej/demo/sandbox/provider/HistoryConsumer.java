@@ -0,0 +1,30 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+/**
+ * Receives the samples read from the history, oldest first.
+ */
+public interface HistoryConsumer {
+
+	/**
+	 * Gets whether the consumer needs more samples.
+	 *
+	 * @return <code>true</code> if the reading can stop, <code>false</code> otherwise.
+	 */
+	boolean isFull();
+
+	/**
+	 * Receives a sample.
+	 *
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param power
+	 *            the power value.
+	 */
+	void add(long timestamp, int power);
+}
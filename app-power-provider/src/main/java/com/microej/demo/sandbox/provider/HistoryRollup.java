@@ -0,0 +1,144 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+/**
+ * The HistoryRollup class keeps the minimum and maximum power samples of each interval of the recent history.
+ * <p>
+ * The rollup is computed in memory as the samples are added, from the start of the provider. The intervals are kept in
+ * a ring buffer: once it is full, the oldest interval is dropped when a new one starts.
+ */
+public class HistoryRollup {
+
+	private final long interval;
+
+	// Guarded by this.
+	private final long[] starts;
+	private final int[] minValues;
+	private final int[] minOffsets;
+	private final int[] maxValues;
+	private final int[] maxOffsets;
+	private int head;
+	private int size;
+
+	/**
+	 * Creates a rollup.
+	 *
+	 * @param interval
+	 *            the duration of an interval, in milliseconds.
+	 * @param capacity
+	 *            the number of intervals kept.
+	 */
+	public HistoryRollup(long interval, int capacity) {
+		if (interval <= 0 || interval > Integer.MAX_VALUE || capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.interval = interval;
+		this.starts = new long[capacity];
+		this.minValues = new int[capacity];
+		this.minOffsets = new int[capacity];
+		this.maxValues = new int[capacity];
+		this.maxOffsets = new int[capacity];
+	}
+
+	/**
+	 * Adds a sample. The timestamps must not decrease.
+	 *
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param power
+	 *            the power value.
+	 */
+	public synchronized void add(long timestamp, int power) {
+		long start = timestamp - timestamp % this.interval;
+		int offset = (int) (timestamp - start);
+		int capacity = this.starts.length;
+		int size = this.size;
+		int index = (this.head + size - 1) % capacity;
+		if (size > 0 && this.starts[index] == start) {
+			if (power < this.minValues[index]) {
+				this.minValues[index] = power;
+				this.minOffsets[index] = offset;
+			}
+			if (power > this.maxValues[index]) {
+				this.maxValues[index] = power;
+				this.maxOffsets[index] = offset;
+			}
+			return;
+		}
+
+		if (size == capacity) {
+			this.head = (this.head + 1) % capacity;
+		} else {
+			this.size = size + 1;
+		}
+		index = (this.head + this.size - 1) % capacity;
+		this.starts[index] = start;
+		this.minValues[index] = power;
+		this.minOffsets[index] = offset;
+		this.maxValues[index] = power;
+		this.maxOffsets[index] = offset;
+	}
+
+	/**
+	 * Gets the duration of an interval.
+	 *
+	 * @return the interval in milliseconds.
+	 */
+	public long getInterval() {
+		return this.interval;
+	}
+
+	/**
+	 * Gets whether the rollup holds the samples since a time.
+	 *
+	 * @param from
+	 *            the time, in milliseconds.
+	 * @return <code>true</code> if the oldest interval starts at or before the time, <code>false</code> otherwise.
+	 */
+	public synchronized boolean covers(long from) {
+		return this.size > 0 && this.starts[this.head] <= from;
+	}
+
+	/**
+	 * Reads the minimum and maximum samples of the intervals of a time range, in time order.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds.
+	 * @param consumer
+	 *            the consumer of the samples.
+	 */
+	public synchronized void read(long from, long to, HistoryConsumer consumer) {
+		int capacity = this.starts.length;
+		for (int i = 0; i < this.size && !consumer.isFull(); i++) {
+			int index = (this.head + i) % capacity;
+			long start = this.starts[index];
+			if (start > to) {
+				return;
+			}
+			long minTimestamp = start + this.minOffsets[index];
+			long maxTimestamp = start + this.maxOffsets[index];
+			if (minTimestamp <= maxTimestamp) {
+				add(minTimestamp, this.minValues[index], from, to, consumer);
+				if (maxTimestamp != minTimestamp) {
+					add(maxTimestamp, this.maxValues[index], from, to, consumer);
+				}
+			} else {
+				add(maxTimestamp, this.maxValues[index], from, to, consumer);
+				add(minTimestamp, this.minValues[index], from, to, consumer);
+			}
+		}
+	}
+
+	private static void add(long timestamp, int power, long from, long to, HistoryConsumer consumer) {
+		if (timestamp >= from && timestamp <= to) {
+			consumer.add(timestamp, power);
+		}
+	}
+}
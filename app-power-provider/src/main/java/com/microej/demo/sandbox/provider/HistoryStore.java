@@ -0,0 +1,609 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import ej.annotation.Nullable;
+import ej.bon.Util;
+
+/**
+ * The HistoryStore class stores the history of the power samples in segment files.
+ * <p>
+ * The samples are gathered in blocks of a fixed number of samples, compressed by {@link HistoryBlock}, and a segment
+ * holds a fixed number of blocks. A segment is made of two files named after the time of its first sample:
+ * <ul>
+ * <li>the <code>.seg</code> file, to which the blocks are appended,</li>
+ * <li>the <code>.idx</code> file, a sparse index with one entry per block: its first and last timestamps, its offset
+ * and its length.</li>
+ * </ul>
+ * A range query reads the small indexes of the segments overlapping the range, then skips directly to the blocks
+ * overlapping it.
+ * <p>
+ * The samples are added in memory by the sampler thread. The full blocks are written by {@link #flush()}, usually
+ * called from another thread, with a single write per file. The segments older than the retention are deleted when a
+ * segment is started.
+ * <p>
+ * A block is written before its index entry, so that a block torn by a power loss is not indexed. The blocks that
+ * were not written yet are lost. After a restart, the samples are written in a new segment, and the unindexed data of
+ * the previous one is never read. The segments without any indexed block are deleted.
+ * <p>
+ * The history can be read downsampled to a number of points, for example the width of a chart. The minimum and maximum
+ * samples of each bucket are then computed from the coarsest {@link HistoryRollup} that is fine enough and holds the
+ * whole range, or from the segments otherwise.
+ * <p>
+ * The timestamps are wall-clock times, so that the history is kept across reboots. A timestamp earlier than the
+ * previous one, for example after a clock adjustment, is replaced by the previous one. After a restart, the previous
+ * one is the last stored timestamp: the samples are always in time order across the segments.
+ * <p>
+ * A segment is named after the time of its first sample, or after the start of the previous segment plus one if its
+ * first sample is not later, so that the names are unique. The range queries use the first timestamp of the segments
+ * read from their index.
+ */
+public class HistoryStore {
+
+	private static final Logger LOGGER = Logger.getLogger("HistoryStore"); //$NON-NLS-1$
+
+	private static final String SEGMENT_EXTENSION = ".seg"; //$NON-NLS-1$
+	private static final String INDEX_EXTENSION = ".idx"; //$NON-NLS-1$
+	/** Size of an index entry: first and last timestamps (long), offset and length of the block (int). */
+	private static final int INDEX_ENTRY_SIZE = 24;
+	/** Number of blocks kept in memory while the storage is not writable, the oldest one is dropped. */
+	private static final int MAX_PENDING_BLOCKS = 16;
+
+	private final File directory;
+	private final int blocksPerSegment;
+	private final long retention;
+	/** Rollups of the recent history, from the finest to the coarsest. */
+	private final HistoryRollup[] rollups;
+
+	// Guarded by this.
+	private final long[] timestamps;
+	private final int[] values;
+	private int size;
+	private long lastTimestamp = Long.MIN_VALUE;
+	private final HistoryBlock[] pendingBlocks = new HistoryBlock[MAX_PENDING_BLOCKS];
+	private int pendingHead;
+	private int pendingCount;
+	private int droppedBlockCount;
+
+	/** Lock of the files, taken before the lock of the store. */
+	private final Object fileLock = new Object();
+	// Guarded by fileLock.
+	/** Starts of the segments, that name their files, in ascending order. */
+	private long[] segmentStarts = new long[0];
+	/** Timestamps of the first sample of the segments, not later than their start. */
+	private long[] segmentFirstTimestamps = new long[0];
+	private int segmentCount;
+	/** Number of blocks of the last segment, or -1 if a new segment must be started. */
+	private int segmentBlockCount = -1;
+	/** Whether the last write failed, possibly leaving a torn index entry. */
+	private boolean writeFailed;
+
+	/**
+	 * Creates a history store.
+	 *
+	 * @param directory
+	 *            the directory of the segment files.
+	 * @param blockSize
+	 *            the number of samples of a block.
+	 * @param blocksPerSegment
+	 *            the number of blocks of a segment.
+	 * @param retention
+	 *            the duration after which a segment is deleted, in milliseconds.
+	 * @param rollups
+	 *            the rollups to update with the samples, from the finest to the coarsest.
+	 */
+	public HistoryStore(File directory, int blockSize, int blocksPerSegment, long retention,
+			HistoryRollup[] rollups) {
+		if (blockSize <= 0 || blocksPerSegment <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.directory = directory;
+		this.blocksPerSegment = blocksPerSegment;
+		this.retention = retention;
+		this.rollups = rollups;
+		this.timestamps = new long[blockSize];
+		this.values = new int[blockSize];
+	}
+
+	/**
+	 * Lists the existing segments and deletes the empty ones and the ones older than the retention.
+	 * <p>
+	 * The next samples are written in a new segment, and are not earlier than the last stored one.
+	 */
+	public void open() {
+		synchronized (this.fileLock) {
+			this.segmentStarts = new long[0];
+			this.segmentFirstTimestamps = new long[0];
+			this.segmentCount = 0;
+			this.segmentBlockCount = -1;
+			this.writeFailed = false;
+
+			File directory = this.directory;
+			String[] names = directory.list();
+			if (names == null) {
+				directory.mkdirs();
+				return;
+			}
+			for (String name : names) {
+				if (name.endsWith(SEGMENT_EXTENSION)) {
+					long start;
+					try {
+						start = Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+					} catch (NumberFormatException e) {
+						// Not a segment.
+						continue;
+					}
+					try {
+						long[] entry = readIndexEntry(start, 0);
+						if (entry == null) {
+							// Left by a failed write.
+							deleteSegment(start);
+						} else {
+							addSegment(start, entry[0]);
+						}
+					} catch (IOException e) {
+						LOGGER.warning("Cannot read the history segment " + start + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+			}
+			deleteExpiredSegments();
+			recoverLastTimestamp();
+		}
+	}
+
+	/**
+	 * Adds a sample. Must only be called by the sampler thread.
+	 *
+	 * @param power
+	 *            the power value.
+	 * @param timestamp
+	 *            the wall-clock time of the sample, in milliseconds.
+	 * @return <code>true</code> if a block is ready to be written by {@link #flush()}, <code>false</code> otherwise.
+	 */
+	public synchronized boolean append(int power, long timestamp) {
+		long time = Math.max(timestamp, this.lastTimestamp);
+		this.lastTimestamp = time;
+		for (HistoryRollup rollup : this.rollups) {
+			rollup.add(time, power);
+		}
+		int size = this.size;
+		this.timestamps[size] = time;
+		this.values[size] = power;
+		size++;
+		if (size < this.values.length) {
+			this.size = size;
+			return false;
+		}
+		this.size = 0;
+		enqueue(HistoryBlock.encode(this.timestamps, this.values, size));
+		return true;
+	}
+
+	/**
+	 * Writes the full blocks.
+	 *
+	 * @throws IOException
+	 *             if a block cannot be written, it is then written by the next flush.
+	 */
+	public void flush() throws IOException {
+		synchronized (this.fileLock) {
+			while (true) {
+				HistoryBlock block;
+				synchronized (this) {
+					if (this.pendingCount == 0) {
+						return;
+					}
+					block = this.pendingBlocks[this.pendingHead];
+				}
+				write(block);
+				synchronized (this) {
+					// The block may have been dropped by enqueue() while it was written.
+					if (this.pendingBlocks[this.pendingHead] == block) {
+						this.pendingBlocks[this.pendingHead] = null;
+						this.pendingHead = (this.pendingHead + 1) % MAX_PENDING_BLOCKS;
+						this.pendingCount--;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes all the samples, including the incomplete block. The next samples are written in a new segment.
+	 *
+	 * @throws IOException
+	 *             if a block cannot be written.
+	 */
+	public void close() throws IOException {
+		synchronized (this.fileLock) {
+			synchronized (this) {
+				int size = this.size;
+				if (size > 0) {
+					this.size = 0;
+					enqueue(HistoryBlock.encode(this.timestamps, this.values, size));
+				}
+			}
+			flush();
+			this.segmentBlockCount = -1;
+		}
+	}
+
+	/**
+	 * Reads the samples of a time range.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds.
+	 * @param maxCount
+	 *            the maximum number of samples to read.
+	 * @return the first samples of the range, oldest first, stored in records as defined by the
+	 *         <code>PowerService.HISTORY_*</code> offsets.
+	 * @throws IOException
+	 *             if a segment cannot be read.
+	 */
+	public long[] read(long from, long to, int maxCount) throws IOException {
+		HistoryBuffer result = new HistoryBuffer(maxCount);
+		read(from, to, result);
+		return result.toArray();
+	}
+
+	/**
+	 * Reads the samples of a time range downsampled to a number of points.
+	 * <p>
+	 * The range is divided in buckets of equal duration, each one giving its minimum and maximum samples.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds.
+	 * @param pointCount
+	 *            the maximum number of samples to read, two per bucket.
+	 * @return the samples, oldest first, stored in records as defined by the <code>PowerService.HISTORY_*</code>
+	 *         offsets.
+	 * @throws IOException
+	 *             if a segment cannot be read.
+	 */
+	public long[] readDownsampled(long from, long to, int pointCount) throws IOException {
+		long end;
+		synchronized (this) {
+			// Do not spend buckets after the latest sample.
+			end = Math.min(to, this.lastTimestamp);
+		}
+		int bucketCount = pointCount / 2;
+		if (bucketCount <= 0 || from > end) {
+			return new long[0];
+		}
+
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(from, end, bucketCount);
+		HistoryRollup rollup = null;
+		long bucketWidth = downsampler.getBucketWidth();
+		for (HistoryRollup candidate : this.rollups) {
+			if (candidate.getInterval() <= bucketWidth && candidate.covers(from)) {
+				rollup = candidate;
+			}
+		}
+		if (rollup != null) {
+			rollup.read(from, end, downsampler);
+		} else {
+			read(from, end, downsampler);
+		}
+		return downsampler.toArray();
+	}
+
+	/**
+	 * Reads the samples of a time range.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds.
+	 * @param result
+	 *            the consumer of the samples, oldest first.
+	 * @throws IOException
+	 *             if a segment cannot be read.
+	 */
+	public void read(long from, long to, HistoryConsumer result) throws IOException {
+		synchronized (this.fileLock) {
+			long[] segmentStarts = this.segmentStarts;
+			long[] firstTimestamps = this.segmentFirstTimestamps;
+			int segmentCount = this.segmentCount;
+			for (int i = 0; i < segmentCount && !result.isFull(); i++) {
+				if (firstTimestamps[i] > to) {
+					break;
+				}
+				// The samples of a segment are not later than the first sample of the next one.
+				if (i + 1 == segmentCount || firstTimestamps[i + 1] >= from) {
+					readSegment(segmentStarts[i], from, to, result);
+				}
+			}
+
+			// Then the samples not written yet, the lock of the files prevents them from being written meanwhile. They
+			// are copied so that they are decoded without delaying the sampler.
+			HistoryBlock[] blocks;
+			long[] timestamps;
+			int[] values;
+			int size;
+			synchronized (this) {
+				int pendingCount = this.pendingCount;
+				blocks = new HistoryBlock[pendingCount];
+				for (int i = 0; i < pendingCount; i++) {
+					blocks[i] = this.pendingBlocks[(this.pendingHead + i) % MAX_PENDING_BLOCKS];
+				}
+				size = this.size;
+				timestamps = new long[size];
+				values = new int[size];
+				System.arraycopy(this.timestamps, 0, timestamps, 0, size);
+				System.arraycopy(this.values, 0, values, 0, size);
+			}
+			for (int i = 0; i < blocks.length && !result.isFull(); i++) {
+				HistoryBlock block = blocks[i];
+				if (block.getLastTimestamp() >= from && block.getFirstTimestamp() <= to) {
+					block.decode(from, to, result);
+				}
+			}
+			for (int i = 0; i < size && !result.isFull(); i++) {
+				long timestamp = timestamps[i];
+				if (timestamp >= from && timestamp <= to) {
+					result.add(timestamp, values[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of blocks dropped because the storage could not be written.
+	 *
+	 * @return the dropped block count.
+	 */
+	public synchronized int getDroppedBlockCount() {
+		return this.droppedBlockCount;
+	}
+
+	/**
+	 * Adds a block to the ones to write. Must be called with the lock held.
+	 */
+	private void enqueue(HistoryBlock block) {
+		if (this.pendingCount == MAX_PENDING_BLOCKS) {
+			this.pendingBlocks[this.pendingHead] = null;
+			this.pendingHead = (this.pendingHead + 1) % MAX_PENDING_BLOCKS;
+			this.pendingCount--;
+			this.droppedBlockCount++;
+			LOGGER.warning("History block dropped"); //$NON-NLS-1$
+		}
+		this.pendingBlocks[(this.pendingHead + this.pendingCount) % MAX_PENDING_BLOCKS] = block;
+		this.pendingCount++;
+	}
+
+	/**
+	 * Writes a block in the last segment, or in a new one. Must be called with the lock of the files held.
+	 * <p>
+	 * The offset of the block is the length of the segment file, so that the bytes of a partially written block do not
+	 * shift the next blocks. If the block cannot be written, it is written again in the same segment by the next
+	 * attempt, unless its index entry has been torn: a torn index entry is only ignored when it is the last one, so the
+	 * block is then written in a new segment.
+	 */
+	private void write(HistoryBlock block) throws IOException {
+		if (this.segmentBlockCount < 0 || this.segmentBlockCount >= this.blocksPerSegment
+				|| (this.writeFailed && isIndexTorn(this.segmentStarts[this.segmentCount - 1]))) {
+			startSegment(block.getFirstTimestamp());
+		}
+		this.writeFailed = false;
+		long start = this.segmentStarts[this.segmentCount - 1];
+		byte[] data = block.getData();
+
+		try {
+			File segmentFile = getFile(start, SEGMENT_EXTENSION);
+			int offset = (int) segmentFile.length();
+			FileOutputStream segment = new FileOutputStream(segmentFile, true);
+			try {
+				segment.write(data);
+			} finally {
+				segment.close();
+			}
+
+			DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(getFile(start, INDEX_EXTENSION), true), INDEX_ENTRY_SIZE));
+			try {
+				index.writeLong(block.getFirstTimestamp());
+				index.writeLong(block.getLastTimestamp());
+				index.writeInt(offset);
+				index.writeInt(data.length);
+			} finally {
+				index.close();
+			}
+		} catch (IOException e) {
+			this.writeFailed = true;
+			throw e;
+		}
+
+		this.segmentBlockCount++;
+	}
+
+	private void startSegment(long firstTimestamp) {
+		long start = firstTimestamp;
+		int segmentCount = this.segmentCount;
+		if (segmentCount > 0) {
+			// Keep the names unique, the samples of the segment may then be earlier than its start.
+			start = Math.max(start, this.segmentStarts[segmentCount - 1] + 1);
+		}
+		addSegment(start, firstTimestamp);
+		this.segmentBlockCount = 0;
+		deleteExpiredSegments();
+	}
+
+	/**
+	 * Inserts a segment in the sorted starts.
+	 */
+	private void addSegment(long start, long firstTimestamp) {
+		long[] segmentStarts = this.segmentStarts;
+		long[] firstTimestamps = this.segmentFirstTimestamps;
+		int segmentCount = this.segmentCount;
+		if (segmentCount == segmentStarts.length) {
+			int length = segmentCount * 2 + 1;
+			long[] newSegmentStarts = new long[length];
+			long[] newFirstTimestamps = new long[length];
+			System.arraycopy(segmentStarts, 0, newSegmentStarts, 0, segmentCount);
+			System.arraycopy(firstTimestamps, 0, newFirstTimestamps, 0, segmentCount);
+			segmentStarts = newSegmentStarts;
+			firstTimestamps = newFirstTimestamps;
+			this.segmentStarts = segmentStarts;
+			this.segmentFirstTimestamps = firstTimestamps;
+		}
+		int index = segmentCount;
+		while (index > 0 && segmentStarts[index - 1] > start) {
+			segmentStarts[index] = segmentStarts[index - 1];
+			firstTimestamps[index] = firstTimestamps[index - 1];
+			index--;
+		}
+		segmentStarts[index] = start;
+		firstTimestamps[index] = firstTimestamp;
+		this.segmentCount = segmentCount + 1;
+	}
+
+	/**
+	 * Makes the next samples not earlier than the last stored one.
+	 */
+	private void recoverLastTimestamp() {
+		int segmentCount = this.segmentCount;
+		if (segmentCount == 0) {
+			return;
+		}
+		long start = this.segmentStarts[segmentCount - 1];
+		long lastTimestamp;
+		try {
+			int entryCount = (int) (getFile(start, INDEX_EXTENSION).length() / INDEX_ENTRY_SIZE);
+			long[] entry = readIndexEntry(start, entryCount - 1);
+			if (entry == null) {
+				return;
+			}
+			lastTimestamp = entry[1];
+		} catch (IOException e) {
+			// At least the first sample of the segment.
+			lastTimestamp = this.segmentFirstTimestamps[segmentCount - 1];
+		}
+		synchronized (this) {
+			this.lastTimestamp = Math.max(this.lastTimestamp, lastTimestamp);
+		}
+	}
+
+	/**
+	 * Reads the first and last timestamps of a block from the index of a segment.
+	 *
+	 * @return the timestamps, or <code>null</code> if the index has no such complete entry.
+	 */
+	@Nullable
+	private long[] readIndexEntry(long start, int entry) throws IOException {
+		File indexFile = getFile(start, INDEX_EXTENSION);
+		if (entry < 0 || indexFile.length() < (long) (entry + 1) * INDEX_ENTRY_SIZE) {
+			return null;
+		}
+		DataInputStream index = new DataInputStream(new FileInputStream(indexFile));
+		try {
+			Streams.skipFully(index, (long) entry * INDEX_ENTRY_SIZE);
+			return new long[] { index.readLong(), index.readLong() };
+		} finally {
+			index.close();
+		}
+	}
+
+	private boolean isIndexTorn(long start) {
+		return getFile(start, INDEX_EXTENSION).length() % INDEX_ENTRY_SIZE != 0;
+	}
+
+	private void deleteSegment(long start) {
+		getFile(start, INDEX_EXTENSION).delete();
+		getFile(start, SEGMENT_EXTENSION).delete();
+	}
+
+	/**
+	 * Deletes the segments whose samples are all older than the retention. The last segment is never deleted.
+	 */
+	private void deleteExpiredSegments() {
+		long limit = Util.currentTimeMillis() - this.retention;
+		long[] segmentStarts = this.segmentStarts;
+		long[] firstTimestamps = this.segmentFirstTimestamps;
+		int segmentCount = this.segmentCount;
+		int expired = 0;
+		while (expired + 1 < segmentCount && firstTimestamps[expired + 1] <= limit) {
+			deleteSegment(segmentStarts[expired]);
+			expired++;
+		}
+		if (expired > 0) {
+			System.arraycopy(segmentStarts, expired, segmentStarts, 0, segmentCount - expired);
+			System.arraycopy(firstTimestamps, expired, firstTimestamps, 0, segmentCount - expired);
+			this.segmentCount = segmentCount - expired;
+			LOGGER.info(expired + " history segment(s) deleted"); //$NON-NLS-1$
+		}
+	}
+
+	private void readSegment(long start, long from, long to, HistoryConsumer result) throws IOException {
+		File indexFile = getFile(start, INDEX_EXTENSION);
+		// An entry torn by a power loss is ignored.
+		int entryCount = (int) (indexFile.length() / INDEX_ENTRY_SIZE);
+		if (entryCount == 0) {
+			return;
+		}
+
+		// The index is small: read it at once.
+		long[] firstTimestamps = new long[entryCount];
+		long[] lastTimestamps = new long[entryCount];
+		int[] offsets = new int[entryCount];
+		int[] lengths = new int[entryCount];
+		DataInputStream index = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			for (int i = 0; i < entryCount; i++) {
+				firstTimestamps[i] = index.readLong();
+				lastTimestamps[i] = index.readLong();
+				offsets[i] = index.readInt();
+				lengths[i] = index.readInt();
+			}
+		} finally {
+			index.close();
+		}
+
+		DataInputStream segment = null;
+		try {
+			int position = 0;
+			for (int i = 0; i < entryCount && !result.isFull(); i++) {
+				if (firstTimestamps[i] > to) {
+					break;
+				}
+				if (lastTimestamps[i] < from) {
+					continue;
+				}
+				if (segment == null) {
+					segment = new DataInputStream(new FileInputStream(getFile(start, SEGMENT_EXTENSION)));
+				}
+				// Skip directly to the block.
+				Streams.skipFully(segment, offsets[i] - position);
+				byte[] data = new byte[lengths[i]];
+				segment.readFully(data);
+				position = offsets[i] + data.length;
+				new HistoryBlock(data, firstTimestamps[i], lastTimestamps[i]).decode(from, to, result);
+			}
+		} finally {
+			if (segment != null) {
+				segment.close();
+			}
+		}
+	}
+
+	private File getFile(long start, String extension) {
+		return new File(this.directory, Long.toString(start) + extension);
+	}
+}
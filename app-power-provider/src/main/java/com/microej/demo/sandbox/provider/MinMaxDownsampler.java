@@ -0,0 +1,127 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * The MinMaxDownsampler class reduces the samples of a time range to the minimum and maximum samples of buckets of
+ * equal duration.
+ * <p>
+ * Unlike an average, the minimum and maximum keep the peaks visible whatever the zoom level, and they can be computed
+ * from the ones of a {@link HistoryRollup}. The memory used does not depend on the number of samples read.
+ */
+public class MinMaxDownsampler implements HistoryConsumer {
+
+	private final long from;
+	private final long bucketWidth;
+
+	private final int[] minValues;
+	private final long[] minTimestamps;
+	private final int[] maxValues;
+	private final long[] maxTimestamps;
+	private final boolean[] filled;
+
+	/**
+	 * Creates a downsampler.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds, not before the start.
+	 * @param bucketCount
+	 *            the number of buckets, at least one.
+	 */
+	public MinMaxDownsampler(long from, long to, int bucketCount) {
+		this.from = from;
+		this.bucketWidth = (to - from) / bucketCount + 1;
+		this.minValues = new int[bucketCount];
+		this.minTimestamps = new long[bucketCount];
+		this.maxValues = new int[bucketCount];
+		this.maxTimestamps = new long[bucketCount];
+		this.filled = new boolean[bucketCount];
+	}
+
+	/**
+	 * Gets the duration of a bucket.
+	 *
+	 * @return the bucket width in milliseconds.
+	 */
+	public long getBucketWidth() {
+		return this.bucketWidth;
+	}
+
+	@Override
+	public boolean isFull() {
+		return false;
+	}
+
+	@Override
+	public void add(long timestamp, int power) {
+		long bucketIndex = (timestamp - this.from) / this.bucketWidth;
+		if (timestamp < this.from || bucketIndex >= this.filled.length) {
+			return;
+		}
+		int bucket = (int) bucketIndex;
+		if (!this.filled[bucket]) {
+			this.filled[bucket] = true;
+			this.minValues[bucket] = power;
+			this.minTimestamps[bucket] = timestamp;
+			this.maxValues[bucket] = power;
+			this.maxTimestamps[bucket] = timestamp;
+		} else if (power < this.minValues[bucket]) {
+			this.minValues[bucket] = power;
+			this.minTimestamps[bucket] = timestamp;
+		} else if (power > this.maxValues[bucket]) {
+			this.maxValues[bucket] = power;
+			this.maxTimestamps[bucket] = timestamp;
+		}
+	}
+
+	/**
+	 * Gets the minimum and maximum samples of each bucket, in time order. An empty bucket has no sample, a bucket whose
+	 * minimum and maximum are the same sample has only one.
+	 *
+	 * @return the samples, in records as defined by the <code>PowerService.HISTORY_*</code> offsets.
+	 */
+	public long[] toArray() {
+		// Sized from the filled buckets: a sparse range does not allocate two samples per bucket.
+		int sampleCount = 0;
+		for (int bucket = 0; bucket < this.filled.length; bucket++) {
+			if (this.filled[bucket]) {
+				sampleCount += this.minTimestamps[bucket] == this.maxTimestamps[bucket] ? 1 : 2;
+			}
+		}
+		long[] records = new long[sampleCount * PowerService.HISTORY_RECORD_SIZE];
+
+		int count = 0;
+		for (int bucket = 0; bucket < this.filled.length; bucket++) {
+			if (!this.filled[bucket]) {
+				continue;
+			}
+			long minTimestamp = this.minTimestamps[bucket];
+			long maxTimestamp = this.maxTimestamps[bucket];
+			if (minTimestamp == maxTimestamp) {
+				count = write(records, count, minTimestamp, this.minValues[bucket]);
+			} else if (minTimestamp < maxTimestamp) {
+				count = write(records, count, minTimestamp, this.minValues[bucket]);
+				count = write(records, count, maxTimestamp, this.maxValues[bucket]);
+			} else {
+				count = write(records, count, maxTimestamp, this.maxValues[bucket]);
+				count = write(records, count, minTimestamp, this.minValues[bucket]);
+			}
+		}
+		return records;
+	}
+
+	private static int write(long[] records, int count, long timestamp, int power) {
+		int offset = count * PowerService.HISTORY_RECORD_SIZE;
+		records[offset + PowerService.HISTORY_TIMESTAMP] = timestamp;
+		records[offset + PowerService.HISTORY_POWER] = power;
+		return count + 1;
+	}
+}
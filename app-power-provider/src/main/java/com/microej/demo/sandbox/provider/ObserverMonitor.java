@@ -0,0 +1,189 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.Observer;
+
+/**
+ * The ObserverMonitor class measures the notifications of an observer and decides whether it is notified.
+ * <p>
+ * An observer whose notifications exceed the latency budget several times in a row is throttled: it is notified only
+ * once every 2, 4 then 8 notifications, until its notifications fit in the budget again. An observer whose notification
+ * stalls is quarantined: it is not notified anymore until it registers again.
+ * <p>
+ * All the latencies are in microseconds.
+ */
+public class ObserverMonitor {
+
+	/** Number of latency samples kept to compute the percentile. */
+	private static final int SAMPLE_COUNT = 100;
+	private static final int PERCENTILE = 99;
+	private static final int PERCENT = 100;
+	/** Number of consecutive notifications over or under the budget before changing the throttling. */
+	private static final int THROTTLE_HYSTERESIS = 3;
+	private static final int MAX_THROTTLE = 8;
+
+	private final Observer observer;
+
+	// Guarded by this.
+	private final int[] samples = new int[SAMPLE_COUNT];
+	private int sampleCount;
+	private int nextSample;
+	private int notificationCount;
+	private int overBudgetCount;
+	private int consecutiveOverBudget;
+	private int consecutiveUnderBudget;
+	private int throttle = 1;
+	private int skipped;
+	private boolean quarantined;
+
+	/**
+	 * Creates a monitor.
+	 *
+	 * @param observer
+	 *            the monitored observer.
+	 */
+	public ObserverMonitor(Observer observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Gets the monitored observer.
+	 *
+	 * @return the observer.
+	 */
+	public Observer getObserver() {
+		return this.observer;
+	}
+
+	/**
+	 * Checks whether the observer must be notified this time, according to its throttling and quarantine.
+	 *
+	 * @return <code>true</code> if the observer must be notified, <code>false</code> if the notification is skipped.
+	 */
+	/* package */ synchronized boolean shouldNotify() {
+		if (this.quarantined) {
+			return false;
+		}
+		if (++this.skipped < this.throttle) {
+			return false;
+		}
+		this.skipped = 0;
+		return true;
+	}
+
+	/**
+	 * Records the latency of a notification and updates the throttling.
+	 *
+	 * @param latency
+	 *            the latency of the notification.
+	 * @param budget
+	 *            the latency budget of a notification.
+	 * @return <code>true</code> if the throttling changed, <code>false</code> otherwise.
+	 */
+	/* package */ synchronized boolean record(int latency, int budget) {
+		this.samples[this.nextSample] = latency;
+		this.nextSample = (this.nextSample + 1) % SAMPLE_COUNT;
+		if (this.sampleCount < SAMPLE_COUNT) {
+			this.sampleCount++;
+		}
+		this.notificationCount++;
+
+		int throttle = this.throttle;
+		if (latency > budget) {
+			this.overBudgetCount++;
+			this.consecutiveUnderBudget = 0;
+			if (++this.consecutiveOverBudget >= THROTTLE_HYSTERESIS && throttle < MAX_THROTTLE) {
+				this.throttle = throttle * 2;
+				this.consecutiveOverBudget = 0;
+				return true;
+			}
+		} else {
+			this.consecutiveOverBudget = 0;
+			if (++this.consecutiveUnderBudget >= THROTTLE_HYSTERESIS && throttle > 1) {
+				this.throttle = throttle / 2;
+				this.consecutiveUnderBudget = 0;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Quarantines the observer.
+	 */
+	/* package */ synchronized void quarantine() {
+		this.quarantined = true;
+	}
+
+	/**
+	 * Gets whether the observer is quarantined.
+	 *
+	 * @return <code>true</code> if the observer is not notified anymore, <code>false</code> otherwise.
+	 */
+	public synchronized boolean isQuarantined() {
+		return this.quarantined;
+	}
+
+	/**
+	 * Gets the throttling of the observer.
+	 *
+	 * @return the observer is notified once every this number of notifications.
+	 */
+	public synchronized int getThrottle() {
+		return this.throttle;
+	}
+
+	/**
+	 * Gets the number of notifications of the observer.
+	 *
+	 * @return the notification count.
+	 */
+	public synchronized int getNotificationCount() {
+		return this.notificationCount;
+	}
+
+	/**
+	 * Gets the number of notifications of the observer that exceeded the latency budget.
+	 *
+	 * @return the over budget count.
+	 */
+	public synchronized int getOverBudgetCount() {
+		return this.overBudgetCount;
+	}
+
+	/**
+	 * Gets the 99th percentile of the latency of the last {@value #SAMPLE_COUNT} notifications.
+	 *
+	 * @return the latency percentile, or <code>0</code> if the observer has not been notified.
+	 */
+	public int getLatencyP99() {
+		int[] sorted;
+		int count;
+		synchronized (this) {
+			count = this.sampleCount;
+			sorted = new int[count];
+			System.arraycopy(this.samples, 0, sorted, 0, count);
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		// Insertion sort: there are few samples and the percentile is only computed on demand.
+		for (int i = 1; i < count; i++) {
+			int value = sorted[i];
+			int j = i - 1;
+			while (j >= 0 && sorted[j] > value) {
+				sorted[j + 1] = sorted[j];
+				j--;
+			}
+			sorted[j + 1] = value;
+		}
+		int rank = (count * PERCENTILE + PERCENT - 1) / PERCENT;
+		return sorted[rank - 1];
+	}
+}
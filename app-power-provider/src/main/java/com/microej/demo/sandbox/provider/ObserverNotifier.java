@@ -0,0 +1,216 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.util.logging.Logger;
+
+import com.microej.demo.sandbox.sharedinterface.Observer;
+import com.microej.demo.sandbox.sharedinterface.TrackedProxy;
+
+import ej.annotation.Nullable;
+import ej.bon.Util;
+
+/**
+ * The ObserverNotifier class notifies the observers from a dedicated thread, so that a slow observer does not delay
+ * the power provider.
+ * <p>
+ * The notification requests received while the observers are notified are merged: the observers read the latest power
+ * value when they are notified. Each notification is timed by the {@link ObserverMonitor} of the observer. A watchdog,
+ * {@link #checkStall()}, quarantines the observer whose notification lasts more than the stall timeout and replaces the
+ * blocked thread by a new one, which notifies the other observers. A quarantined observer is removed once its feature
+ * is stopped.
+ */
+public class ObserverNotifier implements Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger("ObserverNotifier"); //$NON-NLS-1$
+	private static final int NS_PER_US = 1000;
+	private static final int US_PER_MS = 1000;
+
+	private final ObserverRegistry registry;
+	private final int latencyBudget;
+	private final int stallTimeout;
+	private final int failureBudget;
+
+	// Guarded by this.
+	@Nullable
+	private Thread thread;
+	private boolean pending;
+	private int evictionCount;
+
+	// Notification in progress, read by the watchdog.
+	@Nullable
+	private volatile ObserverMonitor currentMonitor;
+	private volatile long currentStartTime;
+
+	/**
+	 * Creates a notifier.
+	 *
+	 * @param registry
+	 *            the observers to notify.
+	 * @param latencyBudget
+	 *            the latency budget of a notification, in milliseconds.
+	 * @param stallTimeout
+	 *            the duration after which a notification is considered blocked, in milliseconds.
+	 * @param failureBudget
+	 *            the number of consecutive failed notifications after which an observer is removed.
+	 */
+	public ObserverNotifier(ObserverRegistry registry, int latencyBudget, int stallTimeout, int failureBudget) {
+		this.registry = registry;
+		this.latencyBudget = latencyBudget * US_PER_MS;
+		this.stallTimeout = stallTimeout;
+		this.failureBudget = failureBudget;
+	}
+
+	/**
+	 * Starts the notification thread.
+	 */
+	public synchronized void start() {
+		if (this.thread == null) {
+			startThread();
+		}
+	}
+
+	/**
+	 * Stops the notification thread.
+	 * <p>
+	 * A notification in progress is completed.
+	 */
+	public synchronized void stop() {
+		this.thread = null;
+		this.pending = false;
+		notifyAll();
+	}
+
+	/**
+	 * Requests a notification of all the observers.
+	 */
+	public synchronized void requestNotification() {
+		this.pending = true;
+		notifyAll();
+	}
+
+	/**
+	 * Quarantines the observer being notified if its notification lasts more than the stall timeout, and resumes the
+	 * notifications in a new thread.
+	 */
+	public void checkStall() {
+		ObserverMonitor monitor = this.currentMonitor;
+		if (monitor == null || Util.platformTimeMillis() - this.currentStartTime < this.stallTimeout) {
+			return;
+		}
+
+		synchronized (this) {
+			if (this.currentMonitor != monitor || this.thread == null) {
+				return;
+			}
+			this.currentMonitor = null;
+			monitor.quarantine();
+			// The blocked thread ends when the observer returns, if ever.
+			startThread();
+		}
+		LOGGER.warning("Observer quarantined: notification blocked for more than " + this.stallTimeout + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Gets the number of observers removed because they were dead or kept failing.
+	 *
+	 * @return the eviction count.
+	 */
+	public synchronized int getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	private void startThread() {
+		Thread thread = new Thread(this, "ObserverNotifier"); //$NON-NLS-1$
+		this.thread = thread;
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		Thread currentThread = Thread.currentThread();
+		while (true) {
+			synchronized (this) {
+				while (!this.pending && this.thread == currentThread) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						currentThread.interrupt();
+						return;
+					}
+				}
+				if (this.thread != currentThread) {
+					return;
+				}
+				this.pending = false;
+			}
+			notifyObservers(currentThread);
+		}
+	}
+
+	private void notifyObservers(Thread currentThread) {
+		for (ObserverMonitor monitor : this.registry.getMonitors()) {
+			Observer observer = monitor.getObserver();
+			if (!monitor.shouldNotify()) {
+				if (monitor.isQuarantined() && observer instanceof TrackedProxy
+						&& ((TrackedProxy) observer).isTargetDead()) {
+					// Not notified anymore, so the checks below are never reached for it.
+					evict(observer, "quarantined and feature stopped"); //$NON-NLS-1$
+				}
+				continue;
+			}
+
+			long startTime = Util.platformTimeNanos();
+			this.currentStartTime = startTime / (NS_PER_US * US_PER_MS);
+			this.currentMonitor = monitor;
+			RuntimeException error = null;
+			try {
+				observer.update();
+			} catch (RuntimeException e) {
+				// Only a local observer can throw, the proxies of the other features catch their errors.
+				error = e;
+			}
+
+			synchronized (this) {
+				if (this.thread != currentThread) {
+					// The watchdog quarantined the observer and another thread took over.
+					return;
+				}
+				this.currentMonitor = null;
+			}
+
+			if (error != null) {
+				evict(observer, error.toString());
+				continue;
+			}
+
+			int latency = (int) Math.min((Util.platformTimeNanos() - startTime) / NS_PER_US, Integer.MAX_VALUE);
+			if (monitor.record(latency, this.latencyBudget)) {
+				LOGGER.info("Observer notified once every " + monitor.getThrottle() + " notifications, p99 latency " //$NON-NLS-1$ //$NON-NLS-2$
+						+ monitor.getLatencyP99() + " us"); //$NON-NLS-1$
+			}
+
+			if (observer instanceof TrackedProxy) {
+				TrackedProxy proxy = (TrackedProxy) observer;
+				if (proxy.isTargetDead()) {
+					evict(observer, "feature stopped"); //$NON-NLS-1$
+				} else if (proxy.getConsecutiveFailures() >= this.failureBudget) {
+					evict(observer, proxy.getConsecutiveFailures() + " consecutive failures"); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private void evict(Observer observer, String reason) {
+		if (this.registry.remove(observer)) {
+			synchronized (this) {
+				this.evictionCount++;
+			}
+			LOGGER.warning("Observer removed: " + reason); //$NON-NLS-1$
+		}
+	}
+}
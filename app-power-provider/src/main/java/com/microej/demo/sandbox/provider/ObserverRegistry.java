@@ -0,0 +1,124 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.microej.demo.sandbox.sharedinterface.Observer;
+
+/**
+ * The ObserverRegistry class keeps the observers of the power service and their monitors.
+ * <p>
+ * The monitors are stored in a copy-on-write array published through a volatile field: the notification path reads it
+ * without lock nor allocation, and always sees a complete array. The registrations are serialized and checked against
+ * a map, so that concurrent registrations are not lost and duplicates are detected in constant time.
+ */
+public class ObserverRegistry {
+
+	private static final ObserverMonitor[] EMPTY = new ObserverMonitor[0];
+
+	private volatile ObserverMonitor[] monitors = EMPTY;
+	// Guarded by this.
+	private final Map<Observer, ObserverMonitor> members = new HashMap<>();
+
+	/**
+	 * Adds an observer.
+	 * <p>
+	 * A quarantined observer that registers again is given a new monitor, so that it is notified again.
+	 *
+	 * @param observer
+	 *            the observer to add.
+	 * @return <code>true</code> if the observer has been added, <code>false</code> if it was already registered and is
+	 *         not quarantined.
+	 */
+	public synchronized boolean add(Observer observer) {
+		ObserverMonitor oldMonitor = this.members.get(observer);
+		if (oldMonitor != null && !oldMonitor.isQuarantined()) {
+			return false;
+		}
+		ObserverMonitor monitor = new ObserverMonitor(observer);
+		this.members.put(observer, monitor);
+		ObserverMonitor[] monitors = this.monitors;
+		int length = monitors.length;
+		ObserverMonitor[] newMonitors;
+		if (oldMonitor != null) {
+			newMonitors = new ObserverMonitor[length];
+			for (int i = 0; i < length; i++) {
+				ObserverMonitor registered = monitors[i];
+				newMonitors[i] = (registered == oldMonitor) ? monitor : registered;
+			}
+		} else {
+			newMonitors = new ObserverMonitor[length + 1];
+			System.arraycopy(monitors, 0, newMonitors, 0, length);
+			newMonitors[length] = monitor;
+		}
+		this.monitors = newMonitors;
+		return true;
+	}
+
+	/**
+	 * Removes an observer.
+	 *
+	 * @param observer
+	 *            the observer to remove.
+	 * @return <code>true</code> if the observer has been removed, <code>false</code> if it was not registered.
+	 */
+	public synchronized boolean remove(Observer observer) {
+		ObserverMonitor monitor = this.members.remove(observer);
+		if (monitor == null) {
+			return false;
+		}
+		ObserverMonitor[] monitors = this.monitors;
+		int length = monitors.length;
+		if (length == 1) {
+			this.monitors = EMPTY;
+			return true;
+		}
+		ObserverMonitor[] newMonitors = new ObserverMonitor[length - 1];
+		int index = 0;
+		for (ObserverMonitor registered : monitors) {
+			if (registered != monitor) {
+				newMonitors[index++] = registered;
+			}
+		}
+		this.monitors = newMonitors;
+		return true;
+	}
+
+	/**
+	 * Checks whether an observer is registered.
+	 *
+	 * @param observer
+	 *            the observer to check.
+	 * @return <code>true</code> if the observer is registered, <code>false</code> otherwise.
+	 */
+	public synchronized boolean contains(Observer observer) {
+		return this.members.containsKey(observer);
+	}
+
+	/**
+	 * Gets the monitors of the registered observers.
+	 * <p>
+	 * The returned array is a snapshot shared with the other callers and must not be modified. Later registrations do
+	 * not change it.
+	 *
+	 * @return the observer monitors.
+	 */
+	public ObserverMonitor[] getMonitors() {
+		return this.monitors;
+	}
+
+	/**
+	 * Gets the number of registered observers.
+	 *
+	 * @return the observer count.
+	 */
+	public int size() {
+		return this.monitors.length;
+	}
+}
@@ -6,16 +6,21 @@
  */
 package com.microej.demo.sandbox.provider;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.microej.demo.sandbox.sharedinterface.Observer;
 import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.PowerStream;
 
 import ej.annotation.Nullable;
-import ej.basictool.ArrayTools;
+import ej.bon.Constants;
 import ej.bon.Timer;
 import ej.bon.TimerTask;
+import ej.bon.Util;
 
 /**
  * The PowerProvider class generates dummy data to simulate meter power readings.
@@ -27,35 +32,126 @@ public class PowerProvider implements PowerService {
 	private static final int MIN_POWER = 0;
 	private static final int MAX_POWER = 2000;
 	private static final int REFRESH_RATE_IN_MS = 4000;
+	private static final String SAMPLE_PERIOD_CONSTANT = "com.microej.demo.sandbox.provider.sample.period"; //$NON-NLS-1$
+	private static final String FAILURE_BUDGET_CONSTANT = "com.microej.demo.sandbox.provider.observer.failure.budget"; //$NON-NLS-1$
+	private static final String LATENCY_BUDGET_CONSTANT = "com.microej.demo.sandbox.provider.observer.latency.budget"; //$NON-NLS-1$
+	private static final String STALL_TIMEOUT_CONSTANT = "com.microej.demo.sandbox.provider.observer.stall.timeout"; //$NON-NLS-1$
+	private static final String REPORT_PERIOD_CONSTANT = "com.microej.demo.sandbox.provider.observer.report.period"; //$NON-NLS-1$
+	private static final String ENERGY_DIRECTORY_CONSTANT = "com.microej.demo.sandbox.provider.energy.dir"; //$NON-NLS-1$
+	private static final String CHECKPOINT_PERIOD_CONSTANT = "com.microej.demo.sandbox.provider.energy.checkpoint.period"; //$NON-NLS-1$
+	private static final String CHECKPOINT_RECORDS_CONSTANT = "com.microej.demo.sandbox.provider.energy.checkpoint.records"; //$NON-NLS-1$
+	private static final String HISTORY_DIRECTORY_CONSTANT = "com.microej.demo.sandbox.provider.history.dir"; //$NON-NLS-1$
+	private static final String HISTORY_BLOCK_SIZE_CONSTANT = "com.microej.demo.sandbox.provider.history.block.size"; //$NON-NLS-1$
+	private static final String HISTORY_SEGMENT_BLOCKS_CONSTANT = "com.microej.demo.sandbox.provider.history.segment.blocks"; //$NON-NLS-1$
+	private static final String HISTORY_RETENTION_CONSTANT = "com.microej.demo.sandbox.provider.history.retention.days"; //$NON-NLS-1$
+	private static final String HISTORY_MINUTES_CONSTANT = "com.microej.demo.sandbox.provider.history.rollup.minutes"; //$NON-NLS-1$
+	private static final String HISTORY_HOURS_CONSTANT = "com.microej.demo.sandbox.provider.history.rollup.hours"; //$NON-NLS-1$
+	private static final long MS_PER_MINUTE = 60 * 1000;
+	private static final long MS_PER_HOUR = 60 * MS_PER_MINUTE;
+	private static final long MS_PER_DAY = 24 * MS_PER_HOUR;
+	/** Maximum number of points of a downsampled history read. */
+	private static final int MAX_POINT_COUNT = 4096;
+	/** Maximum number of records of a history read, the next ones are read by another call. */
+	private static final int MAX_RECORD_COUNT = 4096;
+	/** Number of watchdog checks during the stall timeout. */
+	private static final int WATCHDOG_CHECKS = 4;
 
 	private static final Random RANDOM = new Random();
 	private final Timer timer;
-	private int power;
+	/** Timer of the energy checkpoints and history writes, so that the storage accesses never delay the sampling. */
+	private final Timer storageTimer;
+	private final SampleRegister sample = new SampleRegister();
 
 	@Nullable
 	private TimerTask powerProviderTask;
+	private int samplesSinceNotification;
+	@Nullable
+	private TimerTask watchdogTask;
+	@Nullable
+	private TimerTask checkpointTask;
+	@Nullable
+	private TimerTask reportTask;
 
-	private Observer[] observers = new Observer[0];
+	private final ObserverRegistry observers = new ObserverRegistry();
+	private final ObserverNotifier notifier;
+	private final PowerStreamProvider stream = new PowerStreamProvider();
+	private final EnergyAccumulator energy = new EnergyAccumulator();
+	private final EnergyLog energyLog;
+	private final HistoryStore history;
 
 	/**
 	 * Creates a PowerProvider.
 	 */
 	public PowerProvider() {
 		this.timer = new Timer();
+		this.storageTimer = new Timer();
+		this.energyLog = new EnergyLog(new File(Constants.getString(ENERGY_DIRECTORY_CONSTANT)),
+				Constants.getInt(CHECKPOINT_RECORDS_CONSTANT));
+		this.history = new HistoryStore(new File(Constants.getString(HISTORY_DIRECTORY_CONSTANT)),
+				Constants.getInt(HISTORY_BLOCK_SIZE_CONSTANT), Constants.getInt(HISTORY_SEGMENT_BLOCKS_CONSTANT),
+				Constants.getInt(HISTORY_RETENTION_CONSTANT) * MS_PER_DAY,
+				new HistoryRollup[] { new HistoryRollup(MS_PER_MINUTE, Constants.getInt(HISTORY_MINUTES_CONSTANT)),
+						new HistoryRollup(MS_PER_HOUR, Constants.getInt(HISTORY_HOURS_CONSTANT)) });
+		this.notifier = new ObserverNotifier(this.observers, Constants.getInt(LATENCY_BUDGET_CONSTANT),
+				Constants.getInt(STALL_TIMEOUT_CONSTANT), Constants.getInt(FAILURE_BUDGET_CONSTANT));
 	}
 
 	/**
 	 * Starts the power provider Timer and the periodic polling of random power data.
+	 * <p>
+	 * Every sample is published to the stream subscribers, whereas the observers are notified every
+	 * {@value #REFRESH_RATE_IN_MS} milliseconds.
+	 * <p>
+	 * The notification latency of the observers and the number of removed observers are logged periodically.
+	 * <p>
+	 * The energy is integrated from the last checkpoint, and checkpointed periodically. The samples are stored in the
+	 * history.
 	 */
 	public void startTimer() {
+		recoverEnergy();
+		this.history.open();
+		this.notifier.start();
+		this.stream.start();
+		final int samplePeriod = Constants.getInt(SAMPLE_PERIOD_CONSTANT);
+		final int samplesPerNotification = Math.max(REFRESH_RATE_IN_MS / samplePeriod, 1);
+		this.samplesSinceNotification = 0;
 		this.powerProviderTask = new TimerTask() {
 			@Override
 			public void run() {
-				updatePower();
-				notifyObservers();
+				sample(samplesPerNotification);
+			}
+		};
+		this.timer.schedule(this.powerProviderTask, 0, samplePeriod);
+
+		final ObserverNotifier notifier = this.notifier;
+		this.watchdogTask = new TimerTask() {
+			@Override
+			public void run() {
+				notifier.checkStall();
 			}
 		};
-		this.timer.schedule(this.powerProviderTask, 0, REFRESH_RATE_IN_MS);
+		int watchdogPeriod = Math.max(Constants.getInt(STALL_TIMEOUT_CONSTANT) / WATCHDOG_CHECKS, 1);
+		this.timer.schedule(this.watchdogTask, watchdogPeriod, watchdogPeriod);
+
+		int reportPeriod = Constants.getInt(REPORT_PERIOD_CONSTANT);
+		if (reportPeriod > 0) {
+			this.reportTask = new TimerTask() {
+				@Override
+				public void run() {
+					reportObservers();
+				}
+			};
+			this.timer.schedule(this.reportTask, reportPeriod, reportPeriod);
+		}
+
+		this.checkpointTask = new TimerTask() {
+			@Override
+			public void run() {
+				checkpointEnergy();
+			}
+		};
+		int checkpointPeriod = Constants.getInt(CHECKPOINT_PERIOD_CONSTANT);
+		this.storageTimer.schedule(this.checkpointTask, checkpointPeriod, checkpointPeriod);
 	}
 
 	/**
@@ -66,17 +162,110 @@ public class PowerProvider implements PowerService {
 			this.powerProviderTask.cancel();
 			this.powerProviderTask = null;
 		}
+		if (this.watchdogTask != null) {
+			this.watchdogTask.cancel();
+			this.watchdogTask = null;
+		}
+		if (this.reportTask != null) {
+			this.reportTask.cancel();
+			this.reportTask = null;
+		}
+		if (this.checkpointTask != null) {
+			this.checkpointTask.cancel();
+			this.checkpointTask = null;
+		}
+		this.notifier.stop();
+		this.stream.stop();
+		// Do not lose the energy integrated since the last periodic checkpoint nor the last samples.
+		checkpointEnergy();
+		try {
+			this.history.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not write the history.", e); //$NON-NLS-1$
+		}
 	}
 
-	private void updatePower() {
+	private void recoverEnergy() {
+		long startTime = Util.platformTimeMillis();
+		long energy;
+		synchronized (this.energyLog) {
+			try {
+				energy = this.energyLog.recover();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not recover the energy.", e); //$NON-NLS-1$
+				energy = 0;
+			}
+		}
+		this.energy.restart(energy);
+		LOGGER.info("Recovered energy: " + energy / EnergyAccumulator.MILLIJOULES_PER_MILLIWATT_HOUR + " mWh in " //$NON-NLS-1$ //$NON-NLS-2$
+				+ (Util.platformTimeMillis() - startTime) + " ms"); //$NON-NLS-1$
+	}
+
+	private void flushHistory() {
+		try {
+			this.history.flush();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not write the history.", e); //$NON-NLS-1$
+		}
+	}
+
+	private void checkpointEnergy() {
+		// Called by the checkpoint timer and when stopping.
+		synchronized (this.energyLog) {
+			try {
+				this.energyLog.append(this.energy.getEnergy());
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not checkpoint the energy.", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private void sample(int samplesPerNotification) {
 		// Generate a random power value between MIN_POWER and MAX_POWER
-		this.power = RANDOM.nextInt((MAX_POWER - MIN_POWER) + 1) + MIN_POWER;
-		LOGGER.info("Generated Power: " + this.power); //$NON-NLS-1$
+		int power = RANDOM.nextInt((MAX_POWER - MIN_POWER) + 1) + MIN_POWER;
+		// The samples are stamped with the monotonic platform time, shared by all the features.
+		long timestamp = Util.platformTimeMillis();
+		// Only the timer thread publishes the samples.
+		int sequence = this.sample.publish(power, timestamp);
+		this.energy.add(power, timestamp);
+		if (this.history.append(power, Util.currentTimeMillis())) {
+			this.storageTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					flushHistory();
+				}
+			}, 0);
+		}
+		this.stream.publish(power, timestamp, sequence);
+
+		// Only the timer thread counts the samples.
+		if (this.samplesSinceNotification++ % samplesPerNotification == 0) {
+			LOGGER.info("Generated Power: " + power); //$NON-NLS-1$
+			notifyObservers();
+		}
 	}
 
 	@Override
 	public int getPower() {
-		return this.power;
+		return this.sample.getPower();
+	}
+
+	@Override
+	public int getSequence() {
+		return this.sample.getSequence();
+	}
+
+	@Override
+	public long getTimestamp() {
+		return this.sample.getTimestamp();
+	}
+
+	@Override
+	public long[] getSample() {
+		// Never blocks the timer thread publishing the samples.
+		long[] sample = new long[SAMPLE_SIZE];
+		this.sample.read(sample);
+		return sample;
 	}
 
 	@Override
@@ -90,25 +279,95 @@ public class PowerProvider implements PowerService {
 	}
 
 	@Override
-	public void notifyObservers() {
-		for (Observer observer : this.observers) {
-			observer.update();
+	public long getEnergy() {
+		return this.energy.getEnergy() / EnergyAccumulator.MILLIJOULES_PER_MILLIWATT_HOUR;
+	}
+
+	@Override
+	@Nullable
+	public long[] readHistory(long from, long to, int maxCount) {
+		try {
+			return this.history.read(from, to, Math.min(maxCount, MAX_RECORD_COUNT));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not read the history.", e); //$NON-NLS-1$
+			return null;
 		}
 	}
 
+	@Override
+	@Nullable
+	public long[] readHistoryDownsampled(long from, long to, int pointCount) {
+		int points = Math.max(Math.min(pointCount, MAX_POINT_COUNT), 0);
+		try {
+			return this.history.readDownsampled(from, to, points);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Could not read the history.", e); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	/**
+	 * Logs the 99th percentile of the notification latency and the state of each observer, and the number of removed
+	 * observers.
+	 */
+	private void reportObservers() {
+		ObserverMonitor[] monitors = getObserverMonitors();
+		LOGGER.info(monitors.length + " observer(s), " + getEvictionCount() + " removed"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < monitors.length; i++) {
+			ObserverMonitor monitor = monitors[i];
+			if (monitor.isQuarantined()) {
+				LOGGER.info("Observer " + i + ": quarantined"); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				LOGGER.info("Observer " + i + ": p99 latency " + monitor.getLatencyP99() + " us, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ monitor.getOverBudgetCount() + " of " + monitor.getNotificationCount() //$NON-NLS-1$
+						+ " notifications over budget, notified once every " + monitor.getThrottle()); //$NON-NLS-1$
+			}
+		}
+	}
+
+	@Override
+	public void notifyObservers() {
+		// The observers are notified by the notifier thread, a slow observer does not block the caller.
+		this.notifier.requestNotification();
+	}
+
+	/**
+	 * Gets the number of observers removed because they were dead or kept failing.
+	 *
+	 * @return the eviction count.
+	 */
+	public int getEvictionCount() {
+		return this.notifier.getEvictionCount();
+	}
+
+	/**
+	 * Gets the stream delivering the power samples to the subscribers with flow control.
+	 *
+	 * @return the power stream.
+	 */
+	public PowerStream getStream() {
+		return this.stream;
+	}
+
+	/**
+	 * Gets the monitors of the registered observers, giving their notification latency and state.
+	 *
+	 * @return the observer monitors, this array must not be modified.
+	 */
+	public ObserverMonitor[] getObserverMonitors() {
+		return this.observers.getMonitors();
+	}
+
 	@Override
 	public void addObserver(Observer observer) {
-		Observer[] observers = this.observers;
-		if (!ArrayTools.contains(observers, observer)) {
-			this.observers = ArrayTools.add(observers, observer);
-		} else {
+		if (!this.observers.add(observer)) {
 			throw new IllegalArgumentException("Observer is already added."); //$NON-NLS-1$
 		}
 	}
 
 	@Override
 	public void removeObserver(Observer observer) {
-		this.observers = ArrayTools.remove(this.observers, observer);
+		this.observers.remove(observer);
 	}
 
 }
@@ -8,7 +8,10 @@ package com.microej.demo.sandbox.provider;
 
 import java.util.logging.Logger;
 
+import com.microej.demo.sandbox.sharedinterface.CallMetrics;
+import com.microej.demo.sandbox.sharedinterface.CallMetricsDirectory;
 import com.microej.demo.sandbox.sharedinterface.PowerService;
+import com.microej.demo.sandbox.sharedinterface.PowerStream;
 
 import ej.kf.FeatureEntryPoint;
 import ej.service.ServiceFactory;
@@ -19,17 +22,24 @@ import ej.service.ServiceFactory;
 public class PowerProviderEntryPoint implements FeatureEntryPoint {
 
 	private static final Logger LOGGER = Logger.getLogger("PowerProviderEntryPoint"); //$NON-NLS-1$
+	private static final String NAME = "PowerProvider"; //$NON-NLS-1$
 	private final PowerProvider powerProvider = new PowerProvider();
+	private final CallMetricsRegistry callMetricsRegistry = new CallMetricsRegistry();
 
 	@Override
 	public void start() {
 		this.powerProvider.startTimer();
 		ServiceFactory.register(PowerService.class, this.powerProvider);
+		ServiceFactory.register(PowerStream.class, this.powerProvider.getStream());
+		this.callMetricsRegistry.addSource(CallMetrics.getSource(NAME));
+		ServiceFactory.register(CallMetricsDirectory.class, this.callMetricsRegistry);
 		LOGGER.info("started"); //$NON-NLS-1$
 	}
 
 	@Override
 	public void stop() {
+		ServiceFactory.unregister(CallMetricsDirectory.class, this.callMetricsRegistry);
+		ServiceFactory.unregister(PowerStream.class, this.powerProvider.getStream());
 		ServiceFactory.unregister(PowerService.class, this.powerProvider);
 		this.powerProvider.stopTimer();
 		LOGGER.info("stopped"); //$NON-NLS-1$
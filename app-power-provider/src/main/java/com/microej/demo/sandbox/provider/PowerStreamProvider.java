@@ -0,0 +1,175 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.util.logging.Logger;
+
+import com.microej.demo.sandbox.sharedinterface.PowerBatchSubscriber;
+import com.microej.demo.sandbox.sharedinterface.PowerStream;
+import com.microej.demo.sandbox.sharedinterface.PowerStreamSubscriber;
+import com.microej.demo.sandbox.sharedinterface.PowerSubscription;
+
+import ej.annotation.Nullable;
+import ej.bon.Util;
+
+/**
+ * The PowerStreamProvider class delivers the power samples to the stream subscribers according to their credits.
+ * <p>
+ * The samples are delivered from a dedicated thread, one sample or batch per subscriber in turn, so that a subscriber
+ * with many pending samples does not delay the others. The thread also wakes up at the deadline of the incomplete
+ * batches.
+ */
+public class PowerStreamProvider implements PowerStream, Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger("PowerStreamProvider"); //$NON-NLS-1$
+	private static final AbstractSubscription[] EMPTY = new AbstractSubscription[0];
+
+	private volatile AbstractSubscription[] subscriptions = EMPTY;
+
+	// Written with this held, read by the delivery thread between two deliveries.
+	@Nullable
+	private volatile Thread thread;
+	// Guarded by this.
+	private boolean pending;
+	// Held during each delivery: a stopped delivery thread finishes its current delivery before the next thread
+	// delivers, and then exits, so that two threads never take or send the samples of a subscription at once.
+	private final Object deliveryLock = new Object();
+
+	@Override
+	@Nullable
+	public PowerSubscription subscribe(PowerStreamSubscriber subscriber, int policy, int capacity) {
+		return add(new StreamSubscription(this, subscriber, policy, capacity));
+	}
+
+	@Override
+	@Nullable
+	public PowerSubscription subscribeBatches(PowerBatchSubscriber subscriber, int batchSize, int maxLatency) {
+		return add(new BatchSubscription(this, subscriber, batchSize, maxLatency));
+	}
+
+	private AbstractSubscription add(AbstractSubscription subscription) {
+		synchronized (this) {
+			AbstractSubscription[] subscriptions = this.subscriptions;
+			int length = subscriptions.length;
+			AbstractSubscription[] newSubscriptions = new AbstractSubscription[length + 1];
+			System.arraycopy(subscriptions, 0, newSubscriptions, 0, length);
+			newSubscriptions[length] = subscription;
+			this.subscriptions = newSubscriptions;
+		}
+		LOGGER.info("Stream subscribed"); //$NON-NLS-1$
+		return subscription;
+	}
+
+	/**
+	 * Publishes a power sample to all the subscribers.
+	 *
+	 * @param power
+	 *            the power sample.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param sequence
+	 *            the sequence number of the sample.
+	 */
+	public void publish(int power, long timestamp, int sequence) {
+		boolean deliverable = false;
+		for (AbstractSubscription subscription : this.subscriptions) {
+			deliverable |= subscription.offer(power, timestamp, sequence);
+		}
+		if (deliverable) {
+			wakeUp();
+		}
+	}
+
+	/**
+	 * Starts the delivery thread.
+	 */
+	public synchronized void start() {
+		if (this.thread == null) {
+			Thread thread = new Thread(this, "PowerStreamProvider"); //$NON-NLS-1$
+			this.thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the delivery thread.
+	 */
+	public synchronized void stop() {
+		this.thread = null;
+		notifyAll();
+	}
+
+	/* package */ synchronized void wakeUp() {
+		this.pending = true;
+		notifyAll();
+	}
+
+	/* package */ synchronized void remove(AbstractSubscription subscription) {
+		AbstractSubscription[] subscriptions = this.subscriptions;
+		int length = subscriptions.length;
+		for (int i = 0; i < length; i++) {
+			if (subscriptions[i] == subscription) {
+				AbstractSubscription[] newSubscriptions = new AbstractSubscription[length - 1];
+				System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+				System.arraycopy(subscriptions, i + 1, newSubscriptions, i, length - i - 1);
+				this.subscriptions = newSubscriptions;
+				LOGGER.info("Stream cancelled"); //$NON-NLS-1$
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		Thread currentThread = Thread.currentThread();
+		long deadline = AbstractSubscription.NO_DEADLINE;
+		while (true) {
+			synchronized (this) {
+				while (!this.pending && this.thread == currentThread) {
+					long now = Util.platformTimeMillis();
+					if (now >= deadline) {
+						break;
+					}
+					try {
+						// A timeout of 0 waits until notified.
+						wait(deadline == AbstractSubscription.NO_DEADLINE ? 0 : deadline - now);
+					} catch (InterruptedException e) {
+						currentThread.interrupt();
+						return;
+					}
+				}
+				if (this.thread != currentThread) {
+					return;
+				}
+				this.pending = false;
+			}
+
+			// One delivery per subscriber in turn until no subscriber can receive one.
+			AbstractSubscription[] subscriptions;
+			boolean delivered;
+			do {
+				delivered = false;
+				subscriptions = this.subscriptions;
+				long now = Util.platformTimeMillis();
+				for (AbstractSubscription subscription : subscriptions) {
+					synchronized (this.deliveryLock) {
+						// Stopped, and possibly restarted, while delivering.
+						if (this.thread != currentThread) {
+							return;
+						}
+						delivered |= subscription.deliver(now);
+					}
+				}
+			} while (delivered);
+
+			deadline = AbstractSubscription.NO_DEADLINE;
+			for (AbstractSubscription subscription : subscriptions) {
+				deadline = Math.min(deadline, subscription.getDeadline());
+			}
+		}
+	}
+}
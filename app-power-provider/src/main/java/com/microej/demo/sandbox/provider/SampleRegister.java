@@ -0,0 +1,112 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * The SampleRegister class publishes the latest power sample, its value, timestamp and sequence number, to the reader
+ * threads without lock.
+ * <p>
+ * The sample is double-buffered: the writer fills the slot that is not read, then publishes it by incrementing the
+ * version. A reader reads the slot of the current version and retries if a new version has been published meanwhile,
+ * since the writer may then be overwriting that slot. The writer never waits for the readers.
+ * <p>
+ * Unlike a sequence lock, a reader only retries when the writer has completed a publication: a writer preempted while
+ * filling a slot does not make a higher priority reader spin.
+ * <p>
+ * There must be a single writer.
+ */
+public class SampleRegister {
+
+	/**
+	 * A buffered sample. The fields are volatile so that the version check orders the reads of the sample.
+	 */
+	private static class Slot {
+		volatile int power;
+		volatile long timestamp;
+		volatile int sequence = -1;
+	}
+
+	private final Slot[] slots = { new Slot(), new Slot() };
+	/** Number of published samples, the latest one is in the slot of index <code>version % 2</code>. */
+	private volatile int version;
+
+	/**
+	 * Publishes a sample. Must only be called by the writer thread.
+	 *
+	 * @param power
+	 *            the power value.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @return the sequence number of the sample.
+	 */
+	public int publish(int power, long timestamp) {
+		int version = this.version;
+		int sequence = this.slots[version & 1].sequence + 1;
+		Slot slot = this.slots[(version + 1) & 1];
+		slot.power = power;
+		slot.timestamp = timestamp;
+		slot.sequence = sequence;
+		this.version = version + 1;
+		return sequence;
+	}
+
+	/**
+	 * Gets the value of the latest sample.
+	 *
+	 * @return the power value.
+	 */
+	public int getPower() {
+		// A single field is always consistent.
+		return this.slots[this.version & 1].power;
+	}
+
+	/**
+	 * Gets the time of the latest sample.
+	 *
+	 * @return the timestamp in milliseconds.
+	 */
+	public long getTimestamp() {
+		return this.slots[this.version & 1].timestamp;
+	}
+
+	/**
+	 * Gets the sequence number of the latest sample.
+	 *
+	 * @return the sequence number, <code>-1</code> if no sample has been published.
+	 */
+	public int getSequence() {
+		return this.slots[this.version & 1].sequence;
+	}
+
+	/**
+	 * Reads the latest sample consistently.
+	 *
+	 * @param sample
+	 *            the array to fill at the offsets defined by {@link PowerService}, of at least
+	 *            {@link PowerService#SAMPLE_SIZE} elements.
+	 * @return the number of retries, caused by publications during the read.
+	 */
+	public int read(long[] sample) {
+		int retries = 0;
+		while (true) {
+			int version = this.version;
+			Slot slot = this.slots[version & 1];
+			int power = slot.power;
+			long timestamp = slot.timestamp;
+			int sequence = slot.sequence;
+			if (this.version == version) {
+				sample[PowerService.SAMPLE_POWER] = power;
+				sample[PowerService.SAMPLE_TIMESTAMP] = timestamp;
+				sample[PowerService.SAMPLE_SEQUENCE] = sequence;
+				return retries;
+			}
+			retries++;
+		}
+	}
+}
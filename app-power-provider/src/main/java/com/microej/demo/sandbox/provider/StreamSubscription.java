@@ -0,0 +1,112 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import com.microej.demo.sandbox.sharedinterface.PowerStream;
+import com.microej.demo.sandbox.sharedinterface.PowerStreamSubscriber;
+
+/**
+ * The StreamSubscription class delivers the power samples one by one to a stream subscriber.
+ * <p>
+ * The pending samples are stored in a ring buffer: one sample with {@link PowerStream#POLICY_CONFLATE}, the capacity
+ * of the subscription with {@link PowerStream#POLICY_BUFFER}. When the buffer is full, the oldest sample is dropped.
+ */
+public class StreamSubscription extends AbstractSubscription {
+
+	private final PowerStreamSubscriber subscriber;
+
+	// Guarded by this.
+	private final int[] samples;
+	private final long[] timestamps;
+	private final int[] sequences;
+	private int head;
+	private int size;
+	// Written by take() and read by send(), both called by the delivery thread.
+	private int taken;
+	private long takenTimestamp;
+	private int takenSequence;
+	private int takenDropped;
+
+	/**
+	 * Creates a subscription.
+	 *
+	 * @param provider
+	 *            the stream delivering the samples.
+	 * @param subscriber
+	 *            the subscriber.
+	 * @param policy
+	 *            the policy applied to the samples produced while the subscriber has no credit.
+	 * @param capacity
+	 *            the maximum number of pending samples with {@link PowerStream#POLICY_BUFFER}.
+	 */
+	public StreamSubscription(PowerStreamProvider provider, PowerStreamSubscriber subscriber, int policy,
+			int capacity) {
+		super(provider);
+		if (policy == PowerStream.POLICY_CONFLATE) {
+			capacity = 1;
+		} else if (policy != PowerStream.POLICY_BUFFER || capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.subscriber = subscriber;
+		this.samples = new int[capacity];
+		this.timestamps = new long[capacity];
+		this.sequences = new int[capacity];
+	}
+
+	@Override
+	protected void add(int power, long timestamp, int sequence) {
+		int[] samples = this.samples;
+		int capacity = samples.length;
+		if (this.size == capacity) {
+			this.head = (this.head + 1) % capacity;
+			drop(1);
+		} else {
+			this.size++;
+		}
+		int index = (this.head + this.size - 1) % capacity;
+		samples[index] = power;
+		this.timestamps[index] = timestamp;
+		this.sequences[index] = sequence;
+	}
+
+	@Override
+	protected boolean isReady(long now) {
+		return this.size > 0;
+	}
+
+	@Override
+	protected void take() {
+		int head = this.head;
+		this.taken = this.samples[head];
+		this.takenTimestamp = this.timestamps[head];
+		this.takenSequence = this.sequences[head];
+		this.takenDropped = takeDroppedCount();
+		this.head = (this.head + 1) % this.samples.length;
+		this.size--;
+	}
+
+	@Override
+	protected void send() {
+		this.subscriber.onNext(this.taken, this.takenTimestamp, this.takenSequence, this.takenDropped);
+	}
+
+	@Override
+	protected Object getSubscriber() {
+		return this.subscriber;
+	}
+
+	@Override
+	protected long computeDeadline() {
+		// The samples are ready as soon as they are added.
+		return NO_DEADLINE;
+	}
+
+	@Override
+	protected void clear() {
+		this.size = 0;
+	}
+}
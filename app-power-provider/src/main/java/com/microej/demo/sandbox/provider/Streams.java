@@ -0,0 +1,41 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Utility methods for the streams of the storage.
+ */
+/* package */ class Streams {
+
+	private Streams() {
+		// Prevent instantiation.
+	}
+
+	/**
+	 * Skips exactly a number of bytes of a stream.
+	 *
+	 * @param input
+	 *            the stream.
+	 * @param count
+	 *            the number of bytes to skip.
+	 * @throws IOException
+	 *             if the end of the stream is reached or if the bytes cannot be skipped.
+	 */
+	/* package */ static void skipFully(InputStream input, long count) throws IOException {
+		long remaining = count;
+		while (remaining > 0) {
+			long skipped = input.skip(remaining);
+			if (skipped <= 0) {
+				throw new IOException();
+			}
+			remaining -= skipped;
+		}
+	}
+}
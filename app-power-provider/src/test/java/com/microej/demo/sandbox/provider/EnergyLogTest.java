@@ -0,0 +1,185 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the checkpoints, the compaction and the recovery of the {@link EnergyLog}, including after a torn record and
+ * an interrupted compaction.
+ */
+public class EnergyLogTest {
+
+	private static final String LOG_FILE = "energy.log"; //$NON-NLS-1$
+	private static final String COMPACTED_FILE = "energy.log.tmp"; //$NON-NLS-1$
+	private static final int RECORD_SIZE = 12;
+	private static final int MAX_RECORDS = 4;
+
+	private final File directory = new File("energy-log-test"); //$NON-NLS-1$
+	private final File otherDirectory = new File("energy-log-test-other"); //$NON-NLS-1$
+
+	@Before
+	public void setUp() {
+		delete(this.directory);
+		delete(this.otherDirectory);
+	}
+
+	@After
+	public void tearDown() {
+		delete(this.directory);
+		delete(this.otherDirectory);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		EnergyLog log = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(0, log.recover());
+		assertEquals(0, log.getRecordCount());
+		assertTrue(this.directory.isDirectory());
+	}
+
+	@Test
+	public void testAppendRecover() throws IOException {
+		EnergyLog log = newLog(10, 20);
+		// The energy has not changed: no record.
+		log.append(20);
+		assertEquals(2, log.getRecordCount());
+		assertEquals(2 * RECORD_SIZE, logFile().length());
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(20, recovered.recover());
+		assertEquals(2, recovered.getRecordCount());
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		EnergyLog log = newLog(1, 2, 3, 4);
+		assertEquals(MAX_RECORDS, log.getRecordCount());
+
+		log.append(Long.MAX_VALUE);
+		assertEquals(1, log.getRecordCount());
+		assertEquals(RECORD_SIZE, logFile().length());
+		assertFalse(compactedFile().exists());
+
+		log.append(6);
+		assertEquals(2, log.getRecordCount());
+		assertEquals(6, new EnergyLog(this.directory, MAX_RECORDS).recover());
+	}
+
+	@Test
+	public void testTornRecord() throws IOException {
+		newLog(1, 2);
+		// Power loss in the middle of the next record.
+		appendBytes(logFile(), new byte[RECORD_SIZE / 2]);
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(2, recovered.recover());
+		// Compacted to be aligned on the records again.
+		assertEquals(1, recovered.getRecordCount());
+		assertEquals(RECORD_SIZE, logFile().length());
+
+		recovered.append(3);
+		assertEquals(3, new EnergyLog(this.directory, MAX_RECORDS).recover());
+	}
+
+	@Test
+	public void testCorruptedRecord() throws IOException {
+		newLog(1, 2);
+		// A complete record whose checksum does not match.
+		byte[] record = new byte[RECORD_SIZE];
+		record[RECORD_SIZE - 1] = 1;
+		appendBytes(logFile(), record);
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(2, recovered.recover());
+		assertEquals(RECORD_SIZE, logFile().length());
+	}
+
+	@Test
+	public void testNoValidRecord() throws IOException {
+		this.directory.mkdirs();
+		appendBytes(logFile(), new byte[RECORD_SIZE + 1]);
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(0, recovered.recover());
+		assertEquals(RECORD_SIZE, logFile().length());
+	}
+
+	@Test
+	public void testCompactionInterruptedBeforeDeletion() throws IOException {
+		newLog(1, 2);
+		// The compacted file may be incomplete: the log is still the reference.
+		appendBytes(compactedFile(), new byte[RECORD_SIZE / 2]);
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(2, recovered.recover());
+		assertEquals(2, recovered.getRecordCount());
+		assertFalse(compactedFile().exists());
+	}
+
+	@Test
+	public void testCompactionInterruptedAfterDeletion() throws IOException {
+		// The compacted file is complete once the log is deleted.
+		EnergyLog other = new EnergyLog(this.otherDirectory, MAX_RECORDS);
+		other.recover();
+		other.append(7);
+		this.directory.mkdirs();
+		assertTrue(new File(this.otherDirectory, LOG_FILE).renameTo(compactedFile()));
+
+		EnergyLog recovered = new EnergyLog(this.directory, MAX_RECORDS);
+		assertEquals(7, recovered.recover());
+		assertEquals(1, recovered.getRecordCount());
+		assertTrue(logFile().exists());
+		assertFalse(compactedFile().exists());
+	}
+
+	private EnergyLog newLog(long... energies) throws IOException {
+		EnergyLog log = new EnergyLog(this.directory, MAX_RECORDS);
+		log.recover();
+		for (long energy : energies) {
+			log.append(energy);
+		}
+		return log;
+	}
+
+	private File logFile() {
+		return new File(this.directory, LOG_FILE);
+	}
+
+	private File compactedFile() {
+		return new File(this.directory, COMPACTED_FILE);
+	}
+
+	private static void appendBytes(File file, byte[] bytes) throws IOException {
+		FileOutputStream output = new FileOutputStream(file, true);
+		try {
+			output.write(bytes);
+		} finally {
+			output.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
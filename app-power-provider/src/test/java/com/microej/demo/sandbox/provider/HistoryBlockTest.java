@@ -0,0 +1,116 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * Checks the delta, variable-length and zigzag encoding of the {@link HistoryBlock}.
+ */
+public class HistoryBlockTest {
+
+	@Test
+	public void testRegularSampling() {
+		int count = 64;
+		long[] timestamps = new long[count];
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			timestamps[i] = 1700000000000L + i * 4000L;
+			values[i] = 1000 + (i % 7) * 100 - 300;
+		}
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, count);
+		assertEquals(timestamps[0], block.getFirstTimestamp());
+		assertEquals(timestamps[count - 1], block.getLastTimestamp());
+		// Regular sampling period and small value changes: about 4 bytes per sample.
+		assertTrue(block.getData().length <= count * 4 + 16);
+		assertDecoded(block, timestamps, values, count);
+	}
+
+	@Test
+	public void testExtremeValues() {
+		long[] timestamps = { 0, 0, 1, 128, 16384, Long.MAX_VALUE / 2, Long.MAX_VALUE };
+		int[] values = { Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, timestamps.length);
+		assertDecoded(block, timestamps, values, timestamps.length);
+	}
+
+	@Test
+	public void testNegativeFirstSample() {
+		long[] timestamps = { -5000, -1000, 3000 };
+		int[] values = { -2000, 2000, -2000 };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, timestamps.length);
+		assertDecoded(block, timestamps, values, timestamps.length);
+	}
+
+	@Test
+	public void testPartialCount() {
+		long[] timestamps = { 10, 20, 30, 40 };
+		int[] values = { 1, 2, 3, 4 };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, 2);
+		assertEquals(20, block.getLastTimestamp());
+		assertDecoded(block, timestamps, values, 2);
+	}
+
+	@Test
+	public void testRange() {
+		long[] timestamps = { 10, 20, 20, 30, 40 };
+		int[] values = { 1, 2, 3, 4, 5 };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, timestamps.length);
+
+		HistoryBuffer result = new HistoryBuffer(10);
+		block.decode(20, 30, result);
+		assertRecords(new long[] { 20, 2, 20, 3, 30, 4 }, result.toArray());
+
+		result = new HistoryBuffer(10);
+		block.decode(41, 100, result);
+		assertEquals(0, result.toArray().length);
+	}
+
+	@Test
+	public void testFullConsumer() {
+		long[] timestamps = { 10, 20, 30 };
+		int[] values = { 1, 2, 3 };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, timestamps.length);
+
+		HistoryBuffer result = new HistoryBuffer(2);
+		block.decode(0, 100, result);
+		assertRecords(new long[] { 10, 1, 20, 2 }, result.toArray());
+	}
+
+	@Test
+	public void testDecodeFromData() {
+		long[] timestamps = { 100, 200, 300 };
+		int[] values = { 7, -7, 7 };
+		HistoryBlock block = HistoryBlock.encode(timestamps, values, timestamps.length);
+		// As read back from a segment file.
+		byte[] data = block.getData().clone();
+		assertDecoded(new HistoryBlock(data, 100, 300), timestamps, values, timestamps.length);
+	}
+
+	private static void assertDecoded(HistoryBlock block, long[] timestamps, int[] values, int count) {
+		HistoryBuffer result = new HistoryBuffer(count + 1);
+		block.decode(Long.MIN_VALUE, Long.MAX_VALUE, result);
+		long[] records = result.toArray();
+		assertEquals(count * PowerService.HISTORY_RECORD_SIZE, records.length);
+		for (int i = 0; i < count; i++) {
+			assertEquals(timestamps[i], records[i * PowerService.HISTORY_RECORD_SIZE + PowerService.HISTORY_TIMESTAMP]);
+			assertEquals(values[i], records[i * PowerService.HISTORY_RECORD_SIZE + PowerService.HISTORY_POWER]);
+		}
+	}
+
+	private static void assertRecords(long[] expected, long[] records) {
+		assertEquals(expected.length, records.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], records[i]);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the intervals of the {@link HistoryRollup}: their minimum and maximum samples, their order and their
+ * eviction.
+ */
+public class HistoryRollupTest {
+
+	private static final long INTERVAL = 1000;
+
+	@Test
+	public void testInvalidArguments() {
+		assertInvalid(0, 1);
+		assertInvalid(INTERVAL, 0);
+		assertInvalid((long) Integer.MAX_VALUE + 1, 1);
+	}
+
+	@Test
+	public void testMinMax() {
+		HistoryRollup rollup = new HistoryRollup(INTERVAL, 10);
+		rollup.add(1000, 50);
+		rollup.add(1200, 10);
+		rollup.add(1500, 90);
+		rollup.add(1999, 30);
+		// Maximum before minimum.
+		rollup.add(2100, 70);
+		rollup.add(2200, 5);
+		// Single sample.
+		rollup.add(3000, 40);
+		assertRecords(new long[] { 1200, 10, 1500, 90, 2100, 70, 2200, 5, 3000, 40 }, read(rollup, 0, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testSameMinMax() {
+		HistoryRollup rollup = new HistoryRollup(INTERVAL, 10);
+		rollup.add(1000, 50);
+		rollup.add(1100, 50);
+		// The first of equal samples is kept.
+		assertRecords(new long[] { 1000, 50 }, read(rollup, 0, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testRange() {
+		HistoryRollup rollup = new HistoryRollup(INTERVAL, 10);
+		for (int i = 0; i < 5; i++) {
+			rollup.add(i * INTERVAL + 100, i);
+			rollup.add(i * INTERVAL + 900, i + 10);
+		}
+		// Only the samples of the range, even in the intervals overlapping its bounds.
+		assertRecords(new long[] { 1900, 11, 2100, 2, 2900, 12, 3100, 3 }, read(rollup, 1500, 3500));
+		assertEquals(0, read(rollup, 5000, 6000).length);
+	}
+
+	@Test
+	public void testEviction() {
+		HistoryRollup rollup = new HistoryRollup(INTERVAL, 2);
+		assertFalse(rollup.covers(0));
+		rollup.add(1000, 1);
+		rollup.add(2000, 2);
+		assertTrue(rollup.covers(1000));
+		assertTrue(rollup.covers(1500));
+		assertFalse(rollup.covers(999));
+
+		// The oldest interval is dropped.
+		rollup.add(3000, 3);
+		assertFalse(rollup.covers(1500));
+		assertTrue(rollup.covers(2000));
+		assertRecords(new long[] { 2000, 2, 3000, 3 }, read(rollup, 0, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testFullConsumer() {
+		HistoryRollup rollup = new HistoryRollup(INTERVAL, 10);
+		for (int i = 0; i < 5; i++) {
+			rollup.add(i * INTERVAL, i);
+		}
+		HistoryBuffer result = new HistoryBuffer(2);
+		rollup.read(0, Long.MAX_VALUE, result);
+		assertRecords(new long[] { 0, 0, 1000, 1 }, result.toArray());
+	}
+
+	private static long[] read(HistoryRollup rollup, long from, long to) {
+		HistoryBuffer result = new HistoryBuffer(100);
+		rollup.read(from, to, result);
+		return result.toArray();
+	}
+
+	private static void assertInvalid(long interval, int capacity) {
+		try {
+			new HistoryRollup(interval, capacity);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		throw new AssertionError();
+	}
+
+	private static void assertRecords(long[] expected, long[] records) {
+		assertEquals(expected.length, records.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], records[i]);
+		}
+	}
+}
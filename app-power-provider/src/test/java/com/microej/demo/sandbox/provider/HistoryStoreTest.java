@@ -0,0 +1,292 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * Checks that the samples written in the {@link HistoryStore} segments are read back exactly, including after failed
+ * writes, a restart and a clock set back.
+ */
+public class HistoryStoreTest {
+
+	private static final int BLOCK_SIZE = 4;
+	private static final int BLOCKS_PER_SEGMENT = 2;
+	/** Long enough for the test samples never to expire. */
+	private static final long RETENTION = Long.MAX_VALUE / 2;
+	private static final long PERIOD = 1000;
+
+	private final File directory = new File("history-store-test"); //$NON-NLS-1$
+
+	@Before
+	public void setUp() {
+		delete(this.directory);
+	}
+
+	@After
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		HistoryStore store = newStore();
+		int count = BLOCK_SIZE * BLOCKS_PER_SEGMENT * 3 + 1;
+		append(store, 0, count);
+		store.flush();
+		assertEquals(3, countFiles(".seg")); //$NON-NLS-1$
+
+		// Written segments, pending samples of the incomplete block.
+		assertSamples(store.read(0, Long.MAX_VALUE, count + 1), 0, count);
+		assertSamples(store.read(5 * PERIOD, 9 * PERIOD, count), 5, 5);
+		assertSamples(store.read(0, Long.MAX_VALUE, 3), 0, 3);
+
+		store.close();
+		HistoryStore reopened = newStore();
+		assertSamples(reopened.read(0, Long.MAX_VALUE, count + 1), 0, count);
+	}
+
+	@Test
+	public void testPendingBlocksRead() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE * 3 + 2);
+		// Nothing flushed: the full blocks are pending.
+		assertEquals(0, countFiles(".idx")); //$NON-NLS-1$
+		assertSamples(store.read(PERIOD, Long.MAX_VALUE, 100), 1, BLOCK_SIZE * 3 + 1);
+	}
+
+	@Test
+	public void testDownsampledRead() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE * 3);
+		store.flush();
+		// Two buckets of 6 samples, each one giving its minimum then its maximum.
+		assertSamples(store.readDownsampled(0, Long.MAX_VALUE, 4), new int[] { 0, 5, 6, 11 });
+		// More points than samples: one sample per bucket, and no empty records.
+		long[] records = store.readDownsampled(0, Long.MAX_VALUE, 100);
+		assertEquals(BLOCK_SIZE * 3 * PowerService.HISTORY_RECORD_SIZE, records.length);
+		assertEquals(0, store.readDownsampled(100 * PERIOD, 200 * PERIOD, 100).length);
+	}
+
+	@Test
+	public void testFailedIndexWrite() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE);
+		store.flush();
+		File index = onlyFile(".idx"); //$NON-NLS-1$
+		File segment = onlyFile(".seg"); //$NON-NLS-1$
+		long segmentLength = segment.length();
+
+		// The block is appended to the segment file, but its index entry cannot be written.
+		assertTrue(index.renameTo(new File(this.directory, "index.bak"))); //$NON-NLS-1$
+		assertTrue(index.mkdir());
+		append(store, BLOCK_SIZE, BLOCK_SIZE);
+		try {
+			store.flush();
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+		assertTrue(segment.length() > segmentLength);
+
+		// Retried in the same segment, after the unindexed bytes.
+		assertTrue(index.delete());
+		assertTrue(new File(this.directory, "index.bak").renameTo(index)); //$NON-NLS-1$
+		store.flush();
+		assertEquals(1, countFiles(".seg")); //$NON-NLS-1$
+		assertSamples(store.read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE * 2);
+		assertSamples(newStore().read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE * 2);
+	}
+
+	@Test
+	public void testRepeatedFailures() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE);
+		store.flush();
+		File segment = onlyFile(".seg"); //$NON-NLS-1$
+		File backup = new File(this.directory, "segment.bak"); //$NON-NLS-1$
+		assertTrue(segment.renameTo(backup));
+		assertTrue(segment.mkdir());
+
+		append(store, BLOCK_SIZE, BLOCK_SIZE);
+		for (int i = 0; i < 10; i++) {
+			try {
+				store.flush();
+				fail();
+			} catch (IOException e) {
+				// Expected.
+			}
+		}
+		assertTrue(segment.delete());
+		assertTrue(backup.renameTo(segment));
+
+		// The retries do not start new segments.
+		store.flush();
+		assertEquals(1, countFiles(".seg")); //$NON-NLS-1$
+		assertEquals(1, countFiles(".idx")); //$NON-NLS-1$
+		assertSamples(store.read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE * 2);
+	}
+
+	@Test
+	public void testTornIndexEntry() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE);
+		store.flush();
+		File index = onlyFile(".idx"); //$NON-NLS-1$
+		File segment = onlyFile(".seg"); //$NON-NLS-1$
+
+		// The next write fails after writing a part of its index entry.
+		assertTrue(segment.renameTo(new File(this.directory, "segment.bak"))); //$NON-NLS-1$
+		assertTrue(segment.mkdir());
+		append(store, BLOCK_SIZE, BLOCK_SIZE);
+		try {
+			store.flush();
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+		assertTrue(segment.delete());
+		assertTrue(new File(this.directory, "segment.bak").renameTo(segment)); //$NON-NLS-1$
+		appendBytes(index, new byte[5]);
+
+		// Written in a new segment, the torn entry being the last one of its segment.
+		store.flush();
+		assertEquals(2, countFiles(".seg")); //$NON-NLS-1$
+		assertSamples(store.read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE * 2);
+		assertSamples(newStore().read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE * 2);
+	}
+
+	@Test
+	public void testClockSetBack() throws IOException {
+		HistoryStore store = newStore();
+		// A whole block with the same timestamp, the next segment cannot be named after its first sample.
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			store.append(i, 10 * PERIOD);
+		}
+		store.close();
+
+		// Restarted with the clock set back.
+		store = newStore();
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			store.append(BLOCK_SIZE + i, PERIOD + i);
+		}
+		store.close();
+		assertEquals(2, countFiles(".seg")); //$NON-NLS-1$
+
+		// The new samples are clamped to the last stored timestamp.
+		long[] records = newStore().read(0, 10 * PERIOD, 100);
+		assertEquals(BLOCK_SIZE * 2 * PowerService.HISTORY_RECORD_SIZE, records.length);
+		for (int i = 0; i < BLOCK_SIZE * 2; i++) {
+			assertEquals(10 * PERIOD, records[i * PowerService.HISTORY_RECORD_SIZE + PowerService.HISTORY_TIMESTAMP]);
+			assertEquals(i, records[i * PowerService.HISTORY_RECORD_SIZE + PowerService.HISTORY_POWER]);
+		}
+	}
+
+	@Test
+	public void testEmptySegmentDeleted() throws IOException {
+		HistoryStore store = newStore();
+		append(store, 0, BLOCK_SIZE);
+		store.close();
+		// Left by a write that failed before its index entry.
+		appendBytes(new File(this.directory, "99000.seg"), new byte[3]); //$NON-NLS-1$
+		appendBytes(new File(this.directory, "99000.idx"), new byte[5]); //$NON-NLS-1$
+
+		store = newStore();
+		assertEquals(1, countFiles(".seg")); //$NON-NLS-1$
+		assertFalse(new File(this.directory, "99000.idx").exists()); //$NON-NLS-1$
+		assertSamples(store.read(0, Long.MAX_VALUE, 100), 0, BLOCK_SIZE);
+	}
+
+	private HistoryStore newStore() {
+		HistoryStore store = new HistoryStore(this.directory, BLOCK_SIZE, BLOCKS_PER_SEGMENT, RETENTION,
+				new HistoryRollup[0]);
+		store.open();
+		return store;
+	}
+
+	/**
+	 * Appends samples whose value is their index and whose timestamp is their index times the period.
+	 */
+	private static void append(HistoryStore store, int first, int count) {
+		for (int i = first; i < first + count; i++) {
+			store.append(i, i * PERIOD);
+		}
+	}
+
+	private static void assertSamples(long[] records, int first, int count) {
+		assertEquals(count * PowerService.HISTORY_RECORD_SIZE, records.length);
+		for (int i = 0; i < count; i++) {
+			int offset = i * PowerService.HISTORY_RECORD_SIZE;
+			assertEquals((first + i) * PERIOD, records[offset + PowerService.HISTORY_TIMESTAMP]);
+			assertEquals(first + i, records[offset + PowerService.HISTORY_POWER]);
+		}
+	}
+
+	private static void assertSamples(long[] records, int[] indexes) {
+		assertEquals(indexes.length * PowerService.HISTORY_RECORD_SIZE, records.length);
+		for (int i = 0; i < indexes.length; i++) {
+			int offset = i * PowerService.HISTORY_RECORD_SIZE;
+			assertEquals(indexes[i] * PERIOD, records[offset + PowerService.HISTORY_TIMESTAMP]);
+			assertEquals(indexes[i], records[offset + PowerService.HISTORY_POWER]);
+		}
+	}
+
+	private int countFiles(String extension) {
+		int count = 0;
+		String[] names = this.directory.list();
+		if (names != null) {
+			for (String name : names) {
+				if (name.endsWith(extension)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private File onlyFile(String extension) {
+		assertEquals(1, countFiles(extension));
+		for (String name : this.directory.list()) {
+			if (name.endsWith(extension)) {
+				return new File(this.directory, name);
+			}
+		}
+		throw new AssertionError();
+	}
+
+	private static void appendBytes(File file, byte[] bytes) throws IOException {
+		FileOutputStream output = new FileOutputStream(file, true);
+		try {
+			output.write(bytes);
+		} finally {
+			output.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
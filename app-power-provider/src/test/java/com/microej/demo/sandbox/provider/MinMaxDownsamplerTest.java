@@ -0,0 +1,97 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+/**
+ * Checks the buckets of the {@link MinMaxDownsampler} and the size of its result.
+ */
+public class MinMaxDownsamplerTest {
+
+	@Test
+	public void testBucketWidth() {
+		assertEquals(10, new MinMaxDownsampler(0, 99, 10).getBucketWidth());
+		// The last bucket includes the end of the range.
+		assertEquals(11, new MinMaxDownsampler(0, 100, 10).getBucketWidth());
+		assertEquals(1, new MinMaxDownsampler(50, 50, 4).getBucketWidth());
+	}
+
+	@Test
+	public void testMinMax() {
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(0, 99, 2);
+		// First bucket: the minimum is before the maximum.
+		downsampler.add(0, 50);
+		downsampler.add(10, 20);
+		downsampler.add(20, 80);
+		downsampler.add(49, 60);
+		// Second bucket: the maximum is before the minimum.
+		downsampler.add(50, 50);
+		downsampler.add(60, 90);
+		downsampler.add(70, -10);
+		downsampler.add(99, 0);
+		assertFalse(downsampler.isFull());
+		assertRecords(new long[] { 10, 20, 20, 80, 60, 90, 70, -10 }, downsampler.toArray());
+	}
+
+	@Test
+	public void testSingleSampleBucket() {
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(0, 99, 2);
+		downsampler.add(5, 7);
+		downsampler.add(6, 7);
+		// Same minimum and maximum: the first sample only.
+		assertRecords(new long[] { 5, 7 }, downsampler.toArray());
+	}
+
+	@Test
+	public void testSparseRange() {
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(0, 9999, 1000);
+		downsampler.add(15, 1);
+		downsampler.add(16, 2);
+		downsampler.add(5000, 3);
+		// Sized from the filled buckets, not two samples per bucket.
+		assertRecords(new long[] { 15, 1, 16, 2, 5000, 3 }, downsampler.toArray());
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, new MinMaxDownsampler(0, 99, 10).toArray().length);
+	}
+
+	@Test
+	public void testOutOfRange() {
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(100, 199, 10);
+		downsampler.add(99, 1);
+		downsampler.add(-100, 1);
+		downsampler.add(200, 1);
+		downsampler.add(150, 2);
+		assertRecords(new long[] { 150, 2 }, downsampler.toArray());
+	}
+
+	@Test
+	public void testFromRollup() {
+		HistoryRollup rollup = new HistoryRollup(10, 100);
+		for (int i = 0; i < 100; i++) {
+			rollup.add(i, i % 10 == 3 ? 100 : i % 10);
+		}
+		// Buckets of 20 ms, each one made of two intervals of the rollup.
+		MinMaxDownsampler downsampler = new MinMaxDownsampler(0, 99, 5);
+		rollup.read(0, 99, downsampler);
+		assertRecords(new long[] { 0, 0, 3, 100, 20, 0, 23, 100, 40, 0, 43, 100, 60, 0, 63, 100, 80, 0, 83, 100 },
+				downsampler.toArray());
+	}
+
+	private static void assertRecords(long[] expected, long[] records) {
+		assertEquals(expected.length, records.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], records[i]);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.microej.demo.sandbox.sharedinterface.PowerService;
+
+/**
+ * Checks that the {@link SampleRegister} readers get consistent samples with monotonic sequence numbers while a writer
+ * publishes.
+ */
+public class SampleRegisterTest {
+
+	private static final int SAMPLE_COUNT = 5000000;
+	private static final int READER_COUNT = 4;
+	/** Timestamp of a sample, derived from its sequence number so that a torn read is detected. */
+	private static final long TIMESTAMP_FACTOR = 1000;
+
+	/** Read by the readers at each loop, volatile rather than guarded to keep the loop short. */
+	private volatile boolean writing;
+	// Guarded by this.
+	private int inconsistentCount;
+	private int nonMonotonicCount;
+	private long readCount;
+
+	@Test
+	public void testEmpty() {
+		SampleRegister register = new SampleRegister();
+		long[] sample = new long[PowerService.SAMPLE_SIZE];
+		assertEquals(0, register.read(sample));
+		assertEquals(-1, sample[PowerService.SAMPLE_SEQUENCE]);
+		assertEquals(-1, register.getSequence());
+	}
+
+	@Test
+	public void testPublish() {
+		SampleRegister register = new SampleRegister();
+		long[] sample = new long[PowerService.SAMPLE_SIZE];
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, register.publish(i * 10, i * TIMESTAMP_FACTOR));
+			assertEquals(0, register.read(sample));
+			assertEquals(i * 10, sample[PowerService.SAMPLE_POWER]);
+			assertEquals(i * TIMESTAMP_FACTOR, sample[PowerService.SAMPLE_TIMESTAMP]);
+			assertEquals(i, sample[PowerService.SAMPLE_SEQUENCE]);
+			assertEquals(i * 10, register.getPower());
+			assertEquals(i * TIMESTAMP_FACTOR, register.getTimestamp());
+			assertEquals(i, register.getSequence());
+		}
+	}
+
+	/**
+	 * One writer publishes samples whose value and timestamp are derived from their sequence number, while several
+	 * readers check each read sample.
+	 * <p>
+	 * On a single core, a read is torn only if its reader is preempted in the middle of the read: the readers loop
+	 * without lock so that they are mostly preempted in {@link SampleRegister#read(long[])}.
+	 */
+	@Test
+	public void testConcurrentReads() throws InterruptedException {
+		final SampleRegister register = new SampleRegister();
+		this.writing = true;
+		Thread[] readers = new Thread[READER_COUNT];
+		for (int i = 0; i < READER_COUNT; i++) {
+			readers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					readWhileWriting(register);
+				}
+			});
+			readers[i].start();
+		}
+
+		for (int i = 0; i < SAMPLE_COUNT; i++) {
+			int sequence = register.publish(i, i * TIMESTAMP_FACTOR);
+			assertEquals(i, sequence);
+		}
+		this.writing = false;
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		synchronized (this) {
+			assertEquals(0, this.inconsistentCount);
+			assertEquals(0, this.nonMonotonicCount);
+			assertTrue(this.readCount > 0);
+		}
+	}
+
+	private void readWhileWriting(SampleRegister register) {
+		long[] sample = new long[PowerService.SAMPLE_SIZE];
+		long lastSequence = -1;
+		int inconsistent = 0;
+		int nonMonotonic = 0;
+		long reads = 0;
+		while (true) {
+			boolean last = !this.writing;
+			register.read(sample);
+			reads++;
+			long sequence = sample[PowerService.SAMPLE_SEQUENCE];
+			if (sequence >= 0 && (sample[PowerService.SAMPLE_POWER] != sequence
+					|| sample[PowerService.SAMPLE_TIMESTAMP] != sequence * TIMESTAMP_FACTOR)) {
+				inconsistent++;
+			}
+			if (sequence < lastSequence) {
+				nonMonotonic++;
+			}
+			lastSequence = sequence;
+			if (last) {
+				break;
+			}
+		}
+		synchronized (this) {
+			this.inconsistentCount += inconsistent;
+			this.nonMonotonicCount += nonMonotonic;
+			this.readCount += reads;
+		}
+	}
+}
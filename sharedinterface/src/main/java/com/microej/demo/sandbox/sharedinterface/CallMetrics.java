@@ -0,0 +1,127 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+
+/**
+ * Registry of the proxy metrics of a feature.
+ * <p>
+ * Each feature has its own copy of this class: it holds the metrics of the calls made by the feature through the
+ * shared interfaces. The metrics of a proxy are registered when its class is initialized, that is when the feature
+ * receives its first reference to an object of another feature implementing the interface.
+ * <p>
+ * The metrics can be read locally or published in a {@link CallMetricsDirectory} with {@link #getSource(String)} to be
+ * read by any feature.
+ */
+public class CallMetrics {
+
+	private static final ProxyMetrics[] EMPTY = new ProxyMetrics[0];
+
+	// Guarded by CallMetrics.class.
+	private static ProxyMetrics[] proxyMetrics = EMPTY;
+	@Nullable
+	private static CallMetricsSource source;
+
+	private CallMetrics() {
+		// Prevent instantiation.
+	}
+
+	/* package */ static synchronized void register(ProxyMetrics metrics) {
+		int interfaceId = metrics.getInterfaceId();
+		ProxyMetrics[] proxyMetrics = CallMetrics.proxyMetrics;
+		if (interfaceId >= proxyMetrics.length) {
+			ProxyMetrics[] newProxyMetrics = new ProxyMetrics[interfaceId + 1];
+			System.arraycopy(proxyMetrics, 0, newProxyMetrics, 0, proxyMetrics.length);
+			proxyMetrics = newProxyMetrics;
+			CallMetrics.proxyMetrics = proxyMetrics;
+		}
+		proxyMetrics[interfaceId] = metrics;
+	}
+
+	/**
+	 * Gets the metrics of the calls made by this feature through a shared interface.
+	 *
+	 * @param interfaceId
+	 *            the index of the interface in the shared interface definition.
+	 * @return the proxy metrics, or <code>null</code> if this feature has not used the interface.
+	 */
+	@Nullable
+	public static synchronized ProxyMetrics getProxyMetrics(int interfaceId) {
+		ProxyMetrics[] proxyMetrics = CallMetrics.proxyMetrics;
+		return interfaceId >= 0 && interfaceId < proxyMetrics.length ? proxyMetrics[interfaceId] : null;
+	}
+
+	/**
+	 * Gets the source giving access to the metrics of this feature from other features.
+	 *
+	 * @param name
+	 *            the name of this feature, used only the first time.
+	 * @return the source of this feature.
+	 */
+	public static synchronized CallMetricsSource getSource(String name) {
+		CallMetricsSource source = CallMetrics.source;
+		if (source == null) {
+			source = new LocalSource(name);
+			CallMetrics.source = source;
+		}
+		return source;
+	}
+
+	/**
+	 * Resets the metrics of all the shared interfaces used by this feature.
+	 */
+	public static void reset() {
+		ProxyMetrics[] proxyMetrics;
+		synchronized (CallMetrics.class) {
+			proxyMetrics = CallMetrics.proxyMetrics;
+		}
+		for (ProxyMetrics metrics : proxyMetrics) {
+			if (metrics != null) {
+				metrics.reset();
+			}
+		}
+	}
+
+	private static class LocalSource implements CallMetricsSource {
+
+		private final String name;
+
+		private LocalSource(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public int[] getMetrics(int interfaceId) {
+			ProxyMetrics metrics = getProxyMetrics(interfaceId);
+			if (metrics == null) {
+				return new int[0];
+			}
+			int methodCount = metrics.getMethodCount();
+			int[] values = new int[methodCount * METRIC_COUNT];
+			for (int method = 0; method < methodCount; method++) {
+				int offset = method * METRIC_COUNT;
+				values[offset + METRIC_CALL_COUNT] = metrics.getCallCount(method);
+				values[offset + METRIC_CALL_RATE] = metrics.getCallRate(method);
+				values[offset + METRIC_MEAN_LATENCY] = metrics.getMeanLatency(method);
+				values[offset + METRIC_MAX_LATENCY] = metrics.getMaxLatency(method);
+				values[offset + METRIC_EXCEPTION_COUNT] = metrics.getFailureCount(method);
+			}
+			return values;
+		}
+
+		@Override
+		public void reset() {
+			CallMetrics.reset();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+
+/**
+ * Shared interface to publish the call metrics of the features and read them from any feature.
+ */
+public interface CallMetricsDirectory {
+
+	/**
+	 * Adds the call metrics of a feature.
+	 *
+	 * @param source
+	 *            source to add
+	 */
+	void addSource(CallMetricsSource source);
+
+	/**
+	 * Removes the call metrics of a feature.
+	 *
+	 * @param source
+	 *            source to remove
+	 */
+	void removeSource(CallMetricsSource source);
+
+	/**
+	 * Gets the number of published sources.
+	 *
+	 * @return the source count or -1 if an error occurred.
+	 */
+	int getSourceCount();
+
+	/**
+	 * Gets a published source.
+	 *
+	 * @param index
+	 *            the index of the source, between 0 and the source count.
+	 * @return the source or <code>null</code> if the index is out of range or an error occurred.
+	 */
+	@Nullable
+	CallMetricsSource getSource(int index);
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Java
+ *
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+import ej.kf.DeadFeatureException;
+import ej.kf.Proxy;
+
+/**
+ * Proxy class for {@link CallMetricsDirectory} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
+ */
+public class CallMetricsDirectoryProxy extends Proxy<CallMetricsDirectory> implements CallMetricsDirectory, TrackedProxy {
+
+	/** Index of {@link CallMetricsDirectory} in the shared interface definition. */
+	public static final int INTERFACE_ID = 3;
+
+	private static final int ADD_SOURCE = 0;
+	private static final int REMOVE_SOURCE = 1;
+	private static final int GET_SOURCE_COUNT = 2;
+	private static final int GET_SOURCE = 3;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "CallMetricsDirectory", new String[] { //$NON-NLS-1$
+			"addSource", //$NON-NLS-1$
+			"removeSource", //$NON-NLS-1$
+			"getSourceCount", //$NON-NLS-1$
+			"getSource", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
+
+	@Override
+	public void addSource(CallMetricsSource source) {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(ADD_SOURCE, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(ADD_SOURCE, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+	@Override
+	public void removeSource(CallMetricsSource source) {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(REMOVE_SOURCE, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(REMOVE_SOURCE, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+	@Override
+	public int getSourceCount() {
+		long startTime = METRICS.start();
+		try {
+			int result = invokeInt();
+			METRICS.succeeded(GET_SOURCE_COUNT, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_SOURCE_COUNT, startTime, e);
+			trackFailure(e);
+			return -1;
+		}
+	}
+
+	@Nullable
+	@Override
+	public CallMetricsSource getSource(int index) {
+		long startTime = METRICS.start();
+		try {
+			CallMetricsSource result = (CallMetricsSource) invokeRef();
+			METRICS.succeeded(GET_SOURCE, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_SOURCE, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Publishes the call metrics of a feature in the {@link CallMetricsDirectory} service.
+ * <p>
+ * The directory is tracked by a {@link ServiceTracker}: the metrics are published once the directory is registered,
+ * even if the power provider is started after the publishing feature, and published again in the new directory when
+ * the power provider is restarted.
+ */
+public class CallMetricsPublisher implements ServiceTracker.Listener<CallMetricsDirectory> {
+
+	private final CallMetricsSource source;
+	private final ServiceTracker<CallMetricsDirectory> directoryTracker;
+
+	/**
+	 * Creates a publisher.
+	 *
+	 * @param name
+	 *            the name of the feature.
+	 * @see CallMetrics#getSource(String)
+	 */
+	public CallMetricsPublisher(String name) {
+		this.source = CallMetrics.getSource(name);
+		this.directoryTracker = new ServiceTracker<>(CallMetricsDirectory.class, this);
+	}
+
+	/**
+	 * Starts publishing the call metrics.
+	 */
+	public void open() {
+		this.directoryTracker.open();
+	}
+
+	/**
+	 * Stops publishing the call metrics and removes them from the directory.
+	 */
+	public void close() {
+		this.directoryTracker.close();
+	}
+
+	@Override
+	public void serviceAdded(CallMetricsDirectory directory) {
+		directory.addSource(this.source);
+	}
+
+	@Override
+	public void serviceRemoved(CallMetricsDirectory directory) {
+		directory.removeSource(this.source);
+	}
+}
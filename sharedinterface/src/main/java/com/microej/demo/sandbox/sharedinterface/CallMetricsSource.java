@@ -0,0 +1,63 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+
+/**
+ * Shared interface to read the cross-feature call metrics of a feature.
+ * <p>
+ * The metrics of the calls made by a feature through a shared interface are identified by the index of the interface
+ * in the shared interface definition, which is the same in all the features (see the <code>INTERFACE_ID</code>
+ * constant of the proxies). The metrics of all the methods of an interface are read with a single cross-feature call:
+ * the values of the method <code>m</code> start at index <code>m * METRIC_COUNT</code> of the returned array. The
+ * method names can be read from the proxy metrics of the interface in the reading feature, for instance
+ * {@link PowerServiceProxy#getMetrics()}.
+ * <p>
+ * Only the exception count is measured when the proxy metrics are not enabled, see
+ * {@link ProxyMetrics#METRICS_CONSTANT}.
+ */
+public interface CallMetricsSource {
+
+	/** Offset of the number of calls of a method. */
+	int METRIC_CALL_COUNT = 0;
+	/** Offset of the number of calls per second of a method. */
+	int METRIC_CALL_RATE = 1;
+	/** Offset of the mean call latency of a method, in microseconds. */
+	int METRIC_MEAN_LATENCY = 2;
+	/** Offset of the maximum call latency of a method, in microseconds. */
+	int METRIC_MAX_LATENCY = 3;
+	/** Offset of the number of calls of a method that threw an exception. */
+	int METRIC_EXCEPTION_COUNT = 4;
+	/** Number of metrics of a method. */
+	int METRIC_COUNT = 5;
+
+	/**
+	 * Gets the name of the feature measured by this source.
+	 *
+	 * @return the feature name or <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	String getName();
+
+	/**
+	 * Gets the metrics of the calls made through a shared interface.
+	 *
+	 * @param interfaceId
+	 *            the index of the interface in the shared interface definition.
+	 * @return the metrics of each method of the interface, empty if the feature has not used the interface, or
+	 *         <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	int[] getMetrics(int interfaceId);
+
+	/**
+	 * Resets the metrics of all the shared interfaces.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Java
+ *
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+import ej.kf.DeadFeatureException;
+import ej.kf.Proxy;
+
+/**
+ * Proxy class for {@link CallMetricsSource} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
+ */
+public class CallMetricsSourceProxy extends Proxy<CallMetricsSource> implements CallMetricsSource, TrackedProxy {
+
+	/** Index of {@link CallMetricsSource} in the shared interface definition. */
+	public static final int INTERFACE_ID = 2;
+
+	private static final int GET_NAME = 0;
+	private static final int GET_METRICS = 1;
+	private static final int RESET = 2;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "CallMetricsSource", new String[] { //$NON-NLS-1$
+			"getName", //$NON-NLS-1$
+			"getMetrics", //$NON-NLS-1$
+			"reset", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
+
+	@Nullable
+	@Override
+	public String getName() {
+		long startTime = METRICS.start();
+		try {
+			String result = (String) invokeRef();
+			METRICS.succeeded(GET_NAME, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_NAME, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+	@Nullable
+	@Override
+	public int[] getMetrics(int interfaceId) {
+		long startTime = METRICS.start();
+		try {
+			int[] result = (int[]) invokeRef();
+			METRICS.succeeded(GET_METRICS, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_METRICS, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+	@Override
+	public void reset() {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(RESET, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(RESET, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.bon.Util;
+
+/**
+ * Measures the end-to-end delivery of the power samples to a consumer, from their sequence numbers and timestamps.
+ * <p>
+ * The sequence number of a sample is incremented by the provider for each sample, so a difference greater than one
+ * between two received samples is a gap: the difference minus one samples have been missed. A sample received more
+ * than the stale threshold after its timestamp is stale. The timestamps are given by
+ * {@link Util#platformTimeMillis()}, which is monotonic and shared by all the features.
+ * <p>
+ * The samples dropped on purpose by the provider, for instance the samples conflated while the consumer had no
+ * credit, can be given to {@link #record(int, long, int)}: they are counted apart and not as missed.
+ * <p>
+ * A sequence number lower than or equal to the previous one is counted as out of order, and the next gaps are computed
+ * from it: it is usually the first sample of a restarted provider. A consumer binding a new provider calls
+ * {@link #reset()} so that its first sample is not counted as out of order.
+ */
+public class DeliveryMonitor {
+
+	private final int staleThreshold;
+
+	// Guarded by this.
+	private boolean started;
+	private int lastSequence;
+	private int receivedCount;
+	private int missedCount;
+	private int droppedCount;
+	/** Samples reported as dropped but not found in a gap yet. */
+	private int pendingDroppedCount;
+	private int gapCount;
+	private int outOfOrderCount;
+	private int staleCount;
+	private long maxAge;
+
+	/**
+	 * Creates a delivery monitor.
+	 *
+	 * @param staleThreshold
+	 *            the age above which a received sample is stale, in milliseconds.
+	 */
+	public DeliveryMonitor(int staleThreshold) {
+		this.staleThreshold = staleThreshold;
+	}
+
+	/**
+	 * Records the reception of a sample.
+	 *
+	 * @param sequence
+	 *            the sequence number of the sample.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @return the number of samples missed since the previously received one.
+	 */
+	public int record(int sequence, long timestamp) {
+		return record(sequence, timestamp, 0);
+	}
+
+	/**
+	 * Records the reception of a sample and the samples dropped on purpose by the provider before it.
+	 * <p>
+	 * The dropped samples are deducted from the gaps, the current one or the next ones if they are reported before
+	 * their gap is seen.
+	 *
+	 * @param sequence
+	 *            the sequence number of the sample.
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds.
+	 * @param dropped
+	 *            the number of samples dropped by the provider since the previous call.
+	 * @return the number of samples missed since the previously received one, not counting the dropped ones.
+	 */
+	public int record(int sequence, long timestamp, int dropped) {
+		long age = Util.platformTimeMillis() - timestamp;
+		synchronized (this) {
+			this.receivedCount++;
+			if (age > this.maxAge) {
+				this.maxAge = age;
+			}
+			if (age > this.staleThreshold) {
+				this.staleCount++;
+			}
+
+			this.pendingDroppedCount += Math.max(dropped, 0);
+
+			int missed = 0;
+			if (this.started) {
+				// The difference is right even when the sequence number overflows.
+				int delta = sequence - this.lastSequence;
+				if (delta <= 0) {
+					this.outOfOrderCount++;
+				} else if (delta > 1) {
+					int skipped = delta - 1;
+					int droppedSkipped = Math.min(skipped, this.pendingDroppedCount);
+					this.pendingDroppedCount -= droppedSkipped;
+					this.droppedCount += droppedSkipped;
+					missed = skipped - droppedSkipped;
+					if (missed > 0) {
+						this.missedCount += missed;
+						this.gapCount++;
+					}
+				}
+			}
+			this.started = true;
+			this.lastSequence = sequence;
+			return missed;
+		}
+	}
+
+	/**
+	 * Gets the number of received samples.
+	 *
+	 * @return the received count.
+	 */
+	public synchronized int getReceivedCount() {
+		return this.receivedCount;
+	}
+
+	/**
+	 * Gets the number of samples missed between the received ones.
+	 *
+	 * @return the missed count.
+	 */
+	public synchronized int getMissedCount() {
+		return this.missedCount;
+	}
+
+	/**
+	 * Gets the number of samples skipped between the received ones because the provider dropped them on purpose.
+	 *
+	 * @return the dropped count.
+	 */
+	public synchronized int getDroppedCount() {
+		return this.droppedCount;
+	}
+
+	/**
+	 * Gets the number of gaps, each one being one or more consecutive missed samples.
+	 *
+	 * @return the gap count.
+	 */
+	public synchronized int getGapCount() {
+		return this.gapCount;
+	}
+
+	/**
+	 * Gets the number of samples received with a sequence number not greater than the previous one.
+	 *
+	 * @return the out of order count.
+	 */
+	public synchronized int getOutOfOrderCount() {
+		return this.outOfOrderCount;
+	}
+
+	/**
+	 * Gets the number of samples received after the stale threshold.
+	 *
+	 * @return the stale count.
+	 */
+	public synchronized int getStaleCount() {
+		return this.staleCount;
+	}
+
+	/**
+	 * Gets the maximum age of the received samples.
+	 *
+	 * @return the maximum age in milliseconds.
+	 */
+	public synchronized long getMaxAge() {
+		return this.maxAge;
+	}
+
+	/**
+	 * Gets the ratio of the samples delivered to the consumer.
+	 *
+	 * The dropped samples are not counted as not delivered.
+	 *
+	 * @return the delivery ratio in per mille, <code>1000</code> if no sample has been missed.
+	 */
+	public synchronized int getDeliveryRatio() {
+		int total = this.receivedCount + this.missedCount;
+		return total == 0 ? 1000 : (int) (this.receivedCount * 1000L / total);
+	}
+
+	/**
+	 * Resets the counters. The next received sample is not compared to the previous ones.
+	 */
+	public synchronized void reset() {
+		this.started = false;
+		this.receivedCount = 0;
+		this.missedCount = 0;
+		this.droppedCount = 0;
+		this.pendingDroppedCount = 0;
+		this.gapCount = 0;
+		this.outOfOrderCount = 0;
+		this.staleCount = 0;
+		this.maxAge = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "received=" + this.receivedCount + " missed=" + this.missedCount + " dropped=" + this.droppedCount //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ " gaps=" + this.gapCount + " outOfOrder=" + this.outOfOrderCount + " stale=" + this.staleCount //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ " maxAge=" + this.maxAge + "ms"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
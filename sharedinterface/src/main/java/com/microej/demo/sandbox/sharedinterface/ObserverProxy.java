@@ -1,29 +1,69 @@
 /*
  * Java
  *
- * Copyright 2023 MicroEJ Corp. All rights reserved.
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
  * Use of this source code is governed by a BSD-style license that can be found with this software.
  */
 package com.microej.demo.sandbox.sharedinterface;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
+import ej.kf.DeadFeatureException;
 import ej.kf.Proxy;
 
 /**
  * Proxy class for {@link Observer} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
  */
-public class ObserverProxy extends Proxy<Observer> implements Observer {
+public class ObserverProxy extends Proxy<Observer> implements Observer, TrackedProxy {
+
+	/** Index of {@link Observer} in the shared interface definition. */
+	public static final int INTERFACE_ID = 1;
+
+	private static final int UPDATE = 0;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "Observer", new String[] { //$NON-NLS-1$
+			"update", //$NON-NLS-1$
+	});
 
-	private static final Logger LOGGER = Logger.getLogger(ObserverProxy.class.getSimpleName());
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
 
 	@Override
 	public void update() {
+		long startTime = METRICS.start();
 		try {
 			invoke();
+			METRICS.succeeded(UPDATE, startTime);
+			this.consecutiveFailures = 0;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(UPDATE, startTime, e);
+			trackFailure(e);
 		}
 	}
 
@@ -0,0 +1,32 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Shared interface to receive the power samples of a {@link PowerStream} subscription by batches.
+ */
+public interface PowerBatchSubscriber {
+
+	/**
+	 * Receives a batch of power samples, from the oldest to the latest.
+	 * <p>
+	 * This method is called from the delivery thread of the provider, shared by all the subscribers: it should only
+	 * hand the samples over to the subscriber. The arrays may be longer than the batch.
+	 *
+	 * @param values
+	 *            the power values in Watt
+	 * @param timestamps
+	 *            the time of each sample, in milliseconds
+	 * @param sequences
+	 *            the sequence number of each sample
+	 * @param count
+	 *            the number of samples of the batch
+	 * @see DeliveryMonitor
+	 */
+	void onBatch(int[] values, long[] timestamps, int[] sequences, int count);
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Java
+ *
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.kf.DeadFeatureException;
+import ej.kf.Proxy;
+
+/**
+ * Proxy class for {@link PowerBatchSubscriber} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
+ */
+public class PowerBatchSubscriberProxy extends Proxy<PowerBatchSubscriber> implements PowerBatchSubscriber, TrackedProxy {
+
+	/** Index of {@link PowerBatchSubscriber} in the shared interface definition. */
+	public static final int INTERFACE_ID = 7;
+
+	private static final int ON_BATCH = 0;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "PowerBatchSubscriber", new String[] { //$NON-NLS-1$
+			"onBatch", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
+
+	@Override
+	public void onBatch(int[] values, long[] timestamps, int[] sequences, int count) {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(ON_BATCH, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(ON_BATCH, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+}
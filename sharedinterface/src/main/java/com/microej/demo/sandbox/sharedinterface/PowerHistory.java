@@ -0,0 +1,51 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Reads the power history into arrays owned by the caller.
+ * <p>
+ * The arrays of base types returned by a shared interface are copied to the calling feature, so the records of the
+ * history cannot be written directly in the arrays of the caller. This class copies them, so that a chart can keep its
+ * arrays from one read to the next.
+ */
+public class PowerHistory {
+
+	private PowerHistory() {
+		// Prevent instantiation.
+	}
+
+	/**
+	 * Reads the history of the power values in a time range, downsampled to the length of the given arrays.
+	 *
+	 * @param service
+	 *            the power service.
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds.
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds.
+	 * @param timestamps
+	 *            the array receiving the timestamps, oldest first.
+	 * @param values
+	 *            the array receiving the power values.
+	 * @return the number of points read, or -1 if an error occurred.
+	 * @see PowerService#readHistoryDownsampled(long, long, int)
+	 */
+	public static int readDownsampled(PowerService service, long from, long to, long[] timestamps, int[] values) {
+		long[] records = service.readHistoryDownsampled(from, to, Math.min(timestamps.length, values.length));
+		if (records == null) {
+			return -1;
+		}
+		int count = records.length / PowerService.HISTORY_RECORD_SIZE;
+		for (int i = 0; i < count; i++) {
+			int offset = i * PowerService.HISTORY_RECORD_SIZE;
+			timestamps[i] = records[offset + PowerService.HISTORY_TIMESTAMP];
+			values[i] = (int) records[offset + PowerService.HISTORY_POWER];
+		}
+		return count;
+	}
+}
@@ -1,16 +1,34 @@
 /*
  * Java
  *
- * Copyright 2023 MicroEJ Corp. All rights reserved.
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
  * Use of this source code is governed by a BSD-style license that can be found with this software.
  */
 package com.microej.demo.sandbox.sharedinterface;
 
+import ej.annotation.Nullable;
+
 /**
  * Shared interface to access power data and notify observers.
  */
 public interface PowerService {
 
+	/** Offset of the power value in a sample. */
+	int SAMPLE_POWER = 0;
+	/** Offset of the timestamp in a sample. */
+	int SAMPLE_TIMESTAMP = 1;
+	/** Offset of the sequence number in a sample. */
+	int SAMPLE_SEQUENCE = 2;
+	/** Number of fields of a sample. */
+	int SAMPLE_SIZE = 3;
+
+	/** Offset of the timestamp in a history record. */
+	int HISTORY_TIMESTAMP = 0;
+	/** Offset of the power value in a history record. */
+	int HISTORY_POWER = 1;
+	/** Number of fields of a history record. */
+	int HISTORY_RECORD_SIZE = 2;
+
 	/**
 	 * Gets the current Power value.
 	 *
@@ -18,6 +36,35 @@ public interface PowerService {
 	 */
 	int getPower();
 
+	/**
+	 * Gets the sequence number of the current power value.
+	 * <p>
+	 * The sequence number is incremented for each power sample.
+	 *
+	 * @return the sequence number or -1 if an error occurred.
+	 * @see DeliveryMonitor
+	 */
+	int getSequence();
+
+	/**
+	 * Gets the time of the current power value.
+	 *
+	 * @return the time of the sample given by <code>ej.bon.Util.platformTimeMillis()</code>, in milliseconds, or -1
+	 *         if an error occurred.
+	 */
+	long getTimestamp();
+
+	/**
+	 * Gets the current power sample: its value, timestamp and sequence number read consistently.
+	 * <p>
+	 * The fields are stored at the <code>SAMPLE_*</code> offsets. Unlike successive calls to {@link #getPower()},
+	 * {@link #getTimestamp()} and {@link #getSequence()}, the fields always belong to the same sample.
+	 *
+	 * @return the sample, of {@link #SAMPLE_SIZE} elements, or <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	long[] getSample();
+
 	/**
 	 * Gets the minimum power value.
 	 *
@@ -32,6 +79,49 @@ public interface PowerService {
 	 */
 	int getMaxPower();
 
+	/**
+	 * Gets the cumulative energy, integrated from the power samples since the first start of the provider.
+	 *
+	 * @return the energy in milliwatt-hours or -1 if an error occurred.
+	 */
+	long getEnergy();
+
+	/**
+	 * Reads the history of the power values in a time range.
+	 * <p>
+	 * The history is timestamped with the wall-clock time given by <code>ej.bon.Util.currentTimeMillis()</code>. The
+	 * records are stored one after the other, their fields at the <code>HISTORY_*</code> offsets. To read the next
+	 * records of a range, call this method again from the last timestamp read plus one.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds
+	 * @param maxCount
+	 *            the maximum number of records to read, the provider may read less records per call
+	 * @return the first records of the range, oldest first, or <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	long[] readHistory(long from, long to, int maxCount);
+
+	/**
+	 * Reads the history of the power values in a time range, downsampled to a number of points.
+	 * <p>
+	 * The range is divided in buckets of equal duration, each one giving its minimum and maximum records in time order,
+	 * so that the peaks are kept. The records are stored as by {@link #readHistory(long, long, int)}.
+	 *
+	 * @param from
+	 *            the start of the range, inclusive, in milliseconds
+	 * @param to
+	 *            the end of the range, inclusive, in milliseconds
+	 * @param pointCount
+	 *            the maximum number of records to read, for example the width of a chart in pixels
+	 * @return the records, oldest first, or <code>null</code> if an error occurred.
+	 * @see PowerHistory#readDownsampled(PowerService, long, long, long[], int[])
+	 */
+	@Nullable
+	long[] readHistoryDownsampled(long from, long to, int pointCount);
+
 	/**
 	 * Notifies the observers when the power value is changed.
 	 */
@@ -1,77 +1,256 @@
 /*
  * Java
  *
- * Copyright 2023 MicroEJ Corp. All rights reserved.
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
  * Use of this source code is governed by a BSD-style license that can be found with this software.
  */
 package com.microej.demo.sandbox.sharedinterface;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
+import ej.annotation.Nullable;
+import ej.kf.DeadFeatureException;
 import ej.kf.Proxy;
 
 /**
  * Proxy class for {@link PowerService} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
  */
-public class PowerServiceProxy extends Proxy<PowerService> implements PowerService {
+public class PowerServiceProxy extends Proxy<PowerService> implements PowerService, TrackedProxy {
+
+	/** Index of {@link PowerService} in the shared interface definition. */
+	public static final int INTERFACE_ID = 0;
+
+	private static final int GET_POWER = 0;
+	private static final int GET_SEQUENCE = 1;
+	private static final int GET_TIMESTAMP = 2;
+	private static final int GET_SAMPLE = 3;
+	private static final int GET_MIN_POWER = 4;
+	private static final int GET_MAX_POWER = 5;
+	private static final int GET_ENERGY = 6;
+	private static final int READ_HISTORY = 7;
+	private static final int READ_HISTORY_DOWNSAMPLED = 8;
+	private static final int NOTIFY_OBSERVERS = 9;
+	private static final int ADD_OBSERVER = 10;
+	private static final int REMOVE_OBSERVER = 11;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "PowerService", new String[] { //$NON-NLS-1$
+			"getPower", //$NON-NLS-1$
+			"getSequence", //$NON-NLS-1$
+			"getTimestamp", //$NON-NLS-1$
+			"getSample", //$NON-NLS-1$
+			"getMinPower", //$NON-NLS-1$
+			"getMaxPower", //$NON-NLS-1$
+			"getEnergy", //$NON-NLS-1$
+			"readHistory", //$NON-NLS-1$
+			"readHistoryDownsampled", //$NON-NLS-1$
+			"notifyObservers", //$NON-NLS-1$
+			"addObserver", //$NON-NLS-1$
+			"removeObserver", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
 
-	private static final Logger LOGGER = Logger.getLogger(PowerServiceProxy.class.getSimpleName());
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
 
 	@Override
 	public int getPower() {
+		long startTime = METRICS.start();
+		try {
+			int result = invokeInt();
+			METRICS.succeeded(GET_POWER, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_POWER, startTime, e);
+			trackFailure(e);
+			return -1;
+		}
+	}
+
+	@Override
+	public int getSequence() {
+		long startTime = METRICS.start();
+		try {
+			int result = invokeInt();
+			METRICS.succeeded(GET_SEQUENCE, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_SEQUENCE, startTime, e);
+			trackFailure(e);
+			return -1;
+		}
+	}
+
+	@Override
+	public long getTimestamp() {
+		long startTime = METRICS.start();
 		try {
-			return invokeInt();
+			long result = invokeLong();
+			METRICS.succeeded(GET_TIMESTAMP, startTime);
+			this.consecutiveFailures = 0;
+			return result;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(GET_TIMESTAMP, startTime, e);
+			trackFailure(e);
 			return -1;
 		}
 	}
 
+	@Nullable
+	@Override
+	public long[] getSample() {
+		long startTime = METRICS.start();
+		try {
+			long[] result = (long[]) invokeRef();
+			METRICS.succeeded(GET_SAMPLE, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_SAMPLE, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
 	@Override
 	public int getMinPower() {
+		long startTime = METRICS.start();
 		try {
-			return invokeInt();
+			int result = invokeInt();
+			METRICS.succeeded(GET_MIN_POWER, startTime);
+			this.consecutiveFailures = 0;
+			return result;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(GET_MIN_POWER, startTime, e);
+			trackFailure(e);
 			return -1;
 		}
 	}
 
 	@Override
 	public int getMaxPower() {
+		long startTime = METRICS.start();
 		try {
-			return invokeInt();
+			int result = invokeInt();
+			METRICS.succeeded(GET_MAX_POWER, startTime);
+			this.consecutiveFailures = 0;
+			return result;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(GET_MAX_POWER, startTime, e);
+			trackFailure(e);
 			return -1;
 		}
 	}
 
+	@Override
+	public long getEnergy() {
+		long startTime = METRICS.start();
+		try {
+			long result = invokeLong();
+			METRICS.succeeded(GET_ENERGY, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_ENERGY, startTime, e);
+			trackFailure(e);
+			return -1;
+		}
+	}
+
+	@Nullable
+	@Override
+	public long[] readHistory(long from, long to, int maxCount) {
+		long startTime = METRICS.start();
+		try {
+			long[] result = (long[]) invokeRef();
+			METRICS.succeeded(READ_HISTORY, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(READ_HISTORY, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+	@Nullable
+	@Override
+	public long[] readHistoryDownsampled(long from, long to, int pointCount) {
+		long startTime = METRICS.start();
+		try {
+			long[] result = (long[]) invokeRef();
+			METRICS.succeeded(READ_HISTORY_DOWNSAMPLED, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(READ_HISTORY_DOWNSAMPLED, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
 	@Override
 	public void notifyObservers() {
+		long startTime = METRICS.start();
 		try {
 			invoke();
+			METRICS.succeeded(NOTIFY_OBSERVERS, startTime);
+			this.consecutiveFailures = 0;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(NOTIFY_OBSERVERS, startTime, e);
+			trackFailure(e);
 		}
 	}
 
 	@Override
 	public void addObserver(Observer observer) {
+		long startTime = METRICS.start();
 		try {
 			invoke();
+			METRICS.succeeded(ADD_OBSERVER, startTime);
+			this.consecutiveFailures = 0;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(ADD_OBSERVER, startTime, e);
+			trackFailure(e);
 		}
 	}
 
 	@Override
 	public void removeObserver(Observer observer) {
+		long startTime = METRICS.start();
 		try {
 			invoke();
+			METRICS.succeeded(REMOVE_OBSERVER, startTime);
+			this.consecutiveFailures = 0;
 		} catch (Throwable e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			METRICS.failed(REMOVE_OBSERVER, startTime, e);
+			trackFailure(e);
 		}
 	}
 
@@ -0,0 +1,64 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+
+/**
+ * Shared interface to subscribe to the stream of power samples with flow control.
+ * <p>
+ * A subscriber receives at most as many samples as it requested with {@link PowerSubscription#request(int)}. The
+ * samples produced while it has no credit are kept according to the policy of its subscription: only the latest one
+ * with {@link #POLICY_CONFLATE}, or the latest ones up to the capacity of the subscription with {@link #POLICY_BUFFER}.
+ * The other ones are dropped and counted.
+ * <p>
+ * The samples can also be delivered by batches, to divide the number of cross-feature calls of a high-rate stream by
+ * the batch size.
+ */
+public interface PowerStream {
+
+	/** Keeps only the latest sample not delivered. */
+	int POLICY_CONFLATE = 0;
+	/** Keeps the latest samples not delivered, up to the capacity of the subscription. */
+	int POLICY_BUFFER = 1;
+
+	/**
+	 * Subscribes to the power samples.
+	 * <p>
+	 * The subscription has no credit: no sample is delivered until the subscriber requests some.
+	 *
+	 * @param subscriber
+	 *            subscriber to deliver the samples to
+	 * @param policy
+	 *            policy applied to the samples produced while the subscriber has no credit, {@link #POLICY_CONFLATE} or
+	 *            {@link #POLICY_BUFFER}
+	 * @param capacity
+	 *            maximum number of samples kept with {@link #POLICY_BUFFER}, ignored with {@link #POLICY_CONFLATE}
+	 * @return the subscription or <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	PowerSubscription subscribe(PowerStreamSubscriber subscriber, int policy, int capacity);
+
+	/**
+	 * Subscribes to the power samples by batches.
+	 * <p>
+	 * A batch is delivered when it is full, or when its oldest sample has waited for the maximum latency. A credit
+	 * allows the delivery of one batch. While the subscriber has no credit, a full batch keeps the latest samples.
+	 *
+	 * @param subscriber
+	 *            subscriber to deliver the batches to
+	 * @param batchSize
+	 *            maximum number of samples of a batch
+	 * @param maxLatency
+	 *            maximum time a sample waits for its batch to be full, in milliseconds, or 0 to deliver only full
+	 *            batches
+	 * @return the subscription or <code>null</code> if an error occurred.
+	 */
+	@Nullable
+	PowerSubscription subscribeBatches(PowerBatchSubscriber subscriber, int batchSize, int maxLatency);
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Java
+ *
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+import ej.kf.DeadFeatureException;
+import ej.kf.Proxy;
+
+/**
+ * Proxy class for {@link PowerStream} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
+ */
+public class PowerStreamProxy extends Proxy<PowerStream> implements PowerStream, TrackedProxy {
+
+	/** Index of {@link PowerStream} in the shared interface definition. */
+	public static final int INTERFACE_ID = 4;
+
+	private static final int SUBSCRIBE = 0;
+	private static final int SUBSCRIBE_BATCHES = 1;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "PowerStream", new String[] { //$NON-NLS-1$
+			"subscribe", //$NON-NLS-1$
+			"subscribeBatches", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
+
+	@Nullable
+	@Override
+	public PowerSubscription subscribe(PowerStreamSubscriber subscriber, int policy, int capacity) {
+		long startTime = METRICS.start();
+		try {
+			PowerSubscription result = (PowerSubscription) invokeRef();
+			METRICS.succeeded(SUBSCRIBE, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(SUBSCRIBE, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+	@Nullable
+	@Override
+	public PowerSubscription subscribeBatches(PowerBatchSubscriber subscriber, int batchSize, int maxLatency) {
+		long startTime = METRICS.start();
+		try {
+			PowerSubscription result = (PowerSubscription) invokeRef();
+			METRICS.succeeded(SUBSCRIBE_BATCHES, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(SUBSCRIBE_BATCHES, startTime, e);
+			trackFailure(e);
+			return null;
+		}
+	}
+
+}
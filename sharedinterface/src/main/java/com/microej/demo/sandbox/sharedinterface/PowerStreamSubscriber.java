@@ -0,0 +1,32 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Shared interface to receive the power samples of a {@link PowerStream} subscription.
+ */
+public interface PowerStreamSubscriber {
+
+	/**
+	 * Receives a power sample.
+	 * <p>
+	 * This method is called from the delivery thread of the provider, shared by all the subscribers: it should only
+	 * hand the sample over to the subscriber.
+	 *
+	 * @param power
+	 *            the power value in Watt
+	 * @param timestamp
+	 *            the time of the sample, in milliseconds
+	 * @param sequence
+	 *            the sequence number of the sample
+	 * @param dropped
+	 *            the number of samples dropped because the subscriber had no credit since the previous sample
+	 * @see DeliveryMonitor#record(int, long, int)
+	 */
+	void onNext(int power, long timestamp, int sequence, int dropped);
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Shared interface to control the delivery of the power samples to a subscriber.
+ */
+public interface PowerSubscription {
+
+	/**
+	 * Grants credits to the subscriber: up to this number of additional samples will be delivered.
+	 *
+	 * @param n
+	 *            number of samples, strictly positive
+	 */
+	void request(int n);
+
+	/**
+	 * Cancels the subscription: no sample is delivered anymore.
+	 */
+	void cancel();
+
+	/**
+	 * Gets the number of samples dropped because the subscriber had no credit.
+	 *
+	 * @return the dropped sample count or -1 if an error occurred.
+	 */
+	int getDroppedCount();
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Java
+ *
+ * Copyright 2023-2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.kf.DeadFeatureException;
+import ej.kf.Proxy;
+
+/**
+ * Proxy class for {@link PowerSubscription} shared interface.
+ * <p>
+ * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.
+ */
+public class PowerSubscriptionProxy extends Proxy<PowerSubscription> implements PowerSubscription, TrackedProxy {
+
+	/** Index of {@link PowerSubscription} in the shared interface definition. */
+	public static final int INTERFACE_ID = 5;
+
+	private static final int REQUEST = 0;
+	private static final int CANCEL = 1;
+	private static final int GET_DROPPED_COUNT = 2;
+
+	private static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, "PowerSubscription", new String[] { //$NON-NLS-1$
+			"request", //$NON-NLS-1$
+			"cancel", //$NON-NLS-1$
+			"getDroppedCount", //$NON-NLS-1$
+	});
+
+	private int consecutiveFailures;
+	private boolean targetDead;
+
+	/**
+	 * Gets the call metrics of this proxy.
+	 *
+	 * @return the call metrics.
+	 */
+	public static ProxyMetrics getMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return this.consecutiveFailures;
+	}
+
+	@Override
+	public boolean isTargetDead() {
+		return this.targetDead || getReference() == null;
+	}
+
+	private void trackFailure(Throwable e) {
+		this.consecutiveFailures++;
+		if (e instanceof DeadFeatureException) {
+			this.targetDead = true;
+		}
+	}
+
+	@Override
+	public void request(int n) {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(REQUEST, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(REQUEST, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+	@Override
+	public void cancel() {
+		long startTime = METRICS.start();
+		try {
+			invoke();
+			METRICS.succeeded(CANCEL, startTime);
+			this.consecutiveFailures = 0;
+		} catch (Throwable e) {
+			METRICS.failed(CANCEL, startTime, e);
+			trackFailure(e);
+		}
+	}
+
+	@Override
+	public int getDroppedCount() {
+		long startTime = METRICS.start();
+		try {
+			int result = invokeInt();
+			METRICS.succeeded(GET_DROPPED_COUNT, startTime);
+			this.consecutiveFailures = 0;
+			return result;
+		} catch (Throwable e) {
+			METRICS.failed(GET_DROPPED_COUNT, startTime, e);
+			trackFailure(e);
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import java.util.logging.Logger;
+
+import ej.bon.Constants;
+import ej.bon.Util;
+
+/**
+ * Call metrics of the methods of a shared interface proxy.
+ * <p>
+ * The failed calls are always counted. Instead of logging each failure, at most one line is logged every
+ * {@value #LOG_PERIOD} milliseconds, reporting the number of failures since the previous line and the last error.
+ * <p>
+ * When the {@value #METRICS_CONSTANT} BON constant is <code>true</code>, all the calls are counted, their rate is
+ * computed and their latency is recorded: mean, maximum and histogram. Otherwise, the time is not read and the
+ * instrumentation only costs a method call.
+ * <p>
+ * The methods of the proxied interface are identified by their index in the names given at creation. The metrics are
+ * registered in {@link CallMetrics} under the identifier of the interface.
+ */
+public class ProxyMetrics {
+
+	/** BON constant enabling the call counters and latency histograms. */
+	public static final String METRICS_CONSTANT = "com.microej.demo.sandbox.sharedinterface.proxy.metrics"; //$NON-NLS-1$
+
+	/** Minimum time between two log lines reporting failed calls, in milliseconds. */
+	public static final int LOG_PERIOD = 10000;
+
+	/** Upper bounds of the latency histogram buckets in microseconds, the last bucket has no upper bound. */
+	private static final int[] BUCKET_BOUNDS = { 5, 10, 20, 50, 100, 200, 500, 1000 };
+	private static final int NS_PER_US = 1000;
+	private static final int NS_PER_MS = 1000000;
+	private static final int MS_PER_S = 1000;
+	/** Minimum duration of the window used to compute the call rates, in milliseconds. */
+	private static final int RATE_PERIOD = 1000;
+
+	private static final Logger LOGGER = Logger.getLogger("ProxyMetrics"); //$NON-NLS-1$
+
+	private final int interfaceId;
+	private final String interfaceName;
+	private final String[] methodNames;
+
+	// Guarded by this.
+	private final int[] callCounts;
+	private final int[] failureCounts;
+	private final int[][] latencyHistograms;
+	private final long[] totalLatencies;
+	private final int[] maxLatencies;
+	private final int[] windowCallCounts;
+	private final int[] callRates;
+	private long windowStart;
+	private long nextLogTime;
+	private int unloggedFailures;
+
+	/**
+	 * Creates the metrics of a proxy and registers them in {@link CallMetrics}.
+	 *
+	 * @param interfaceId
+	 *            the identifier of the proxied interface, its index in the shared interface definition.
+	 * @param interfaceName
+	 *            the name of the proxied interface.
+	 * @param methodNames
+	 *            the names of the methods of the proxied interface.
+	 */
+	public ProxyMetrics(int interfaceId, String interfaceName, String[] methodNames) {
+		int methodCount = methodNames.length;
+		this.interfaceId = interfaceId;
+		this.interfaceName = interfaceName;
+		this.methodNames = methodNames;
+		this.callCounts = new int[methodCount];
+		this.failureCounts = new int[methodCount];
+		this.latencyHistograms = new int[methodCount][BUCKET_BOUNDS.length + 1];
+		this.totalLatencies = new long[methodCount];
+		this.maxLatencies = new int[methodCount];
+		this.windowCallCounts = new int[methodCount];
+		this.callRates = new int[methodCount];
+		CallMetrics.register(this);
+	}
+
+	/**
+	 * Gets whether the call counters and latency histograms are enabled.
+	 *
+	 * @return <code>true</code> if the successful calls are measured, <code>false</code> if only the failures are
+	 *         counted.
+	 * @see #METRICS_CONSTANT
+	 */
+	public static boolean isEnabled() {
+		return Constants.getBoolean(METRICS_CONSTANT);
+	}
+
+	/**
+	 * Marks the start of a call.
+	 *
+	 * @return the start time to give to {@link #succeeded(int, long)} or {@link #failed(int, long, Throwable)}.
+	 */
+	public long start() {
+		if (Constants.getBoolean(METRICS_CONSTANT)) {
+			return Util.platformTimeNanos();
+		}
+		return 0;
+	}
+
+	/**
+	 * Marks the end of a successful call.
+	 *
+	 * @param method
+	 *            the index of the called method.
+	 * @param startTime
+	 *            the start time returned by {@link #start()}.
+	 */
+	public void succeeded(int method, long startTime) {
+		if (Constants.getBoolean(METRICS_CONSTANT)) {
+			record(method, startTime);
+		}
+	}
+
+	/**
+	 * Marks the end of a failed call.
+	 * <p>
+	 * The failure is logged if no failure of this proxy has been logged during the last {@value #LOG_PERIOD}
+	 * milliseconds.
+	 *
+	 * @param method
+	 *            the index of the called method.
+	 * @param startTime
+	 *            the start time returned by {@link #start()}.
+	 * @param error
+	 *            the error thrown by the call.
+	 */
+	public void failed(int method, long startTime, Throwable error) {
+		if (Constants.getBoolean(METRICS_CONSTANT)) {
+			record(method, startTime);
+		}
+
+		long now = Util.platformTimeMillis();
+		int failures;
+		synchronized (this) {
+			this.failureCounts[method]++;
+			this.unloggedFailures++;
+			if (now < this.nextLogTime) {
+				return;
+			}
+			this.nextLogTime = now + LOG_PERIOD;
+			failures = this.unloggedFailures;
+			this.unloggedFailures = 0;
+		}
+
+		// The error is only described by its class and message: the stack trace of a cross-feature call is not
+		// helpful and is expensive to print.
+		LOGGER.warning(this.interfaceName + ": " + failures + " failed call(s) since last report, last one to " //$NON-NLS-1$ //$NON-NLS-2$
+				+ this.methodNames[method] + "(): " + error); //$NON-NLS-1$
+	}
+
+	private void record(int method, long startTime) {
+		long endTime = Util.platformTimeNanos();
+		int latency = (int) Math.min((endTime - startTime) / NS_PER_US, Integer.MAX_VALUE);
+		int[] bounds = BUCKET_BOUNDS;
+		int bucket = 0;
+		while (bucket < bounds.length && latency > bounds[bucket]) {
+			bucket++;
+		}
+		synchronized (this) {
+			updateRates(endTime / NS_PER_MS);
+			this.callCounts[method]++;
+			this.windowCallCounts[method]++;
+			this.latencyHistograms[method][bucket]++;
+			this.totalLatencies[method] += latency;
+			if (latency > this.maxLatencies[method]) {
+				this.maxLatencies[method] = latency;
+			}
+		}
+	}
+
+	/**
+	 * Computes the call rates of the last window if it lasted at least {@value #RATE_PERIOD} milliseconds. Must be
+	 * called with the lock held.
+	 */
+	private void updateRates(long now) {
+		long elapsed = now - this.windowStart;
+		if (elapsed < RATE_PERIOD) {
+			return;
+		}
+		int[] windowCallCounts = this.windowCallCounts;
+		int[] callRates = this.callRates;
+		// A first window started at the creation of the platform time is meaningless.
+		boolean firstWindow = this.windowStart == 0;
+		for (int i = 0; i < windowCallCounts.length; i++) {
+			callRates[i] = firstWindow ? 0 : (int) (windowCallCounts[i] * (long) MS_PER_S / elapsed);
+			windowCallCounts[i] = 0;
+		}
+		this.windowStart = now;
+	}
+
+	/**
+	 * Gets the identifier of the proxied interface.
+	 *
+	 * @return the interface identifier.
+	 */
+	public int getInterfaceId() {
+		return this.interfaceId;
+	}
+
+	/**
+	 * Gets the name of the proxied interface.
+	 *
+	 * @return the interface name.
+	 */
+	public String getInterfaceName() {
+		return this.interfaceName;
+	}
+
+	/**
+	 * Gets the number of methods of the proxied interface.
+	 *
+	 * @return the method count.
+	 */
+	public int getMethodCount() {
+		return this.methodNames.length;
+	}
+
+	/**
+	 * Gets the name of a method of the proxied interface.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the method name.
+	 */
+	public String getMethodName(int method) {
+		return this.methodNames[method];
+	}
+
+	/**
+	 * Gets the number of measured calls of a method, successful or not.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the call count, always <code>0</code> if the metrics are not enabled.
+	 */
+	public synchronized int getCallCount(int method) {
+		return this.callCounts[method];
+	}
+
+	/**
+	 * Gets the number of failed calls of a method.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the failure count.
+	 */
+	public synchronized int getFailureCount(int method) {
+		return this.failureCounts[method];
+	}
+
+	/**
+	 * Gets the number of calls per second of a method.
+	 * <p>
+	 * The rate is computed on a window of at least {@value #RATE_PERIOD} milliseconds, the last complete one.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the call rate, always <code>0</code> if the metrics are not enabled.
+	 */
+	public synchronized int getCallRate(int method) {
+		if (Constants.getBoolean(METRICS_CONSTANT)) {
+			updateRates(Util.platformTimeMillis());
+		}
+		return this.callRates[method];
+	}
+
+	/**
+	 * Gets the mean latency of the calls of a method.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the mean latency in microseconds, <code>0</code> if no call has been measured.
+	 */
+	public synchronized int getMeanLatency(int method) {
+		int callCount = this.callCounts[method];
+		return callCount == 0 ? 0 : (int) (this.totalLatencies[method] / callCount);
+	}
+
+	/**
+	 * Gets the maximum latency of the calls of a method.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return the maximum latency in microseconds, <code>0</code> if no call has been measured.
+	 */
+	public synchronized int getMaxLatency(int method) {
+		return this.maxLatencies[method];
+	}
+
+	/**
+	 * Resets all the metrics of this proxy.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < this.methodNames.length; i++) {
+			this.callCounts[i] = 0;
+			this.failureCounts[i] = 0;
+			this.totalLatencies[i] = 0;
+			this.maxLatencies[i] = 0;
+			this.windowCallCounts[i] = 0;
+			this.callRates[i] = 0;
+			int[] histogram = this.latencyHistograms[i];
+			for (int j = 0; j < histogram.length; j++) {
+				histogram[j] = 0;
+			}
+		}
+		this.windowStart = 0;
+	}
+
+	/**
+	 * Gets the latency histogram of a method.
+	 * <p>
+	 * The bucket <code>i</code> counts the calls whose latency is at most the bound <code>i</code> and more than the
+	 * previous one. The last bucket counts the calls slower than all the bounds.
+	 *
+	 * @param method
+	 *            the index of the method.
+	 * @return a copy of the histogram.
+	 * @see #getLatencyBucketBounds()
+	 */
+	public synchronized int[] getLatencyHistogram(int method) {
+		int[] histogram = this.latencyHistograms[method];
+		int[] copy = new int[histogram.length];
+		System.arraycopy(histogram, 0, copy, 0, histogram.length);
+		return copy;
+	}
+
+	/**
+	 * Gets the upper bounds of the latency histogram buckets.
+	 *
+	 * @return a copy of the bounds, in microseconds.
+	 */
+	public static int[] getLatencyBucketBounds() {
+		int[] bounds = BUCKET_BOUNDS;
+		int[] copy = new int[bounds.length];
+		System.arraycopy(bounds, 0, copy, 0, bounds.length);
+		return copy;
+	}
+}
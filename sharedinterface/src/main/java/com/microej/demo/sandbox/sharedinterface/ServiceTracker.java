@@ -0,0 +1,177 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import ej.annotation.Nullable;
+import ej.bon.Timer;
+import ej.bon.TimerTask;
+import ej.service.ServiceFactory;
+
+/**
+ * Tracks the registration of a service in the {@link ServiceFactory}.
+ * <p>
+ * The resolved service is cached, so that getting it does not look it up in the registry. The registry is checked
+ * periodically while the tracker is open: the listener is notified when the service appears, which may happen after
+ * the start of the tracking feature, and when it is unregistered, replaced or its feature is stopped.
+ * <p>
+ * The listener is called from the thread opening or closing the tracker, or from the timer thread of the tracker, one
+ * call at a time.
+ *
+ * @param <T>
+ *            the type of the service.
+ */
+public class ServiceTracker<T> {
+
+	/** Default period of the registry checks, in milliseconds. */
+	public static final int DEFAULT_POLL_PERIOD = 1000;
+
+	/**
+	 * Listener of the availability of a service.
+	 *
+	 * @param <T>
+	 *            the type of the service.
+	 */
+	public interface Listener<T> {
+
+		/**
+		 * Called when the service becomes available.
+		 *
+		 * @param service
+		 *            the service.
+		 */
+		void serviceAdded(T service);
+
+		/**
+		 * Called when the service is not available anymore, or when the tracker is closed.
+		 * <p>
+		 * The service may be dead: its calls fail without effect.
+		 *
+		 * @param service
+		 *            the service.
+		 */
+		void serviceRemoved(T service);
+	}
+
+	private final Class<T> type;
+	private final Listener<T> listener;
+	private final int pollPeriod;
+
+	@Nullable
+	private volatile T service;
+	// Guarded by this.
+	@Nullable
+	private Timer timer;
+
+	/**
+	 * Creates a service tracker checking the registry every {@value #DEFAULT_POLL_PERIOD} milliseconds.
+	 *
+	 * @param type
+	 *            the type of the service.
+	 * @param listener
+	 *            the listener of the availability of the service.
+	 */
+	public ServiceTracker(Class<T> type, Listener<T> listener) {
+		this(type, listener, DEFAULT_POLL_PERIOD);
+	}
+
+	/**
+	 * Creates a service tracker.
+	 *
+	 * @param type
+	 *            the type of the service.
+	 * @param listener
+	 *            the listener of the availability of the service.
+	 * @param pollPeriod
+	 *            the period of the registry checks, in milliseconds.
+	 */
+	public ServiceTracker(Class<T> type, Listener<T> listener, int pollPeriod) {
+		this.type = type;
+		this.listener = listener;
+		this.pollPeriod = pollPeriod;
+	}
+
+	/**
+	 * Starts tracking the service.
+	 * <p>
+	 * If the service is already registered, the listener is notified before this method returns.
+	 */
+	public synchronized void open() {
+		if (this.timer != null) {
+			return;
+		}
+		Timer timer = new Timer();
+		this.timer = timer;
+		check();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, this.pollPeriod, this.pollPeriod);
+	}
+
+	/**
+	 * Stops tracking the service.
+	 * <p>
+	 * If the service is available, the listener is notified of its removal before this method returns.
+	 */
+	public synchronized void close() {
+		Timer timer = this.timer;
+		if (timer == null) {
+			return;
+		}
+		timer.cancel();
+		this.timer = null;
+
+		T service = this.service;
+		if (service != null) {
+			this.service = null;
+			this.listener.serviceRemoved(service);
+		}
+	}
+
+	/**
+	 * Gets the service.
+	 *
+	 * @return the cached service, or <code>null</code> if it is not available.
+	 */
+	@Nullable
+	public T getService() {
+		T service = this.service;
+		if (service != null && isDead(service)) {
+			return null;
+		}
+		return service;
+	}
+
+	private synchronized void check() {
+		if (this.timer == null) {
+			// Closed while this check was waiting.
+			return;
+		}
+
+		T registered = ServiceFactory.getService(this.type);
+		if (registered != null && isDead(registered)) {
+			registered = null;
+		}
+
+		T service = this.service;
+		if (service != null && (service != registered || isDead(service))) {
+			this.service = null;
+			this.listener.serviceRemoved(service);
+			service = null;
+		}
+		if (service == null && registered != null) {
+			this.service = registered;
+			this.listener.serviceAdded(registered);
+		}
+	}
+
+	private static boolean isDead(Object service) {
+		return service instanceof TrackedProxy && ((TrackedProxy) service).isTargetDead();
+	}
+}
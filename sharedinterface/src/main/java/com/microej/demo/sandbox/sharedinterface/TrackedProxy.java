@@ -0,0 +1,34 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+/**
+ * Failure state of a generated shared interface proxy.
+ * <p>
+ * The feature holding a proxy can check the outcome of its calls, even the ones that do not return a value, and stop
+ * using the proxy when its target is dead or keeps failing.
+ */
+public interface TrackedProxy {
+
+	/**
+	 * Gets the number of calls of this proxy that failed since the last successful one.
+	 *
+	 * @return the consecutive failure count.
+	 */
+	int getConsecutiveFailures();
+
+	/**
+	 * Gets whether the feature owning the target of this proxy has been stopped.
+	 * <p>
+	 * A dead target never comes back: a restarted feature provides new objects. The target is known to be dead once a
+	 * call failed because of it or once the Kernel reclaimed it, even if the proxy has not been called since.
+	 *
+	 * @return <code>true</code> if the target feature is dead, <code>false</code> otherwise.
+	 */
+	boolean isTargetDead();
+
+}
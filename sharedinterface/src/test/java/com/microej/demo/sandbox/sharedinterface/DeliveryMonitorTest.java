@@ -0,0 +1,135 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ej.bon.Util;
+
+/**
+ * Checks the gap, dropped, out of order and stale accounting of the {@link DeliveryMonitor}.
+ */
+public class DeliveryMonitorTest {
+
+	private static final int STALE_THRESHOLD = 500;
+
+	private DeliveryMonitor monitor;
+	private long now;
+
+	@Before
+	public void setUp() {
+		this.monitor = new DeliveryMonitor(STALE_THRESHOLD);
+		this.now = Util.platformTimeMillis();
+	}
+
+	@Test
+	public void testConsecutive() {
+		for (int sequence = 1; sequence <= 5; sequence++) {
+			assertEquals(0, this.monitor.record(sequence, this.now));
+		}
+		assertCounts(5, 0, 0, 0, 0);
+		assertEquals(1000, this.monitor.getDeliveryRatio());
+	}
+
+	@Test
+	public void testGap() {
+		this.monitor.record(1, this.now);
+		this.monitor.record(2, this.now);
+		assertEquals(2, this.monitor.record(5, this.now));
+		assertEquals(0, this.monitor.record(6, this.now));
+		assertEquals(1, this.monitor.record(8, this.now));
+		assertCounts(5, 3, 0, 2, 0);
+		assertEquals(5 * 1000 / 8, this.monitor.getDeliveryRatio());
+	}
+
+	@Test
+	public void testDroppedGap() {
+		this.monitor.record(1, this.now);
+		// The two skipped samples were conflated by the provider.
+		assertEquals(0, this.monitor.record(4, this.now, 2));
+		assertCounts(2, 0, 2, 0, 0);
+		assertEquals(1000, this.monitor.getDeliveryRatio());
+	}
+
+	@Test
+	public void testPartiallyDroppedGap() {
+		this.monitor.record(1, this.now);
+		assertEquals(2, this.monitor.record(5, this.now, 1));
+		assertCounts(2, 2, 1, 1, 0);
+	}
+
+	@Test
+	public void testDroppedReportedBeforeGap() {
+		this.monitor.record(1, this.now);
+		// Reported with a sample that follows its predecessor: kept for the next gap.
+		assertEquals(0, this.monitor.record(2, this.now, 2));
+		assertCounts(2, 0, 0, 0, 0);
+		assertEquals(0, this.monitor.record(5, this.now));
+		assertCounts(3, 0, 2, 0, 0);
+	}
+
+	@Test
+	public void testNegativeDroppedIgnored() {
+		this.monitor.record(1, this.now);
+		// A subscription proxy returns -1 when the call fails.
+		assertEquals(2, this.monitor.record(4, this.now, -1));
+		assertCounts(2, 2, 0, 1, 0);
+	}
+
+	@Test
+	public void testSequenceWrap() {
+		this.monitor.record(Integer.MAX_VALUE - 1, this.now);
+		assertEquals(0, this.monitor.record(Integer.MAX_VALUE, this.now));
+		assertEquals(0, this.monitor.record(Integer.MIN_VALUE, this.now));
+		assertEquals(1, this.monitor.record(Integer.MIN_VALUE + 2, this.now));
+		assertCounts(4, 1, 0, 1, 0);
+	}
+
+	@Test
+	public void testOutOfOrder() {
+		this.monitor.record(5, this.now);
+		assertEquals(0, this.monitor.record(5, this.now));
+		assertEquals(0, this.monitor.record(3, this.now));
+		// The next gaps are computed from the out of order sample.
+		assertEquals(0, this.monitor.record(4, this.now));
+		assertCounts(4, 0, 0, 0, 2);
+	}
+
+	@Test
+	public void testReset() {
+		this.monitor.record(100, this.now);
+		this.monitor.record(102, this.now, 5);
+		this.monitor.reset();
+		assertCounts(0, 0, 0, 0, 0);
+
+		// First sample of a restarted provider.
+		assertEquals(0, this.monitor.record(1, this.now));
+		// The dropped samples reported before the reset are forgotten.
+		assertEquals(1, this.monitor.record(3, this.now));
+		assertCounts(2, 1, 0, 1, 0);
+	}
+
+	@Test
+	public void testStale() {
+		this.monitor.record(1, this.now);
+		this.monitor.record(2, this.now - STALE_THRESHOLD * 2);
+		assertEquals(1, this.monitor.getStaleCount());
+		assertTrue(this.monitor.getMaxAge() >= STALE_THRESHOLD * 2);
+	}
+
+	private void assertCounts(int received, int missed, int dropped, int gaps, int outOfOrder) {
+		assertEquals(received, this.monitor.getReceivedCount());
+		assertEquals(missed, this.monitor.getMissedCount());
+		assertEquals(dropped, this.monitor.getDroppedCount());
+		assertEquals(gaps, this.monitor.getGapCount());
+		assertEquals(outOfOrder, this.monitor.getOutOfOrderCount());
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package com.microej.demo.sandbox.sharedinterface.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating the proxy classes of the shared interfaces.
+ * <p>
+ * The shared interfaces are read from the shared interface definition file given by the {@value #DEFINITION_OPTION}
+ * option. For each interface <code>X</code>, a class <code>XProxy</code> is generated in the same package. Each of its
+ * methods calls the matching <code>invoke*()</code> method of <code>ej.kf.Proxy</code> directly, as required by the
+ * Kernel, and reports the call to a <code>ProxyMetrics</code> identified by the index of the interface in the
+ * definition file. The proxy also implements <code>TrackedProxy</code> to expose its failures. When a call fails, the
+ * method returns <code>-1</code> for a number, <code>false</code> for a boolean and <code>null</code> for a reference.
+ * <p>
+ * When the {@value #CHECK_OPTION} option is given, the proxies are not written: each generated proxy is compared with
+ * the proxy of the given source directory, and an error is reported if it is missing or differs. The build of the
+ * project runs this check on a JDK before compiling the sources, see the <code>module.ant</code> file. See the README
+ * of the project for the command line regenerating the proxies.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({ ProxyGenerator.DEFINITION_OPTION, ProxyGenerator.CHECK_OPTION })
+public class ProxyGenerator extends AbstractProcessor {
+
+	/** Option giving the path of the shared interface definition file. */
+	public static final String DEFINITION_OPTION = "sharedinterface.definition";
+	/** Option giving the source directory whose proxies are checked instead of generating them. */
+	public static final String CHECK_OPTION = "sharedinterface.check";
+
+	private static final String NULLABLE_ANNOTATION = "ej.annotation.Nullable";
+	private static final Pattern INTERFACE_PATTERN = Pattern.compile("<sharedInterface\\s+name=\"([^\"]+)\"");
+	private static final String HEADER = "/*\n" //
+			+ " * Java\n" //
+			+ " *\n" //
+			+ " * Copyright 2023-2024 MicroEJ Corp. All rights reserved.\n" //
+			+ " * Use of this source code is governed by a BSD-style license that can be found with this software.\n" //
+			+ " */\n";
+
+	private boolean generated;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (this.generated) {
+			return false;
+		}
+		this.generated = true;
+
+		String definition = this.processingEnv.getOptions().get(DEFINITION_OPTION);
+		if (definition == null) {
+			error("Missing -A" + DEFINITION_OPTION + "=<path to the .si file> option", null);
+			return false;
+		}
+
+		try {
+			List<String> names = readInterfaces(definition);
+			for (int id = 0; id < names.size(); id++) {
+				String name = names.get(id);
+				TypeElement type = this.processingEnv.getElementUtils().getTypeElement(name);
+				if (type == null || type.getKind() != ElementKind.INTERFACE) {
+					error("Shared interface " + name + " is not an interface of the compiled sources", null);
+				} else {
+					generateProxy(type, id);
+				}
+			}
+		} catch (IOException e) {
+			error("Cannot generate proxies: " + e, null);
+		}
+		return false;
+	}
+
+	private static List<String> readInterfaces(String definition) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(definition))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = INTERFACE_PATTERN.matcher(line);
+				while (matcher.find()) {
+					names.add(matcher.group(1));
+				}
+			}
+		}
+		return names;
+	}
+
+	private void generateProxy(TypeElement type, int interfaceId) throws IOException {
+		String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+		String interfaceName = type.getSimpleName().toString();
+		String proxyName = interfaceName + "Proxy";
+
+		List<ExecutableElement> methods = new ArrayList<>();
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.METHOD && !member.getModifiers().contains(Modifier.STATIC)) {
+				methods.add((ExecutableElement) member);
+			}
+		}
+
+		Set<String> imports = new TreeSet<>();
+		imports.add("ej.kf.DeadFeatureException");
+		imports.add("ej.kf.Proxy");
+		List<String> constants = new ArrayList<>();
+		Set<String> usedConstants = new HashSet<>();
+		StringBuilder body = new StringBuilder();
+		for (ExecutableElement method : methods) {
+			String constant = toConstantName(method.getSimpleName().toString());
+			if (!usedConstants.add(constant)) {
+				constant += "_" + constants.size();
+				usedConstants.add(constant);
+			}
+			constants.add(constant);
+			generateMethod(body, method, constant, packageName, imports);
+		}
+
+		StringBuilder source = new StringBuilder(HEADER);
+		source.append("package ").append(packageName).append(";\n\n");
+		for (String imported : imports) {
+			source.append("import ").append(imported).append(";\n");
+		}
+		source.append("\n");
+		source.append("/**\n");
+		source.append(" * Proxy class for {@link ").append(interfaceName).append("} shared interface.\n");
+		source.append(" * <p>\n");
+		source.append(" * Generated by {@code ProxyGenerator} from the shared interface definition, do not edit.\n");
+		source.append(" */\n");
+		source.append("public class ").append(proxyName).append(" extends Proxy<").append(interfaceName)
+				.append("> implements ").append(interfaceName).append(", TrackedProxy {\n\n");
+		source.append("\t/** Index of {@link ").append(interfaceName)
+				.append("} in the shared interface definition. */\n");
+		source.append("\tpublic static final int INTERFACE_ID = ").append(interfaceId).append(";\n\n");
+		for (int i = 0; i < constants.size(); i++) {
+			source.append("\tprivate static final int ").append(constants.get(i)).append(" = ").append(i)
+					.append(";\n");
+		}
+		source.append("\n");
+		source.append("\tprivate static final ProxyMetrics METRICS = new ProxyMetrics(INTERFACE_ID, \"").append(interfaceName)
+				.append("\", new String[] { //$NON-NLS-1$\n");
+		for (ExecutableElement method : methods) {
+			source.append("\t\t\t\"").append(method.getSimpleName()).append("\", //$NON-NLS-1$\n");
+		}
+		source.append("\t});\n\n");
+		source.append("\tprivate int consecutiveFailures;\n");
+		source.append("\tprivate boolean targetDead;\n\n");
+		source.append("\t/**\n");
+		source.append("\t * Gets the call metrics of this proxy.\n");
+		source.append("\t *\n");
+		source.append("\t * @return the call metrics.\n");
+		source.append("\t */\n");
+		source.append("\tpublic static ProxyMetrics getMetrics() {\n");
+		source.append("\t\treturn METRICS;\n");
+		source.append("\t}\n\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic int getConsecutiveFailures() {\n");
+		source.append("\t\treturn this.consecutiveFailures;\n");
+		source.append("\t}\n\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic boolean isTargetDead() {\n");
+		source.append("\t\treturn this.targetDead || getReference() == null;\n");
+		source.append("\t}\n\n");
+		source.append("\tprivate void trackFailure(Throwable e) {\n");
+		source.append("\t\tthis.consecutiveFailures++;\n");
+		source.append("\t\tif (e instanceof DeadFeatureException) {\n");
+		source.append("\t\t\tthis.targetDead = true;\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n");
+		source.append(body);
+		source.append("\n}\n");
+
+		String checkedDirectory = this.processingEnv.getOptions().get(CHECK_OPTION);
+		if (checkedDirectory != null) {
+			checkProxy(new File(checkedDirectory), packageName, proxyName, source.toString(), type);
+			return;
+		}
+
+		// Written as a resource so that the generated sources are not compiled: the MicroEJ APIs they use are not
+		// available on the JDK.
+		try (Writer writer = this.processingEnv.getFiler()
+				.createResource(StandardLocation.SOURCE_OUTPUT, packageName, proxyName + ".java", type)
+				.openWriter()) {
+			writer.write(source.toString());
+		}
+	}
+
+	private void checkProxy(File directory, String packageName, String proxyName, String source, TypeElement type)
+			throws IOException {
+		File file = new File(new File(directory, packageName.replace('.', File.separatorChar)), proxyName + ".java");
+		if (!file.exists()) {
+			error(file + " is missing, generate the proxies again", type);
+		} else if (!new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).equals(source)) {
+			error(file + " does not match " + type.getQualifiedName() + ", generate the proxies again", type);
+		}
+	}
+
+	private void generateMethod(StringBuilder body, ExecutableElement method, String constant, String packageName,
+			Set<String> imports) {
+		TypeMirror returnType = method.getReturnType();
+		TypeKind returnKind = returnType.getKind();
+		boolean isVoid = returnKind == TypeKind.VOID;
+		String returnTypeName = typeName(returnType, packageName, imports);
+
+		body.append("\n");
+		if (returnKind == TypeKind.DECLARED || returnKind == TypeKind.ARRAY) {
+			if (isNullable(method)) {
+				imports.add(NULLABLE_ANNOTATION);
+				body.append("\t@Nullable\n");
+			} else {
+				// The error value of a reference is null, even in a non-null API.
+				body.append("\t@SuppressWarnings(\"null\")\n");
+			}
+		}
+		body.append("\t@Override\n");
+		body.append("\tpublic ").append(returnTypeName).append(" ").append(method.getSimpleName()).append("(");
+		List<? extends VariableElement> parameters = method.getParameters();
+		for (int i = 0; i < parameters.size(); i++) {
+			VariableElement parameter = parameters.get(i);
+			if (i > 0) {
+				body.append(", ");
+			}
+			body.append(typeName(parameter.asType(), packageName, imports)).append(" ")
+					.append(parameter.getSimpleName());
+		}
+		body.append(") {\n");
+		body.append("\t\tlong startTime = METRICS.start();\n");
+		body.append("\t\ttry {\n");
+		if (isVoid) {
+			body.append("\t\t\tinvoke();\n");
+		} else {
+			body.append("\t\t\t").append(returnTypeName).append(" result = ").append(invokeCall(returnType))
+					.append(";\n");
+		}
+		body.append("\t\t\tMETRICS.succeeded(").append(constant).append(", startTime);\n");
+		body.append("\t\t\tthis.consecutiveFailures = 0;\n");
+		if (!isVoid) {
+			body.append("\t\t\treturn result;\n");
+		}
+		body.append("\t\t} catch (Throwable e) {\n");
+		body.append("\t\t\tMETRICS.failed(").append(constant).append(", startTime, e);\n");
+		body.append("\t\t\ttrackFailure(e);\n");
+		if (!isVoid) {
+			body.append("\t\t\treturn ").append(errorValue(returnKind)).append(";\n");
+		}
+		body.append("\t\t}\n");
+		body.append("\t}\n");
+	}
+
+	private static boolean isNullable(ExecutableElement method) {
+		for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(NULLABLE_ANNOTATION)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String invokeCall(TypeMirror returnType) {
+		switch (returnType.getKind()) {
+		case BOOLEAN:
+			return "invokeBoolean()";
+		case BYTE:
+			return "invokeByte()";
+		case CHAR:
+			return "invokeChar()";
+		case SHORT:
+			return "invokeShort()";
+		case INT:
+			return "invokeInt()";
+		case LONG:
+			return "invokeLong()";
+		case FLOAT:
+			return "invokeFloat()";
+		case DOUBLE:
+			return "invokeDouble()";
+		default:
+			String typeName = returnType.toString();
+			if (returnType.getKind() == TypeKind.DECLARED) {
+				typeName = ((TypeElement) ((DeclaredType) returnType).asElement()).getSimpleName().toString();
+			}
+			return "(" + typeName + ") invokeRef()";
+		}
+	}
+
+	private static String errorValue(TypeKind kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return "false";
+		case CHAR:
+			return "0";
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+		case FLOAT:
+		case DOUBLE:
+			return "-1";
+		default:
+			return "null";
+		}
+	}
+
+	private String typeName(TypeMirror type, String packageName, Set<String> imports) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return typeName(((ArrayType) type).getComponentType(), packageName, imports) + "[]";
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return type.toString();
+		}
+		DeclaredType declaredType = (DeclaredType) type;
+		if (!declaredType.getTypeArguments().isEmpty()) {
+			error("Generic types are not supported in shared interfaces: " + type, null);
+		}
+		TypeElement element = (TypeElement) declaredType.asElement();
+		String qualifiedName = element.getQualifiedName().toString();
+		String typePackage = this.processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+		if (!typePackage.equals(packageName) && !typePackage.equals("java.lang")) {
+			imports.add(qualifiedName);
+		}
+		return element.getSimpleName().toString();
+	}
+
+	private static String toConstantName(String methodName) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < methodName.length(); i++) {
+			char c = methodName.charAt(i);
+			if (Character.isUpperCase(c) && i > 0) {
+				name.append('_');
+			}
+			name.append(Character.toUpperCase(c));
+		}
+		return name.toString();
+	}
+
+	private void error(String message, Element element) {
+		this.processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+}
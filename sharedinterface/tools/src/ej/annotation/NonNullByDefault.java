@@ -0,0 +1,15 @@
+/*
+ * Java
+ *
+ * Copyright 2024 MicroEJ Corp. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be found with this software.
+ */
+package ej.annotation;
+
+/**
+ * Declaration of the <code>ej.annotation</code> annotation used by the shared interfaces, so that the
+ * {@code ProxyGenerator} can process them on a JDK without the MicroEJ libraries. Not part of the library.
+ */
+public @interface NonNullByDefault {
+	// Only the name of the annotation is used by the generator.
+}